@@ -19,11 +19,13 @@ import org.opendaylight.protocol.bgp.parser.BGPParsingException;
 import org.opendaylight.protocol.bgp.parser.impl.message.update.AsPathAttributeParser;
 import org.opendaylight.protocol.bgp.parser.impl.message.update.NextHopAttributeParser;
 import org.opendaylight.protocol.bgp.parser.impl.message.update.OriginAttributeParser;
+import org.opendaylight.protocol.bgp.parser.impl.message.update.SdniAttributeParser;
 import org.opendaylight.protocol.bgp.parser.spi.AttributeRegistry;
 import org.opendaylight.protocol.bgp.parser.spi.MessageParser;
 import org.opendaylight.protocol.bgp.parser.spi.MessageSerializer;
 import org.opendaylight.protocol.bgp.parser.spi.MessageUtil;
 import org.opendaylight.protocol.bgp.parser.spi.PeerSpecificParserConstraint;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniFragments;
 import org.opendaylight.protocol.bgp.sdniwrapper.SdniWrapper;
 import org.opendaylight.protocol.util.ByteArray;
 import org.opendaylight.protocol.util.ByteBufWriteUtil;
@@ -55,6 +57,8 @@ public final class BGPUpdateMessageParser implements MessageParser, MessageSeria
 
     private static final int TOTAL_PATH_ATTR_LENGTH_SIZE = 2;
 
+    private static final int MAX_IPV4_PREFIX_LENGTH = 32;
+
     public static SdniWrapper sdniwrapper = SdniWrapper.getInstance();
 
     private final AttributeRegistry reg;
@@ -98,17 +102,63 @@ public final class BGPUpdateMessageParser implements MessageParser, MessageSeria
             for (final Ipv4Prefix prefix : nlri.getNlri()) {
                 ByteBufWriteUtil.writeMinimalPrefix(prefix, messageBody);
             }
-        }
-        else {
+        } else if (withdrawnRoutes == null && update.getAttributes() == null) {
+            // an empty UPDATE carries the SDNi advertisement, if there is one, and is an End-of-RIB otherwise: the
+            // sessions do not send SDNi UPDATEs while there is no advertisement
             LOG.trace("Serialize sdni update message in parser-impl");
-            messageBody.writeBytes(sdniwrapper.getSDNITopoMessage());
-            messageBody.writeBytes(sdniwrapper.getSDNIQoSMessage());
-
-            byte[] byte1 = new byte[messageBody.readableBytes()];
-            int readerIndex = messageBody.readerIndex();
-            messageBody.getBytes(readerIndex, byte1);
-            String sdniQOSMsg = new String(byte1);
-            LOG.trace("Buffer in parser-impl {}", sdniQOSMsg);
+            if (serializeSdniMessage(bytes)) {
+                return;
+            }
+        }
+        MessageUtil.formatMessage(TYPE, messageBody, bytes);
+    }
+
+    /**
+     * Serialize the SDNi advertisement as an Update message with the SDNi attribute, or as several of them each
+     * carrying a fragment if it is too long for one message.
+     *
+     * @return false if there is no advertisement to send
+     */
+    private static boolean serializeSdniMessage(final ByteBuf bytes) {
+        // shared by all sessions and built in the background, never waited for here
+        final ByteBuf sdniBody = sdniwrapper.getSDNIPayload();
+        try {
+            if (!sdniBody.isReadable()) {
+                return false;
+            }
+            final int room = sdniwrapper.getMaxMessageLength() - MessageUtil.COMMON_HEADER_LENGTH - WITHDRAWN_ROUTES_LENGTH_SIZE
+                    - TOTAL_PATH_ATTR_LENGTH_SIZE - SdniAttributeParser.HEADER_LENGTH;
+            if (sdniBody.readableBytes() <= room) {
+                serializeSdniUpdate(SdniAttributeParser.ADVERTISEMENT, sdniBody, bytes);
+                return true;
+            }
+            final List<ByteBuf> fragments;
+            try {
+                fragments = SdniFragments.split(sdniBody, room);
+            } catch (final IllegalArgumentException e) {
+                LOG.error("SDNi message not sent: {}", e.getMessage());
+                return false;
+            }
+            LOG.debug("Serialize sdni update message of {} bytes as {} fragments", sdniBody.writerIndex(), fragments.size());
+            for (final ByteBuf fragment : fragments) {
+                serializeSdniUpdate(SdniAttributeParser.FRAGMENT, fragment, bytes);
+            }
+            return true;
+        } finally {
+            sdniBody.release();
+        }
+    }
+
+    private static void serializeSdniUpdate(final int type, final ByteBuf value, final ByteBuf bytes) {
+        final ByteBuf pathAttributesBuf = Unpooled.buffer();
+        SdniAttributeParser.serializeSdniAttribute(type, value, pathAttributesBuf);
+        final ByteBuf messageBody = Unpooled.buffer(WITHDRAWN_ROUTES_LENGTH_SIZE + TOTAL_PATH_ATTR_LENGTH_SIZE
+                + pathAttributesBuf.writerIndex());
+        messageBody.writeZero(WITHDRAWN_ROUTES_LENGTH_SIZE);
+        messageBody.writeShort(pathAttributesBuf.writerIndex());
+        messageBody.writeBytes(pathAttributesBuf);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Buffer in parser-impl {}", ByteBufUtil.hexDump(messageBody));
         }
         MessageUtil.formatMessage(TYPE, messageBody, bytes);
     }
@@ -139,22 +189,14 @@ public final class BGPUpdateMessageParser implements MessageParser, MessageSeria
         }
         final int totalPathAttrLength = buffer.readUnsignedShort();
 
-        if (withdrawnRoutesLength == 0 && totalPathAttrLength == 0) {
-            //Retrieve and parse sdni message
-            final byte[] sdniNlri = ByteArray.readAllBytes(buffer);
+        if (withdrawnRoutesLength == 0 && totalPathAttrLength == 0 && buffer.isReadable()
+                && buffer.getUnsignedByte(buffer.readerIndex()) > MAX_IPV4_PREFIX_LENGTH) {
+            // SDNi body sent without the SDNi attribute by an older peer, it cannot be IPv4 NLRI
             LOG.trace("Started Parsing sdni update message");
-            if(!sdniNlri.equals(null) && sdniNlri.length>0){
-                ByteBuf sdniMsg = Unpooled.copiedBuffer(sdniNlri);
-                //Parsing sdni message
-                LOG.trace("In parser-impl Calling ParseSDNiMsg");
-
-                String result = sdniwrapper.parseSDNITopoMessage(sdniMsg);
-                LOG.trace("In parser-impl Calling ParseSDNiQOSMsg");
-                String result1 = sdniwrapper.parseSDNIQoSMessage(sdniMsg);
-            }
+            sdniwrapper.parseSDNIMessage(buffer.readSlice(buffer.readableBytes()));
             return builder.build();
         }
-        
+
         if (totalPathAttrLength > 0) {
             try {
                 final Attributes attributes = this.reg.parseAttributes(buffer.readSlice(totalPathAttrLength), constraint);
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.parser.impl.message.open;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import org.opendaylight.protocol.bgp.parser.BGPDocumentedException;
+import org.opendaylight.protocol.bgp.parser.BGPParsingException;
+import org.opendaylight.protocol.bgp.parser.spi.CapabilityParser;
+import org.opendaylight.protocol.bgp.parser.spi.CapabilitySerializer;
+import org.opendaylight.protocol.bgp.parser.spi.CapabilityUtil;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.BgpParameters;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.bgp.parameters.OptionalCapabilities;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.bgp.parameters.optional.capabilities.CParameters;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.bgp.parameters.optional.capabilities.CParametersBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.sdni.capability.rev160301.SdniCParameters;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.sdni.capability.rev160301.SdniCParametersBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.sdni.capability.rev160301.sdni.capabilities.SdniCompressionCapabilityBuilder;
+
+/**
+ * The capability telling the peer that compressed SDNi advertisements are
+ * accepted. It has no value and uses a code of the private use range.
+ */
+public final class SdniCompressionCapabilityHandler implements CapabilityParser, CapabilitySerializer {
+
+    // https://tools.ietf.org/html/rfc5492#section-4, private use
+    public static final int CODE = 209;
+
+    public static final CParameters SDNI_COMPRESSION_CAPABILITY = new CParametersBuilder().addAugmentation(
+            SdniCParameters.class, new SdniCParametersBuilder().setSdniCompressionCapability(
+                    new SdniCompressionCapabilityBuilder().build()).build()).build();
+
+    @Override
+    public CParameters parseCapability(final ByteBuf buffer) throws BGPDocumentedException, BGPParsingException {
+        return SDNI_COMPRESSION_CAPABILITY;
+    }
+
+    @Override
+    public void serializeCapability(final CParameters capability, final ByteBuf byteAggregator) {
+        if (isSdniCompression(capability)) {
+            CapabilityUtil.formatCapability(CODE, Unpooled.EMPTY_BUFFER, byteAggregator);
+        }
+    }
+
+    /**
+     * @param parameters the BGP parameters of an OPEN message, may be null
+     * @return true if they advertise the SDNi compression capability
+     */
+    public static boolean advertizedSdniCompressionCapability(final List<BgpParameters> parameters) {
+        if (parameters == null) {
+            return false;
+        }
+        for (final BgpParameters p : parameters) {
+            if (p.getOptionalCapabilities() == null) {
+                continue;
+            }
+            for (final OptionalCapabilities capability : p.getOptionalCapabilities()) {
+                if (isSdniCompression(capability.getCParameters())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSdniCompression(final CParameters capability) {
+        return capability != null && capability.getAugmentation(SdniCParameters.class) != null
+                && capability.getAugmentation(SdniCParameters.class).getSdniCompressionCapability() != null;
+    }
+}
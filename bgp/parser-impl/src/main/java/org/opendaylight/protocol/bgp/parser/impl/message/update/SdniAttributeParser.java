@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.parser.impl.message.update;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.opendaylight.protocol.bgp.parser.BGPParsingException;
+import org.opendaylight.protocol.bgp.parser.spi.AttributeParser;
+import org.opendaylight.protocol.bgp.parser.spi.AttributeUtil;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniWrapper;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.path.attributes.AttributesBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The optional transitive attribute carrying SDNi data, as sub-TLVs of a
+ * one-byte type and a two-byte length. Each sub-TLV is handed to the
+ * {@link SdniWrapper} handler of its type, unknown types are skipped. It is
+ * serialized by the UPDATE serializer rather than from the Attributes model.
+ */
+public final class SdniAttributeParser implements AttributeParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniAttributeParser.class);
+
+    // https://tools.ietf.org/html/rfc2042, reserved for development
+    public static final int TYPE = 255;
+
+    /** An SDNi advertisement, TLV or JSON and possibly compressed. */
+    public static final int ADVERTISEMENT = 1;
+    /** A fragment of an SDNi advertisement too long for one UPDATE. */
+    public static final int FRAGMENT = 2;
+
+    private static final int SUB_TLV_HEADER_LENGTH = 3;
+
+    /** Flags, type and extended length of the attribute, then the sub-TLV header. */
+    public static final int HEADER_LENGTH = 4 + SUB_TLV_HEADER_LENGTH;
+
+    private final SdniWrapper sdniwrapper = SdniWrapper.getInstance();
+
+    @Override
+    public void parseAttribute(final ByteBuf buffer, final AttributesBuilder builder) throws BGPParsingException {
+        while (buffer.isReadable()) {
+            if (buffer.readableBytes() < SUB_TLV_HEADER_LENGTH) {
+                throw new BGPParsingException("Truncated SDNi sub-TLV header: " + buffer.readableBytes() + " bytes");
+            }
+            final int type = buffer.readUnsignedByte();
+            final int length = buffer.readUnsignedShort();
+            if (length > buffer.readableBytes()) {
+                throw new BGPParsingException("SDNi sub-TLV " + type + " of " + length + " bytes exceeds the "
+                        + buffer.readableBytes() + " bytes left");
+            }
+            final ByteBuf value = buffer.readSlice(length);
+            switch (type) {
+            case ADVERTISEMENT:
+                this.sdniwrapper.parseSDNIAdvertisement(value);
+                break;
+            case FRAGMENT:
+                this.sdniwrapper.parseSDNIFragment(value);
+                break;
+            default:
+                LOG.debug("Skipping unknown SDNi sub-TLV {} of {} bytes", type, length);
+            }
+        }
+    }
+
+    /**
+     * Write an attribute holding the readable bytes of the value as one
+     * sub-TLV of the given type, consuming them.
+     */
+    public static void serializeSdniAttribute(final int type, final ByteBuf value, final ByteBuf byteAggregator) {
+        final ByteBuf subTlv = Unpooled.buffer(SUB_TLV_HEADER_LENGTH + value.readableBytes());
+        subTlv.writeByte(type);
+        subTlv.writeShort(value.readableBytes());
+        subTlv.writeBytes(value);
+        AttributeUtil.formatAttribute(AttributeUtil.OPTIONAL | AttributeUtil.TRANSITIVE, TYPE, subTlv, byteAggregator);
+    }
+}
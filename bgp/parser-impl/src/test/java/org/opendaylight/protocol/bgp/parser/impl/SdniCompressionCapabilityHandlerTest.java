@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.protocol.bgp.parser.impl;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+import org.opendaylight.protocol.bgp.parser.BGPDocumentedException;
+import org.opendaylight.protocol.bgp.parser.BGPParsingException;
+import org.opendaylight.protocol.bgp.parser.BgpExtendedMessageUtil;
+import org.opendaylight.protocol.bgp.parser.impl.message.open.SdniCompressionCapabilityHandler;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.BgpParameters;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.BgpParametersBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.bgp.parameters.OptionalCapabilities;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.open.message.bgp.parameters.OptionalCapabilitiesBuilder;
+
+public class SdniCompressionCapabilityHandlerTest {
+
+    @Test
+    public void testSdniCompressionCapabilityHandler() throws BGPDocumentedException, BGPParsingException {
+        final SdniCompressionCapabilityHandler handler = new SdniCompressionCapabilityHandler();
+
+        final byte[] capabilityBytes = {(byte) 0xd1, (byte) 0x00};
+
+        final ByteBuf buffer = Unpooled.buffer(capabilityBytes.length);
+        handler.serializeCapability(SdniCompressionCapabilityHandler.SDNI_COMPRESSION_CAPABILITY, buffer);
+        Assert.assertArrayEquals(capabilityBytes, buffer.array());
+        Assert.assertEquals(SdniCompressionCapabilityHandler.SDNI_COMPRESSION_CAPABILITY,
+                handler.parseCapability(Unpooled.wrappedBuffer(capabilityBytes)));
+
+        buffer.clear();
+        handler.serializeCapability(BgpExtendedMessageUtil.EXTENDED_MESSAGE_CAPABILITY, buffer);
+        Assert.assertFalse(buffer.isReadable());
+    }
+
+    @Test
+    public void testAdvertized() {
+        final OptionalCapabilities extended = new OptionalCapabilitiesBuilder()
+                .setCParameters(BgpExtendedMessageUtil.EXTENDED_MESSAGE_CAPABILITY).build();
+        final OptionalCapabilities sdni = new OptionalCapabilitiesBuilder()
+                .setCParameters(SdniCompressionCapabilityHandler.SDNI_COMPRESSION_CAPABILITY).build();
+        final BgpParameters without = new BgpParametersBuilder().setOptionalCapabilities(Lists.newArrayList(extended)).build();
+        final BgpParameters with = new BgpParametersBuilder().setOptionalCapabilities(Lists.newArrayList(extended, sdni)).build();
+
+        Assert.assertFalse(SdniCompressionCapabilityHandler.advertizedSdniCompressionCapability(null));
+        Assert.assertFalse(SdniCompressionCapabilityHandler.advertizedSdniCompressionCapability(Lists.newArrayList(without)));
+        Assert.assertTrue(SdniCompressionCapabilityHandler.advertizedSdniCompressionCapability(Lists.newArrayList(without, with)));
+    }
+}
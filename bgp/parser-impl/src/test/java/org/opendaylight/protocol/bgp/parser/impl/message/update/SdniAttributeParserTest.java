@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.parser.impl.message.update;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.opendaylight.protocol.bgp.parser.BGPDocumentedException;
+import org.opendaylight.protocol.bgp.parser.BGPParsingException;
+import org.opendaylight.protocol.bgp.parser.spi.pojo.ServiceLoaderBGPExtensionProviderContext;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.path.attributes.Attributes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.path.attributes.AttributesBuilder;
+
+public final class SdniAttributeParserTest {
+
+    private final SdniAttributeParser parser = new SdniAttributeParser();
+
+    @Test
+    public void testSerialize() {
+        final ByteBuf buffer = Unpooled.buffer();
+        SdniAttributeParser.serializeSdniAttribute(SdniAttributeParser.ADVERTISEMENT, Unpooled.copiedBuffer(new byte[] { 1, 2, 3 }), buffer);
+        assertArrayEquals(new byte[] { (byte) 0xc0, (byte) 0xff, 6, 1, 0, 3, 1, 2, 3 }, ByteBufUtil.getBytes(buffer));
+
+        buffer.clear();
+        SdniAttributeParser.serializeSdniAttribute(SdniAttributeParser.FRAGMENT, Unpooled.copiedBuffer(new byte[300]), buffer);
+        // extended length
+        assertEquals(0xd0, buffer.readUnsignedByte());
+        assertEquals(SdniAttributeParser.TYPE, buffer.readUnsignedByte());
+        assertEquals(303, buffer.readUnsignedShort());
+        assertEquals(SdniAttributeParser.FRAGMENT, buffer.readUnsignedByte());
+        assertEquals(300, buffer.readUnsignedShort());
+        assertEquals(300, buffer.readableBytes());
+    }
+
+    @Test
+    public void testUnknownSubTlvSkipped() throws BGPParsingException {
+        final ByteBuf buffer = Unpooled.copiedBuffer(new byte[] { 9, 0, 2, (byte) 0xaa, (byte) 0xbb });
+        this.parser.parseAttribute(buffer, new AttributesBuilder());
+        assertFalse(buffer.isReadable());
+    }
+
+    @Test(expected = BGPParsingException.class)
+    public void testTruncatedSubTlv() throws BGPParsingException {
+        this.parser.parseAttribute(Unpooled.copiedBuffer(new byte[] { 1, 0, 5, 1 }), new AttributesBuilder());
+    }
+
+    @Test
+    public void testRegistered() throws BGPDocumentedException, BGPParsingException {
+        final ByteBuf buffer = Unpooled.buffer();
+        SdniAttributeParser.serializeSdniAttribute(9, Unpooled.copiedBuffer(new byte[] { 1 }), buffer);
+        final Attributes attributes = ServiceLoaderBGPExtensionProviderContext.getSingletonInstance().getAttributeRegistry()
+                .parseAttributes(buffer);
+        assertTrue(attributes.getUnrecognizedAttributes() == null || attributes.getUnrecognizedAttributes().isEmpty());
+    }
+}
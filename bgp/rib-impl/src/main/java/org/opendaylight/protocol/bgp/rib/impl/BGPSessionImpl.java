@@ -14,6 +14,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -26,6 +27,8 @@ import java.nio.channels.NonWritableChannelException;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.concurrent.GuardedBy;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.BgpSessionState;
@@ -34,6 +37,7 @@ import org.opendaylight.protocol.bgp.parser.BGPDocumentedException;
 import org.opendaylight.protocol.bgp.parser.BGPError;
 import org.opendaylight.protocol.bgp.parser.BgpExtendedMessageUtil;
 import org.opendaylight.protocol.bgp.parser.BgpTableTypeImpl;
+import org.opendaylight.protocol.bgp.parser.impl.message.open.SdniCompressionCapabilityHandler;
 import org.opendaylight.protocol.bgp.parser.spi.MultiPathSupport;
 import org.opendaylight.protocol.bgp.parser.spi.pojo.MultiPathSupportImpl;
 import org.opendaylight.protocol.bgp.rib.impl.spi.BGPPeerRegistry;
@@ -43,6 +47,9 @@ import org.opendaylight.protocol.bgp.rib.impl.stats.peer.BGPSessionStatsImpl;
 import org.opendaylight.protocol.bgp.rib.spi.BGPSession;
 import org.opendaylight.protocol.bgp.rib.spi.BGPSessionListener;
 import org.opendaylight.protocol.bgp.rib.spi.BGPTerminationReason;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniAdvertisementListener;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniSchedule;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniWrapper;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.AsNumber;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.Keepalive;
@@ -132,9 +139,48 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
 
     private BGPSessionStatsImpl sessionStats;
 
+    /** Both sides advertised the SDNi compression capability. */
+    private boolean sdniCompression = false;
+
+    /** Both sides advertised the extended message capability, SDNi bodies may fill 65535-byte messages. */
+    private boolean sdniExtendedMessage = false;
+
+    /** The next SDNi UPDATE, sent on its own schedule rather than with the keepalives. */
+    @GuardedBy("this")
+    private ScheduledFuture<?> sdniTimer = null;
+
+    /**
+     * System.nanoTime value about when was sent the last SDNi UPDATE.
+     */
+    @GuardedBy("this")
+    private long lastSdniSentAt = System.nanoTime();
+
+    /**
+     * An SDNi UPDATE came due while the channel was not writable. It is sent once the channel is writable again, with
+     * the advertisement of that time, so that SDNi UPDATEs do not pile up in the outbound buffer of a slow peer.
+     */
+    @GuardedBy("this")
+    private boolean sdniPending = false;
+
+    private final SdniAdvertisementListener sdniListener = new SdniAdvertisementListener() {
+        @Override
+        public void onAdvertisementChanged() {
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    handleSdniChange();
+                }
+            });
+        }
+    };
+
     public BGPSessionImpl(final BGPSessionListener listener, final Channel channel, final Open remoteOpen, final BGPSessionPreferences localPreferences,
             final BGPPeerRegistry peerRegistry) {
         this(listener, channel, remoteOpen, localPreferences.getHoldTime(), peerRegistry);
+        this.sdniCompression = SdniCompressionCapabilityHandler.advertizedSdniCompressionCapability(remoteOpen.getBgpParameters())
+                && SdniCompressionCapabilityHandler.advertizedSdniCompressionCapability(localPreferences.getParams());
+        this.sdniExtendedMessage = BgpExtendedMessageUtil.advertizedBgpExtendedMessageCapability(remoteOpen)
+                && advertizedBgpExtendedMessageCapability(localPreferences.getParams());
         this.sessionStats = new BGPSessionStatsImpl(this, remoteOpen, this.holdTimerValue, this.keepAlive, channel, Optional.of(localPreferences), this.tableTypes, this.addPathTypes);
     }
 
@@ -209,6 +255,23 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
                 this.tableTypes, this.addPathTypes);
     }
 
+    private static boolean advertizedBgpExtendedMessageCapability(final List<BgpParameters> parameters) {
+        if (parameters == null) {
+            return false;
+        }
+        for (final BgpParameters param : parameters) {
+            if (param.getOptionalCapabilities() == null) {
+                continue;
+            }
+            for (final OptionalCapabilities optCapa : param.getOptionalCapabilities()) {
+                if (optCapa.getCParameters() != null && optCapa.getCParameters().getBgpExtendedMessageCapability() != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public synchronized void close() {
         if (this.state != State.IDLE) {
@@ -303,6 +366,18 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
     private synchronized void closeWithoutMessage() {
         LOG.info("Closing session: {}", this);
         removePeerSession();
+        if (this.state == State.UP) {
+            SdniWrapper.getInstance().removeAdvertisementListener(this.sdniListener);
+            SdniWrapper.getInstance().sessionDown(this.sdniCompression, this.sdniExtendedMessage);
+        }
+        if (this.sdniTimer != null) {
+            this.sdniTimer.cancel(false);
+            this.sdniTimer = null;
+        }
+        if (this.sdniPending) {
+            this.sdniPending = false;
+            this.sessionStats.updateSdniDropped();
+        }
         this.channel.close().addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(final ChannelFuture future) throws Exception {
@@ -380,8 +455,6 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
 
         if (ct >= nextKeepalive) {
             this.writeAndFlush(KEEP_ALIVE);
-            // Send Update message with sdni message
-            this.writeAndFlush(UPDATE);
             nextKeepalive = this.lastMessageSentAt + TimeUnit.SECONDS.toNanos(this.keepAlive);
             this.sessionStats.updateSentMsgKA();
         }
@@ -393,6 +466,84 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
         }, nextKeepalive - ct, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Sends the SDNi UPDATE and schedules the next one. SDNi UPDATEs follow the {@link SdniSchedule} of the
+     * SdniWrapper rather than the KeepAlive Timer, so that their rate does not depend on the hold timer and keepalives
+     * are never held behind them. If the session is no longer up, nothing is sent nor rescheduled.
+     */
+    private synchronized void handleSdniTimer() {
+        if (this.state != State.UP) {
+            return;
+        }
+        sendSdniUpdate();
+        scheduleSdniTimer(SdniWrapper.getInstance().getSchedule().nextDelayMillis(ThreadLocalRandom.current()));
+    }
+
+    /**
+     * Sends the SDNi UPDATE if the channel is writable. Otherwise it is left pending, replacing and dropping the one
+     * pending, if any. Nothing is sent while there is no SDNi advertisement built yet: an empty UPDATE would be taken
+     * for an IPv4 unicast End-of-RIB.
+     */
+    private void sendSdniUpdate() {
+        final ByteBuf payload = getSdniPayload();
+        try {
+            if (!payload.isReadable()) {
+                LOG.trace("Session {} has no SDNi advertisement to send", this);
+                return;
+            }
+        } finally {
+            payload.release();
+        }
+        if (!isWritable()) {
+            if (this.sdniPending) {
+                this.sessionStats.updateSdniDropped();
+            }
+            this.sdniPending = true;
+            LOG.debug("Session {} not writable, SDNi UPDATE held back", this);
+            return;
+        }
+        this.sdniPending = false;
+        this.writeAndFlush(UPDATE);
+        this.lastSdniSentAt = System.nanoTime();
+    }
+
+    /**
+     * The channel is writable again: sends the SDNi UPDATE held back meanwhile, if any.
+     */
+    synchronized void handleWritable() {
+        if (this.sdniPending && this.state == State.UP) {
+            sendSdniUpdate();
+        }
+    }
+
+    /**
+     * The SDNi advertisement changed with the local topology or statistics: brings the next SDNi UPDATE forward to
+     * the end of the minimum interval since the last one, unless it is due sooner.
+     */
+    private synchronized void handleSdniChange() {
+        if (this.state != State.UP) {
+            return;
+        }
+        final long sinceLast = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.lastSdniSentAt);
+        final long delay = SdniWrapper.getInstance().getSchedule().holdDownMillis(sinceLast);
+        if (this.sdniTimer != null) {
+            if (this.sdniTimer.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+                return;
+            }
+            this.sdniTimer.cancel(false);
+        }
+        scheduleSdniTimer(delay);
+    }
+
+    private void scheduleSdniTimer(final long delayMillis) {
+        this.sdniTimer = this.channel.eventLoop().schedule(new Runnable() {
+            @Override
+            public void run() {
+                handleSdniTimer();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public final String toString() {
         return addToStringAttributes(MoreObjects.toStringHelper(this)).toString();
@@ -417,6 +568,13 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
     protected synchronized void sessionUp() {
         this.sessionStats.startSessionStopwatch();
         this.state = State.UP;
+        // the new peer has no SDNi state yet, every session sends a full one until each has sent an SDNi UPDATE
+        final SdniSchedule schedule = SdniWrapper.getInstance().getSchedule();
+        SdniWrapper.getInstance().requestFullAdvertisement(2 * schedule.getMaxIntervalMillis());
+        SdniWrapper.getInstance().sessionUp(this.sdniCompression, this.sdniExtendedMessage);
+        // leave the shared advertisement the minimum interval to be built
+        scheduleSdniTimer(schedule.getMinIntervalMillis());
+        SdniWrapper.getInstance().addAdvertisementListener(this.sdniListener);
         this.listener.onSessionUp(this);
     }
 
@@ -443,6 +601,14 @@ public class BGPSessionImpl extends SimpleChannelInboundHandler<Notification> im
         this.channel.eventLoop().submit(task);
     }
 
+    /**
+     * @return the SDNi advertisement shared by the BGP sessions, empty if there is none yet; the caller releases it
+     */
+    @VisibleForTesting
+    protected ByteBuf getSdniPayload() {
+        return SdniWrapper.getInstance().getSDNIPayload();
+    }
+
     @VisibleForTesting
     protected synchronized void setLastMessageSentAt(final long lastMessageSentAt) {
         this.lastMessageSentAt = lastMessageSentAt;
@@ -76,6 +76,9 @@ public final class ChannelOutputLimiter extends ChannelInboundHandlerAdapter {
                 flush();
             }
         }
+        if (w) {
+            this.session.handleWritable();
+        }
 
         super.channelWritabilityChanged(ctx);
     }
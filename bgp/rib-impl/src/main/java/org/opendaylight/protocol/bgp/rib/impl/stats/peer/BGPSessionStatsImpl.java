@@ -34,6 +34,7 @@ import org.opendaylight.controller.config.yang.bgp.rib.impl.MessagesStats;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.Received;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.RemotePeerPreferences;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.RouteRefreshMsgs;
+import org.opendaylight.controller.config.yang.bgp.rib.impl.SdniDropped;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.Sent;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.TotalMsgs;
 import org.opendaylight.controller.config.yang.bgp.rib.impl.UpdateMsgs;
@@ -77,6 +78,7 @@ public final class BGPSessionStatsImpl implements BGPSessionStats {
     private final ErrorMsgs errMsgs = new ErrorMsgs();
     private final ErrorSentTotal errMsgsSentTotal = new ErrorSentTotal();
     private final ErrorReceivedTotal errMsgsRecvTotal = new ErrorReceivedTotal();
+    private final SdniDropped sdniDropped = new SdniDropped();
 
     public BGPSessionStatsImpl(@Nonnull final BGPSessionImpl session, @Nonnull final Open remoteOpen, final int holdTimerValue, final int keepAlive, @Nonnull final Channel channel,
         @Nonnull final Optional<BGPSessionPreferences> localPreferences, @Nonnull final Collection<BgpTableType> tableTypes, @Nonnull final List<AddressFamilies> addPathTypes) {
@@ -257,6 +259,7 @@ public final class BGPSessionStatsImpl implements BGPSessionStats {
         this.rrMsgs.setSent(newSentInstance());
         this.errMsgsSentTotal.setCount(new ZeroBasedCounter32(0L));
         this.errMsgsRecvTotal.setCount(new ZeroBasedCounter32(0L));
+        this.sdniDropped.setCount(new ZeroBasedCounter32(0L));
         this.errMsgs.getErrorSent().clear();
         this.errMsgs.getErrorReceived().clear();
     }
@@ -345,6 +348,11 @@ public final class BGPSessionStatsImpl implements BGPSessionStats {
         this.errMsgsSentTotal.setTimestamp(curTimestamp);
     }
 
+    public void updateSdniDropped() {
+        this.sdniDropped.setCount(new ZeroBasedCounter32(this.sdniDropped.getCount().getValue() + 1));
+        this.sdniDropped.setTimestamp(new Timestamp(StatisticsUtil.getCurrentTimestampInSeconds()));
+    }
+
     @Override
     public BgpSessionState getBgpSessionState() {
         final MessagesStats msgs = new MessagesStats();
@@ -353,6 +361,7 @@ public final class BGPSessionStatsImpl implements BGPSessionStats {
         msgs.setKeepAliveMsgs(this.kaMsgs);
         msgs.setUpdateMsgs(this.updMsgs);
         msgs.setRouteRefreshMsgs(this.rrMsgs);
+        msgs.setSdniDropped(this.sdniDropped);
         this.stats.setSessionDuration(StatisticsUtil.formatElapsedTime(this.sessionStopwatch.elapsed(TimeUnit.SECONDS)));
         this.stats.setSessionState(this.session.getState().toString());
         this.stats.setMessagesStats(msgs);
@@ -15,9 +15,12 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -29,6 +32,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -43,8 +47,11 @@ import org.opendaylight.protocol.bgp.parser.BGPDocumentedException;
 import org.opendaylight.protocol.bgp.parser.BGPError;
 import org.opendaylight.protocol.bgp.parser.BgpExtendedMessageUtil;
 import org.opendaylight.protocol.bgp.parser.BgpTableTypeImpl;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniSchedule;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniWrapper;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.AsNumber;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.Keepalive;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.KeepaliveBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.Notify;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.bgp.message.rev130919.NotifyBuilder;
@@ -95,6 +102,13 @@ public class BGPSessionImplTest {
 
     private SimpleSessionListener listener;
 
+    /** The tasks scheduled on the event loop by a session of {@link #newCapturedSession}, with their delays. */
+    private final List<Runnable> scheduled = Lists.newArrayList();
+    private final List<Long> delays = Lists.newArrayList();
+
+    /** The SDNi advertisement of a session of {@link #newCapturedSession}. */
+    private byte[] sdniPayload = new byte[] { 1 };
+
     @Before
     public void setUp() throws UnknownHostException {
         new EmbeddedChannel();
@@ -150,6 +164,11 @@ public class BGPSessionImplTest {
         this.bgpSession = new BGPSessionImpl(this.listener, this.speakerListener, this.classicOpen, this.classicOpen.getHoldTimer(), null);
     }
 
+    @After
+    public void tearDown() {
+        SdniWrapper.getInstance().setSchedule(SdniSchedule.DEFAULT);
+    }
+
     @Test
     public void testBGPSession() throws BGPDocumentedException {
         this.bgpSession.sessionUp();
@@ -256,4 +275,109 @@ public class BGPSessionImplTest {
         Assert.assertEquals(BGPError.HOLD_TIMER_EXPIRED.getSubcode(), error.getErrorSubcode().shortValue());
         Mockito.verify(this.speakerListener).close();
     }
+
+    @Test
+    public void testSdniUpdateSchedule() {
+        SdniWrapper.getInstance().setSchedule(new SdniSchedule(100, 400, 0));
+        final BGPSessionImpl session = newCapturedSession();
+        session.sessionUp();
+        // the first SDNi UPDATE is due after the minimum interval
+        final Runnable first = lastScheduled(100);
+        first.run();
+        Assert.assertEquals(1, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(0) instanceof Update);
+        // then every maximum interval, less no jitter
+        lastScheduled(400).run();
+        Assert.assertEquals(2, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(1) instanceof Update);
+
+        // the keepalive timer sends no SDNi UPDATE
+        session.setLastMessageSentAt(System.nanoTime() - TimeUnit.SECONDS.toNanos(HOLD_TIMER));
+        this.scheduled.get(1).run();
+        Assert.assertEquals(3, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(2) instanceof Keepalive);
+
+        session.close();
+        Assert.assertEquals(4, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(3) instanceof Notify);
+        // an SDNi timer due after close sends nothing and is not rescheduled
+        final int count = this.scheduled.size();
+        first.run();
+        Assert.assertEquals(4, this.receivedMsgs.size());
+        Assert.assertEquals(count, this.scheduled.size());
+    }
+
+    @Test
+    public void testSdniUpdateBackpressure() throws Exception {
+        SdniWrapper.getInstance().setSchedule(new SdniSchedule(200, 400, 0));
+        doReturn(false).when(this.speakerListener).isWritable();
+        final BGPSessionImpl session = newCapturedSession();
+        session.sessionUp();
+        lastScheduled(200).run();
+        lastScheduled(400).run();
+        // the second UPDATE replaced the one held back
+        Assert.assertTrue(this.receivedMsgs.isEmpty());
+        final BgpSessionState state = session.getBgpSessionState();
+        assertEquals(1, state.getMessagesStats().getSdniDropped().getCount().getValue().longValue());
+
+        doReturn(true).when(this.speakerListener).isWritable();
+        final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        doReturn(this.speakerListener).when(ctx).channel();
+        session.getLimiter().channelWritabilityChanged(ctx);
+        Assert.assertEquals(1, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(0) instanceof Update);
+        assertEquals(1, state.getMessagesStats().getSdniDropped().getCount().getValue().longValue());
+        session.close();
+    }
+
+    @Test
+    public void testSdniNothingToAdvertise() {
+        this.sdniPayload = new byte[0];
+        final BGPSessionImpl session = newCapturedSession();
+        session.sessionUp();
+        // no empty UPDATE, which would be an End-of-RIB, while the advertisement is not built
+        lastScheduled(SdniSchedule.DEFAULT_MIN_INTERVAL_MILLIS).run();
+        Assert.assertTrue(this.receivedMsgs.isEmpty());
+
+        this.sdniPayload = new byte[] { 1 };
+        lastScheduled(SdniSchedule.DEFAULT_MAX_INTERVAL_MILLIS - SdniSchedule.DEFAULT_MAX_INTERVAL_MILLIS
+                * SdniSchedule.DEFAULT_JITTER_PERCENT / 100, SdniSchedule.DEFAULT_MAX_INTERVAL_MILLIS).run();
+        Assert.assertEquals(1, this.receivedMsgs.size());
+        Assert.assertTrue(this.receivedMsgs.get(0) instanceof Update);
+        session.close();
+    }
+
+    /**
+     * @return a session whose timers are kept in {@link #scheduled} for the test to run, rather than run by the event
+     *         loop
+     */
+    private BGPSessionImpl newCapturedSession() {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                final long delay = (long) invocation.getArguments()[1];
+                final TimeUnit unit = (TimeUnit) invocation.getArguments()[2];
+                BGPSessionImplTest.this.scheduled.add((Runnable) invocation.getArguments()[0]);
+                BGPSessionImplTest.this.delays.add(unit.toMillis(delay));
+                return null;
+            }
+        }).when(this.eventLoop).schedule(Mockito.any(Runnable.class), Mockito.any(long.class), Mockito.any(TimeUnit.class));
+        return new BGPSessionImpl(this.listener, this.speakerListener, this.classicOpen, this.classicOpen.getHoldTimer(), null) {
+            @Override
+            protected ByteBuf getSdniPayload() {
+                return Unpooled.wrappedBuffer(BGPSessionImplTest.this.sdniPayload);
+            }
+        };
+    }
+
+    private Runnable lastScheduled(final long delayMillis) {
+        return lastScheduled(delayMillis, delayMillis);
+    }
+
+    private Runnable lastScheduled(final long minDelayMillis, final long maxDelayMillis) {
+        final int last = this.scheduled.size() - 1;
+        final long delay = this.delays.get(last);
+        assertTrue(delay + " ms", delay >= minDelayMillis && delay <= maxDelayMillis);
+        return this.scheduled.get(last);
+    }
 }
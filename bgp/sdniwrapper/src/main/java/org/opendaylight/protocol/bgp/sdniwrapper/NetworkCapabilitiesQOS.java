@@ -18,17 +18,17 @@ import javax.xml.bind.annotation.XmlRootElement;
 public class NetworkCapabilitiesQOS {
 
     @XmlElement
-    private String receivePackets;
+    private long receivePackets;
     @XmlElement
-    private String transmitPackets;
+    private long transmitPackets;
     @XmlElement
-    private String collisionCount;
+    private long collisionCount;
     @XmlElement
-    private String receiveFrameError;
+    private long receiveFrameError;
     @XmlElement
-    private String receiveOverRunError;
+    private long receiveOverRunError;
     @XmlElement
-    private String receiveCrcError;
+    private long receiveCrcError;
     @XmlElement
     private String node;
     @XmlElement
@@ -58,51 +58,51 @@ public class NetworkCapabilitiesQOS {
         this.bridgePort = bridgePort;
     }
     
-    public String getReceivePackets() {
+    public long getReceivePackets() {
         return receivePackets;
     }
 
-    public void setReceivePackets(String receivePackets) {
+    public void setReceivePackets(long receivePackets) {
         this.receivePackets = receivePackets;
     }
 
-    public String getTransmitPackets() {
+    public long getTransmitPackets() {
         return transmitPackets;
     }
 
-    public void setTransmitPackets(String transmitPackets) {
+    public void setTransmitPackets(long transmitPackets) {
         this.transmitPackets = transmitPackets;
     }
 
-    public String getCollisionCount() {
+    public long getCollisionCount() {
         return collisionCount;
     }
 
-    public void setCollisionCount(String collisionCount) {
+    public void setCollisionCount(long collisionCount) {
         this.collisionCount = collisionCount;
     }
 
-    public String getReceiveFrameError() {
+    public long getReceiveFrameError() {
         return receiveFrameError;
     }
 
-    public void setReceiveFrameError(String receiveFrameErrors) {
+    public void setReceiveFrameError(long receiveFrameErrors) {
         this.receiveFrameError = receiveFrameErrors;
     }
 
-    public String getReceiveOverRunError() {
+    public long getReceiveOverRunError() {
         return receiveOverRunError;
     }
 
-    public void setReceiveOverRunError(String receiveOverRunErrors) {
+    public void setReceiveOverRunError(long receiveOverRunErrors) {
         this.receiveOverRunError = receiveOverRunErrors;
     }
 
-    public String getReceiveCrcError() {
+    public long getReceiveCrcError() {
         return receiveCrcError;
     }
 
-    public void setReceiveCrcError(String receiveCrcErrors) {
+    public void setReceiveCrcError(long receiveCrcErrors) {
         this.receiveCrcError = receiveCrcErrors;
     }
 
@@ -129,12 +129,12 @@ public class NetworkCapabilitiesQOS {
         sb.append("\"controller\":\""+controller+"\"");
         sb.append(",\"node\":\""+node+"\"");
         sb.append(",\"port\":\""+port+"\"");
-        sb.append(",\"collisionCount\":\""+collisionCount+"\"");
-        sb.append(",\"receiveFrameError\":\""+receiveFrameError+"\"");
-        sb.append(",\"receiveOverRunError\":\""+receiveOverRunError+"\"");
-        sb.append(",\"receiveCrcError\":\""+receiveCrcError+"\"");
-        sb.append(",\"receivePackets\":\""+receivePackets+"\"");
-        sb.append(",\"transmitPackets\":\""+transmitPackets+"\"");
+        sb.append(",\"collisionCount\":"+collisionCount);
+        sb.append(",\"receiveFrameError\":"+receiveFrameError);
+        sb.append(",\"receiveOverRunError\":"+receiveOverRunError);
+        sb.append(",\"receiveCrcError\":"+receiveCrcError);
+        sb.append(",\"receivePackets\":"+receivePackets);
+        sb.append(",\"transmitPackets\":"+transmitPackets);
         sb.append(",\"bridgePort\":\""+bridgePort+"\"");
         sb.append("}");
 
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+/**
+ * A BGP session told when an SDNi advertisement following local changes is
+ * ready, registered with {@link SdniWrapper#addAdvertisementListener}.
+ */
+public interface SdniAdvertisementListener {
+
+    /**
+     * Called on the SDNi advertiser thread, so it must only schedule the
+     * SDNi UPDATE, within the minimum interval of the {@link SdniSchedule}.
+     */
+    void onAdvertisementChanged();
+}
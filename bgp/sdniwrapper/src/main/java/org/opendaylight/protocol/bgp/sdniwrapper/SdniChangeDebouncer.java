@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sdninterfaceapp.impl.SdniChangeNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the changes of the local topology and port statistics into SDNi
+ * advertisements.
+ *
+ * A topology change is advertised once the debounce window after it is over,
+ * together with every change seen meanwhile. Port statistics change with
+ * every poll of the switches, so their changes are advertised no more often
+ * than the maximum staleness, which bounds how old the advertised QoS
+ * counters get.
+ */
+final class SdniChangeDebouncer implements SdniChangeNotifier.Listener, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniChangeDebouncer.class);
+
+    static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+    static final long DEFAULT_MAX_STALENESS_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Runnable advertise;
+    private final ScheduledExecutorService executor;
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private long maxStalenessMillis = DEFAULT_MAX_STALENESS_MILLIS;
+
+    private ScheduledFuture<?> pending = null;
+    private long pendingAt = 0;
+    /** Bumped to discard the advertisement pending, if any. */
+    private long generation = 0;
+    private long lastAdvertisedAt = Long.MIN_VALUE / 2;
+
+    SdniChangeDebouncer(final Runnable advertise) {
+        this(advertise, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "sdni-change-debouncer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    SdniChangeDebouncer(final Runnable advertise, final ScheduledExecutorService executor) {
+        this.advertise = advertise;
+        this.executor = executor;
+    }
+
+    /**
+     * Set how long changes are gathered before being advertised, and how long
+     * statistics changes may wait at most.
+     */
+    synchronized void setWindows(final long debounceMillis, final long maxStalenessMillis) {
+        this.debounceMillis = debounceMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    @Override
+    public void onTopologyChanged() {
+        final long now = now();
+        synchronized (this) {
+            advertiseAt(now, now + debounceMillis);
+        }
+    }
+
+    @Override
+    public void onStatisticsChanged() {
+        final long now = now();
+        synchronized (this) {
+            advertiseAt(now, Math.max(now + debounceMillis, lastAdvertisedAt + maxStalenessMillis));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        discard();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Advertise at the given time, unless an advertisement is pending by then.
+     */
+    private void advertiseAt(final long now, final long at) {
+        if ( pending != null ) {
+            if ( pendingAt <= at ) {
+                return;
+            }
+            discard();
+        }
+        final long scheduled = ++generation;
+        try {
+            pending = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    fire(scheduled);
+                }
+            }, Math.max(0, at - now), TimeUnit.MILLISECONDS);
+            pendingAt = at;
+        } catch (RejectedExecutionException e) {
+            LOG.debug("SdniChangeDebouncer closed, not advertising", e);
+        }
+    }
+
+    private void fire(final long scheduled) {
+        synchronized (this) {
+            if ( scheduled != generation || pending == null ) {
+                return;
+            }
+            pending = null;
+            lastAdvertisedAt = now();
+        }
+        try {
+            advertise.run();
+        } catch (RuntimeException e) {
+            LOG.error("SdniChangeDebouncer: cannot advertise the changes", e);
+        }
+    }
+
+    private void discard() {
+        if ( pending != null ) {
+            pending.cancel(false);
+            pending = null;
+            generation++;
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
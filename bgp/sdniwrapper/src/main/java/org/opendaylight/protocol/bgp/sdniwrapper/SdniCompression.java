@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DEFLATE compression of whole SDNi UPDATE bodies, used with peers that
+ * negotiated the SDNi compression capability.
+ *
+ * A compressed body is the {@link #MAGIC} byte, the varint length of the
+ * original body and its raw DEFLATE stream. The original body is a TLV or
+ * JSON one, so the first byte tells the three apart.
+ */
+public final class SdniCompression {
+
+    public static final int MAGIC = 0xD2;
+
+    /** Bound of an inflated body, so a small stream cannot exhaust the heap. */
+    public static final int MAX_INFLATED_LENGTH = 16 * 1024 * 1024;
+
+    private static final int CHUNK = 4096;
+
+    private SdniCompression() {
+    }
+
+    /**
+     * @return true if the readable bytes of the buffer start a compressed body
+     */
+    public static boolean isCompressed(final ByteBuf buffer) {
+        return buffer.isReadable() && buffer.getUnsignedByte(buffer.readerIndex()) == MAGIC;
+    }
+
+    /**
+     * Compress the readable bytes of the body into the output, consuming them.
+     */
+    public static void compress(final ByteBuf body, final ByteBuf out) {
+        final byte[] input = new byte[body.readableBytes()];
+        body.readBytes(input);
+        out.writeByte(MAGIC);
+        SdniTlvCodec.writeVarint(input.length, out);
+
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            final byte[] chunk = new byte[CHUNK];
+            while ( !deflater.finished() ) {
+                out.writeBytes(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress a compressed body, consuming it.
+     *
+     * @return the original body
+     * @throws IllegalArgumentException if the body is malformed or inflates
+     *         beyond {@link #MAX_INFLATED_LENGTH}
+     */
+    public static ByteBuf decompress(final ByteBuf in) {
+        try {
+            if ( in.readUnsignedByte() != MAGIC ) {
+                throw new IllegalArgumentException("Not a compressed SDNi message");
+            }
+            final long length = SdniTlvCodec.readVarint(in);
+            if ( length > MAX_INFLATED_LENGTH ) {
+                throw new IllegalArgumentException("Compressed SDNi message too long: " + length);
+            }
+            final byte[] input = new byte[in.readableBytes()];
+            in.readBytes(input);
+            final byte[] output = new byte[(int) length];
+
+            final Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(input);
+                int inflated = 0;
+                while ( inflated < output.length && !inflater.finished() ) {
+                    final int n = inflater.inflate(output, inflated, output.length - inflated);
+                    if ( n == 0 && (inflater.needsInput() || inflater.needsDictionary()) ) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if ( inflated != output.length ) {
+                    throw new IllegalArgumentException("Truncated compressed SDNi message");
+                }
+            } finally {
+                inflater.end();
+            }
+            return Unpooled.wrappedBuffer(output);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed compressed SDNi message", e);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated compressed SDNi message", e);
+        }
+    }
+}
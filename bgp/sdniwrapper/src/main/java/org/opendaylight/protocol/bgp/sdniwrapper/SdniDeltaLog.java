@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The numbered advertisement state of the local controller.
+ *
+ * Every collected topology and QoS is compared with the last one; if any link
+ * or port changed the sequence number is incremented and the changed keys are
+ * kept for the last {@link #MAX_HISTORY} sequence numbers. A message based on
+ * a sequence number still in the history only holds the links and ports
+ * changed since, at their current value; any other base gets the full state.
+ */
+final class SdniDeltaLog {
+
+    static final int MAX_HISTORY = 64;
+
+    private final Set<String> links = new LinkedHashSet<String>();
+    private final Map<String, NetworkCapabilitiesQOS> ports = new LinkedHashMap<String, NetworkCapabilitiesQOS>();
+    /** The keys changed by each of the last sequence numbers, oldest first. */
+    private final Deque<Set<String>> history = new ArrayDeque<Set<String>>();
+    private String controller = null;
+    private boolean hasTopology = false;
+    private boolean hasQos = false;
+    private long sequence = 0;
+
+    /**
+     * Record the collected state and build the message to advertise it.
+     *
+     * @param topology the collected topology, null to keep the last one
+     * @param qosController the controller of the QoS ports, null to keep the
+     *        last ports
+     * @param qos the collected QoS ports
+     * @param base the sequence number acknowledged by every peer, 0 for a
+     *        full message
+     * @return the sequenced message, without acks
+     */
+    synchronized SdniMessage next(final NetworkCapabilities topology, final String qosController,
+            final List<NetworkCapabilitiesQOS> qos, final long base) {
+        final Set<String> changed = new HashSet<String>();
+        if ( topology != null ) {
+            controller = topology.getController();
+            hasTopology = true;
+            final Set<String> current = new LinkedHashSet<String>(topology.getLink());
+            for ( String link : links ) {
+                if ( !current.contains(link) ) {
+                    changed.add(linkKey(link));
+                }
+            }
+            for ( String link : current ) {
+                if ( !links.contains(link) ) {
+                    changed.add(linkKey(link));
+                }
+            }
+            links.clear();
+            links.addAll(current);
+        }
+        if ( qosController != null ) {
+            controller = qosController;
+            hasQos = true;
+            final Map<String, NetworkCapabilitiesQOS> current = new LinkedHashMap<String, NetworkCapabilitiesQOS>();
+            for ( NetworkCapabilitiesQOS port : qos ) {
+                final String key = portKey(port);
+                current.put(key, port);
+                if ( !sameCounters(port, ports.get(key)) ) {
+                    changed.add(key);
+                }
+            }
+            for ( String key : ports.keySet() ) {
+                if ( !current.containsKey(key) ) {
+                    changed.add(key);
+                }
+            }
+            ports.clear();
+            ports.putAll(current);
+        }
+        if ( !changed.isEmpty() || sequence == 0 ) {
+            sequence++;
+            history.addLast(changed);
+            if ( history.size() > MAX_HISTORY ) {
+                history.removeFirst();
+            }
+        }
+
+        if ( base <= 0 || base > sequence || sequence - base > history.size() ) {
+            return full();
+        }
+        final Set<String> keys = new HashSet<String>();
+        final Iterator<Set<String>> newest = history.descendingIterator();
+        for ( long s = sequence; s > base; s-- ) {
+            keys.addAll(newest.next());
+        }
+        return delta(base, keys);
+    }
+
+    /**
+     * @return the sequence number of the last recorded state
+     */
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    private SdniMessage full() {
+        final SdniMessage message = new SdniMessage();
+        message.setSequence(sequence, 0);
+        if ( hasTopology ) {
+            message.setTopology(topology(new ArrayList<String>(links)));
+        }
+        if ( hasQos ) {
+            message.setQos(controller, new ArrayList<NetworkCapabilitiesQOS>(ports.values()));
+        }
+        return message;
+    }
+
+    private SdniMessage delta(final long base, final Set<String> keys) {
+        final List<String> added = new ArrayList<String>();
+        final List<String> removedLinks = new ArrayList<String>();
+        final List<NetworkCapabilitiesQOS> changed = new ArrayList<NetworkCapabilitiesQOS>();
+        final List<NetworkCapabilitiesQOS> removedPorts = new ArrayList<NetworkCapabilitiesQOS>();
+        for ( String key : keys ) {
+            if ( key.startsWith("l:") ) {
+                final String link = key.substring(2);
+                if ( links.contains(link) ) {
+                    added.add(link);
+                } else {
+                    removedLinks.add(link);
+                }
+            } else {
+                final NetworkCapabilitiesQOS port = ports.get(key);
+                if ( port != null ) {
+                    changed.add(port);
+                } else {
+                    removedPorts.add(removedPort(key));
+                }
+            }
+        }
+        final SdniMessage message = new SdniMessage();
+        message.setSequence(sequence, base);
+        if ( hasTopology ) {
+            message.setTopology(topology(added));
+            message.setRemovedLinks(removedLinks);
+        }
+        if ( hasQos ) {
+            message.setQos(controller, changed);
+            message.setRemovedPorts(removedPorts);
+        }
+        return message;
+    }
+
+    private NetworkCapabilities topology(final List<String> links) {
+        final NetworkCapabilities topology = new NetworkCapabilities();
+        topology.setController(controller);
+        topology.setLink(links);
+        return topology;
+    }
+
+    private static String linkKey(final String link) {
+        return "l:" + link;
+    }
+
+    /**
+     * @return the key of the port: "p:", its node, a newline and its id
+     */
+    static String portKey(final NetworkCapabilitiesQOS port) {
+        return "p:" + port.getNode() + '\n' + port.getPort();
+    }
+
+    private static NetworkCapabilitiesQOS removedPort(final String key) {
+        final int newline = key.indexOf('\n');
+        final NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+        port.setNode(key.substring(2, newline));
+        port.setPort(key.substring(newline + 1));
+        return port;
+    }
+
+    private static boolean sameCounters(final NetworkCapabilitiesQOS a, final NetworkCapabilitiesQOS b) {
+        return b != null
+                && a.getCollisionCount() == b.getCollisionCount()
+                && a.getReceiveFrameError() == b.getReceiveFrameError()
+                && a.getReceiveOverRunError() == b.getReceiveOverRunError()
+                && a.getReceiveCrcError() == b.getReceiveCrcError()
+                && a.getReceivePackets() == b.getReceivePackets()
+                && a.getTransmitPackets() == b.getTransmitPackets()
+                && (a.getBridgePort() == null ? b.getBridgePort() == null : a.getBridgePort().equals(b.getBridgePort()));
+    }
+}
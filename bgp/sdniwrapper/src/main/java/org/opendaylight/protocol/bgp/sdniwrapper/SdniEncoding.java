@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+/**
+ * Wire encodings of the SDNi advertisements, selected by the encoding leaf of
+ * the sdniwrapper config module. Both are always accepted on receive.
+ */
+public enum SdniEncoding {
+
+    /** The original JSON text. */
+    JSON("json"),
+
+    /**
+     * The {@link SdniTlvCodec} binary format, sent once every peer has shown
+     * it accepts it and JSON until then.
+     */
+    TLV("tlv");
+
+    private final String configName;
+
+    SdniEncoding(final String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * @return the encoding with the given config name, or null if there is none
+     */
+    public static SdniEncoding forConfigName(final String configName) {
+        for ( SdniEncoding encoding : values() ) {
+            if ( encoding.configName.equals(configName) ) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splitting of SDNi UPDATE bodies too long for one BGP message.
+ *
+ * A fragment is the {@link #MAGIC} byte, the 8-byte id of the body, the
+ * 2-byte index of the fragment and the 2-byte fragment count followed by a
+ * slice of the body. Ids start at a random value, so the fragments of
+ * different senders do not mix at a receiver.
+ */
+public final class SdniFragments {
+
+    public static final int MAGIC = 0xD3;
+
+    public static final int HEADER_LENGTH = 13;
+
+    /** The maximum BGP message length, without and with the extended message capability. */
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+    public static final int EXTENDED_MAX_MESSAGE_LENGTH = 65535;
+
+    public static final int MAX_FRAGMENTS = 0xFFFF;
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(new SecureRandom().nextLong());
+
+    private SdniFragments() {
+    }
+
+    /**
+     * @return true if the readable bytes of the buffer start a fragment
+     */
+    public static boolean isFragment(final ByteBuf buffer) {
+        return buffer.isReadable() && buffer.getUnsignedByte(buffer.readerIndex()) == MAGIC;
+    }
+
+    /**
+     * Split the readable bytes of the body into fragments of at most the given
+     * length, consuming them.
+     *
+     * @throws IllegalArgumentException if the body needs more than
+     *         {@link #MAX_FRAGMENTS} fragments
+     */
+    public static List<ByteBuf> split(final ByteBuf body, final int maxFragmentLength) {
+        final int payload = maxFragmentLength - HEADER_LENGTH;
+        if ( payload <= 0 ) {
+            throw new IllegalArgumentException("SDNi fragments of " + maxFragmentLength + " bytes hold no data");
+        }
+        final int count = (body.readableBytes() + payload - 1) / payload;
+        if ( count > MAX_FRAGMENTS ) {
+            throw new IllegalArgumentException("SDNi message of " + body.readableBytes() + " bytes needs " + count
+                    + " fragments");
+        }
+        final long id = NEXT_ID.getAndIncrement();
+        final List<ByteBuf> fragments = new ArrayList<ByteBuf>(count);
+        for ( int index = 0; index < count; index++ ) {
+            final int length = Math.min(payload, body.readableBytes());
+            final ByteBuf fragment = Unpooled.buffer(HEADER_LENGTH + length);
+            fragment.writeByte(MAGIC);
+            fragment.writeLong(id);
+            fragment.writeShort(index);
+            fragment.writeShort(count);
+            fragment.writeBytes(body, length);
+            fragments.add(fragment);
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The peer states decoded from inbound SDNi messages, waiting to be stored.
+ *
+ * There is one slot per origin controller, holding only its newest topology
+ * and its newest QoS not stored yet: a newer state replaces the waiting one,
+ * which is never stored. A slot is drained by one worker at a time, so the
+ * states of a controller are stored in order while different controllers are
+ * stored in parallel, and a slow store for one does not hold up the BGP I/O
+ * threads nor the other controllers.
+ */
+final class SdniInboundMailbox implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniInboundMailbox.class);
+
+    static final int DEFAULT_WORKERS = 4;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+    interface Handler {
+        void storeTopology(NetworkCapabilities topology);
+
+        void storeQos(List<NetworkCapabilitiesQOS> qos, String controller);
+    }
+
+    private static final class Slot {
+        NetworkCapabilities topology = null;
+        List<NetworkCapabilitiesQOS> qos = null;
+        String qosController = null;
+    }
+
+    private final Handler handler;
+    private final ExecutorService workers;
+
+    /** The controllers with states waiting, each with a worker draining it. */
+    private final Map<String, Slot> slots = new HashMap<String, Slot>();
+
+    private long superseded = 0;
+
+    SdniInboundMailbox(final Handler handler, final int workers) {
+        this(handler, Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "sdni-inbound-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    SdniInboundMailbox(final Handler handler, final ExecutorService workers) {
+        this.handler = handler;
+        this.workers = workers;
+    }
+
+    /**
+     * Leave the state of a controller to be stored, replacing the sections of
+     * it still waiting.
+     *
+     * @param topology the full topology, or null if there is none
+     * @param qos the full QoS, or null if there is none
+     */
+    void post(final String controller, final NetworkCapabilities topology, final List<NetworkCapabilitiesQOS> qos,
+            final String qosController) {
+        synchronized (this) {
+            Slot slot = slots.get(controller);
+            final boolean idle = slot == null;
+            if ( idle ) {
+                slot = new Slot();
+                slots.put(controller, slot);
+            }
+            if ( topology != null ) {
+                if ( slot.topology != null ) {
+                    superseded++;
+                }
+                slot.topology = topology;
+            }
+            if ( qos != null ) {
+                if ( slot.qos != null ) {
+                    superseded++;
+                }
+                slot.qos = qos;
+                slot.qosController = qosController;
+            }
+            if ( !idle ) {
+                return;
+            }
+        }
+        schedule(controller);
+    }
+
+    /**
+     * @return how many waiting states were replaced by newer ones
+     */
+    synchronized long getSuperseded() {
+        return superseded;
+    }
+
+    /**
+     * Stop taking states and wait for the workers to store those waiting.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if ( !workers.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) ) {
+                LOG.warn("SdniInboundMailbox: states still being stored after {} ms", CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(final String controller) {
+        final Runnable drain = new Runnable() {
+            @Override
+            public void run() {
+                drain(controller);
+            }
+        };
+        try {
+            workers.execute(drain);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("SdniInboundMailbox closed, storing the state of {} inline", controller, e);
+            drain.run();
+        }
+    }
+
+    private void drain(final String controller) {
+        boolean drained = false;
+        try {
+            drained = drainSlot(controller);
+        } finally {
+            if ( !drained ) {
+                // an Error escaped the handler, the slot must not be left without a worker draining it
+                release(controller);
+            }
+        }
+    }
+
+    /**
+     * Give up draining the slot of a controller: remove it if nothing waits,
+     * otherwise leave it to another worker.
+     */
+    private void release(final String controller) {
+        synchronized (this) {
+            final Slot slot = slots.get(controller);
+            if ( slot.topology == null && slot.qos == null ) {
+                slots.remove(controller);
+                return;
+            }
+        }
+        schedule(controller);
+    }
+
+    /**
+     * @return true once the slot is empty and removed
+     */
+    private boolean drainSlot(final String controller) {
+        while ( true ) {
+            final NetworkCapabilities topology;
+            final List<NetworkCapabilitiesQOS> qos;
+            final String qosController;
+            synchronized (this) {
+                final Slot slot = slots.get(controller);
+                if ( slot.topology == null && slot.qos == null ) {
+                    slots.remove(controller);
+                    return true;
+                }
+                topology = slot.topology;
+                qos = slot.qos;
+                qosController = slot.qosController;
+                slot.topology = null;
+                slot.qos = null;
+            }
+            try {
+                if ( topology != null ) {
+                    handler.storeTopology(topology);
+                }
+                if ( qos != null ) {
+                    handler.storeQos(qos, qosController);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("SdniInboundMailbox: cannot store the state of {}", controller, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming codec of the JSON SDNi advertisements, generated straight into
+ * the UPDATE body and parsed straight from it, without intermediate Strings
+ * or DOM trees.
+ *
+ * The wire format is unchanged: a body holds
+ * {"TOPOoutput":{"controller":..,"links":[..]},"encodings":[..]} and
+ * {"QoSoutput":{"controller":..,"QoS":[{..},..]}} objects, each followed by
+ * ';'. Counters quoted by older peers are accepted, unknown members skipped.
+ * Sequenced messages add "seq", "base" and "removed" members to both objects
+ * and an "acks" object to the root of the first one.
+ */
+public final class SdniJsonCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private static final int SEPARATOR = ';';
+
+    private SdniJsonCodec() {
+    }
+
+    /**
+     * Write the whole message.
+     */
+    public static void write(final SdniMessage message, final ByteBuf out) throws IOException {
+        Map<String, Long> acks = message.getAcks();
+        if ( message.getTopology() != null ) {
+            writeTopology(message, message.getTopology(), acks, out);
+            acks = null;
+        }
+        if ( message.getQos() != null ) {
+            writeQos(message, message.getQosController(), message.getQos(), acks, out);
+        }
+    }
+
+    public static void writeTopology(final NetworkCapabilities topology, final ByteBuf out) throws IOException {
+        writeTopology(null, topology, null, out);
+    }
+
+    public static void writeQos(final String controller, final List<NetworkCapabilitiesQOS> ports, final ByteBuf out)
+            throws IOException {
+        writeQos(null, controller, ports, null, out);
+    }
+
+    private static void writeTopology(final SdniMessage message, final NetworkCapabilities topology,
+            final Map<String, Long> acks, final ByteBuf out) throws IOException {
+        final JsonGenerator generator = FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(out),
+                JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("TOPOoutput");
+        generator.writeStringField("controller", topology.getController());
+        generator.writeArrayFieldStart("links");
+        for ( String link : topology.getLink() ) {
+            generator.writeString(link);
+        }
+        generator.writeEndArray();
+        if ( message != null && message.getSequence() > 0 ) {
+            writeSequence(message, generator);
+            generator.writeArrayFieldStart("removed");
+            for ( String link : message.getRemovedLinks() ) {
+                generator.writeString(link);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        // tells the peer this node accepts TLV, older peers only read TOPOoutput
+        generator.writeArrayFieldStart("encodings");
+        generator.writeString(SdniEncoding.JSON.getConfigName());
+        generator.writeString(SdniEncoding.TLV.getConfigName());
+        generator.writeEndArray();
+        writeAcks(acks, generator);
+        generator.writeEndObject();
+        generator.close();
+        out.writeByte(SEPARATOR);
+    }
+
+    private static void writeQos(final SdniMessage message, final String controller,
+            final List<NetworkCapabilitiesQOS> ports, final Map<String, Long> acks, final ByteBuf out)
+            throws IOException {
+        final JsonGenerator generator = FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(out),
+                JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("QoSoutput");
+        generator.writeStringField("controller", controller);
+        generator.writeArrayFieldStart("QoS");
+        for ( NetworkCapabilitiesQOS port : ports ) {
+            generator.writeStartObject();
+            generator.writeStringField("controller", port.getController());
+            generator.writeStringField("node", port.getNode());
+            generator.writeStringField("port", port.getPort());
+            generator.writeNumberField("collisionCount", port.getCollisionCount());
+            generator.writeNumberField("receiveFrameError", port.getReceiveFrameError());
+            generator.writeNumberField("receiveOverRunError", port.getReceiveOverRunError());
+            generator.writeNumberField("receiveCrcError", port.getReceiveCrcError());
+            generator.writeNumberField("receivePackets", port.getReceivePackets());
+            generator.writeNumberField("transmitPackets", port.getTransmitPackets());
+            generator.writeStringField("bridgePort", port.getBridgePort());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        if ( message != null && message.getSequence() > 0 ) {
+            writeSequence(message, generator);
+            generator.writeArrayFieldStart("removed");
+            for ( NetworkCapabilitiesQOS port : message.getRemovedPorts() ) {
+                generator.writeStartObject();
+                generator.writeStringField("node", port.getNode());
+                generator.writeStringField("port", port.getPort());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        writeAcks(acks, generator);
+        generator.writeEndObject();
+        generator.close();
+        out.writeByte(SEPARATOR);
+    }
+
+    private static void writeSequence(final SdniMessage message, final JsonGenerator generator) throws IOException {
+        generator.writeNumberField("seq", message.getSequence());
+        generator.writeNumberField("base", message.getBase());
+    }
+
+    private static void writeAcks(final Map<String, Long> acks, final JsonGenerator generator) throws IOException {
+        if ( acks == null ) {
+            return;
+        }
+        generator.writeObjectFieldStart("acks");
+        for ( Map.Entry<String, Long> ack : acks.entrySet() ) {
+            generator.writeNumberField(ack.getKey(), ack.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read the JSON advertisements from the readable bytes of the buffer,
+     * consuming them.
+     *
+     * @throws IOException if the body is not well-formed
+     */
+    public static SdniMessage read(final ByteBuf in) throws IOException {
+        final SdniMessage message = new SdniMessage();
+        while ( skipSeparators(in) ) {
+            final JsonParser parser = FACTORY.createParser((InputStream) new ByteBufInputStream(in.duplicate()));
+            try {
+                if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+                    throw new IOException("Expected an SDNi JSON object at " + parser.getCurrentLocation());
+                }
+                readRoot(parser, message);
+                // the parser buffers ahead, its location is the end of the object
+                in.skipBytes((int) parser.getCurrentLocation().getByteOffset());
+            } finally {
+                parser.close();
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Skip the separators and whitespace between two objects.
+     *
+     * @return true if there is another object
+     */
+    private static boolean skipSeparators(final ByteBuf in) {
+        while ( in.isReadable() ) {
+            final int b = in.getUnsignedByte(in.readerIndex());
+            if ( b != SEPARATOR && !Character.isWhitespace(b) ) {
+                return true;
+            }
+            in.skipBytes(1);
+        }
+        return false;
+    }
+
+    private static void readRoot(final JsonParser parser, final SdniMessage message) throws IOException {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ( "TOPOoutput".equals(name) && value == JsonToken.START_OBJECT ) {
+                message.setTopology(readTopology(parser, message));
+            } else if ( "QoSoutput".equals(name) && value == JsonToken.START_OBJECT ) {
+                readQos(parser, message);
+            } else if ( "encodings".equals(name) && value == JsonToken.START_ARRAY ) {
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    if ( SdniEncoding.TLV.getConfigName().equals(parser.getValueAsString()) ) {
+                        message.setAcceptsTlv(true);
+                    }
+                    parser.skipChildren();
+                }
+            } else if ( "acks".equals(name) && value == JsonToken.START_OBJECT ) {
+                final Map<String, Long> acks = new LinkedHashMap<String, Long>();
+                while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                    final String origin = parser.getCurrentName();
+                    parser.nextToken();
+                    acks.put(origin, readCounter(parser));
+                }
+                message.setAcks(acks);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static NetworkCapabilities readTopology(final JsonParser parser, final SdniMessage message)
+            throws IOException {
+        final NetworkCapabilities topology = new NetworkCapabilities();
+        final List<String> links = new ArrayList<String>();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ( "controller".equals(name) ) {
+                topology.setController(parser.getValueAsString());
+            } else if ( "links".equals(name) && value == JsonToken.START_ARRAY ) {
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    links.add(parser.getValueAsString());
+                    parser.skipChildren();
+                }
+            } else if ( "removed".equals(name) && value == JsonToken.START_ARRAY ) {
+                final List<String> removed = new ArrayList<String>();
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    removed.add(parser.getValueAsString());
+                    parser.skipChildren();
+                }
+                message.setRemovedLinks(removed);
+            } else if ( !readSequence(name, parser, message) ) {
+                parser.skipChildren();
+            }
+        }
+        topology.setLink(links);
+        return topology;
+    }
+
+    private static void readQos(final JsonParser parser, final SdniMessage message) throws IOException {
+        String controller = null;
+        final List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ( "controller".equals(name) ) {
+                controller = parser.getValueAsString();
+            } else if ( "QoS".equals(name) && value == JsonToken.START_ARRAY ) {
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    if ( parser.getCurrentToken() == JsonToken.START_OBJECT ) {
+                        ports.add(readPort(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ( "removed".equals(name) && value == JsonToken.START_ARRAY ) {
+                final List<NetworkCapabilitiesQOS> removed = new ArrayList<NetworkCapabilitiesQOS>();
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    if ( parser.getCurrentToken() == JsonToken.START_OBJECT ) {
+                        removed.add(readPort(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                message.setRemovedPorts(removed);
+            } else if ( !readSequence(name, parser, message) ) {
+                parser.skipChildren();
+            }
+        }
+        for ( NetworkCapabilitiesQOS port : ports ) {
+            if ( port.getController() == null ) {
+                port.setController(controller);
+            }
+        }
+        message.setQos(controller, ports);
+    }
+
+    /**
+     * @return true if the member was the sequence or the base of the message
+     */
+    private static boolean readSequence(final String name, final JsonParser parser, final SdniMessage message)
+            throws IOException {
+        if ( "seq".equals(name) ) {
+            message.setSequence(readCounter(parser), message.getBase());
+        } else if ( "base".equals(name) ) {
+            message.setSequence(message.getSequence(), readCounter(parser));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static NetworkCapabilitiesQOS readPort(final JsonParser parser) throws IOException {
+        final NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch ( name ) {
+            case "controller":
+                port.setController(parser.getValueAsString());
+                break;
+            case "node":
+                port.setNode(parser.getValueAsString());
+                break;
+            case "port":
+                port.setPort(parser.getValueAsString());
+                break;
+            case "bridgePort":
+                port.setBridgePort(parser.getValueAsString());
+                break;
+            case "collisionCount":
+                port.setCollisionCount(readCounter(parser));
+                break;
+            case "receiveFrameError":
+                port.setReceiveFrameError(readCounter(parser));
+                break;
+            case "receiveOverRunError":
+                port.setReceiveOverRunError(readCounter(parser));
+                break;
+            case "receiveCrcError":
+                port.setReceiveCrcError(readCounter(parser));
+                break;
+            case "receivePackets":
+                port.setReceivePackets(readCounter(parser));
+                break;
+            case "transmitPackets":
+                port.setTransmitPackets(readCounter(parser));
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+        return port;
+    }
+
+    /**
+     * @return the counter, plain or quoted as older peers send it
+     */
+    private static long readCounter(final JsonParser parser) throws IOException {
+        if ( parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT ) {
+            return parser.getLongValue();
+        }
+        try {
+            return Long.parseLong(parser.getText().trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid SDNi counter at " + parser.getCurrentLocation(), e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The advertisements of one SDNi UPDATE body, as written and read by
+ * {@link SdniTlvCodec} and {@link SdniJsonCodec}; either may be absent.
+ *
+ * A sequenced message carries the state of its origin controller at
+ * {@link #getSequence()}. With a {@link #getBase() base} of 0 it is the full
+ * state. Otherwise it only holds what changed since the base: the links and
+ * ports are the added or changed ones, the removed ones are listed apart.
+ */
+public final class SdniMessage {
+
+    private NetworkCapabilities topology;
+    private List<String> removedLinks = Collections.emptyList();
+    private String qosController;
+    private List<NetworkCapabilitiesQOS> qos;
+    private List<NetworkCapabilitiesQOS> removedPorts = Collections.emptyList();
+    private long sequence;
+    private long base;
+    private Map<String, Long> acks;
+    private boolean acceptsTlv;
+
+    SdniMessage() {
+    }
+
+    /**
+     * @return the topology, or null if the message has none
+     */
+    public NetworkCapabilities getTopology() {
+        return topology;
+    }
+
+    void setTopology(final NetworkCapabilities topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * @return the links removed since the base, empty in a full message
+     */
+    public List<String> getRemovedLinks() {
+        return removedLinks;
+    }
+
+    void setRemovedLinks(final List<String> removedLinks) {
+        this.removedLinks = removedLinks;
+    }
+
+    /**
+     * @return the controller of the QoS ports, or null if the message has no
+     *         QoS
+     */
+    public String getQosController() {
+        return qosController;
+    }
+
+    /**
+     * @return the QoS ports, or null if the message has no QoS
+     */
+    public List<NetworkCapabilitiesQOS> getQos() {
+        return qos;
+    }
+
+    void setQos(final String controller, final List<NetworkCapabilitiesQOS> qos) {
+        this.qosController = controller;
+        this.qos = qos;
+    }
+
+    /**
+     * @return the node and port of the ports removed since the base, empty in
+     *         a full message
+     */
+    public List<NetworkCapabilitiesQOS> getRemovedPorts() {
+        return removedPorts;
+    }
+
+    void setRemovedPorts(final List<NetworkCapabilitiesQOS> removedPorts) {
+        this.removedPorts = removedPorts;
+    }
+
+    /**
+     * @return the controller the message comes from, or null if it is empty
+     */
+    public String getController() {
+        return topology != null ? topology.getController() : qosController;
+    }
+
+    /**
+     * @return the sequence number of the origin state, 0 if the sender does
+     *         not number its messages
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number the changes apply to, 0 for a full message
+     */
+    public long getBase() {
+        return base;
+    }
+
+    void setSequence(final long sequence, final long base) {
+        this.sequence = sequence;
+        this.base = base;
+    }
+
+    /**
+     * @return the sequence number the sender applied from each origin, 0 if
+     *         it needs a full message, or null if it does not take deltas
+     */
+    public Map<String, Long> getAcks() {
+        return acks;
+    }
+
+    void setAcks(final Map<String, Long> acks) {
+        this.acks = acks;
+    }
+
+    /**
+     * @return true if the sender accepts TLV advertisements
+     */
+    public boolean acceptsTlv() {
+        return acceptsTlv;
+    }
+
+    void setAcceptsTlv(final boolean acceptsTlv) {
+        this.acceptsTlv = acceptsTlv;
+    }
+}
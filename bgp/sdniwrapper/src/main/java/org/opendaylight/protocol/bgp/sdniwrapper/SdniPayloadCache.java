@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The SDNi UPDATE body shared by all BGP sessions.
+ *
+ * The body is built on a dedicated thread, so the BGP I/O threads asking for
+ * it never wait on the datastore: they get the last body built, or an empty
+ * one if there is none. While active the body is rebuilt every interval, and
+ * again as soon as it is asked for after {@link #invalidate}, or at once
+ * after {@link #rebuild}, the last body being shared until the new one is
+ * built. A build not done within the deadline is cancelled and nothing is
+ * advertised until the next one completes.
+ */
+final class SdniPayloadCache implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniPayloadCache.class);
+
+    static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    static final long DEFAULT_DEADLINE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    interface Builder {
+        /**
+         * @return the body, or null if there is nothing to advertise
+         */
+        ByteBuf build();
+    }
+
+    private final Builder builder;
+    private final ScheduledExecutorService executor;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private long deadlineMillis = DEFAULT_DEADLINE_MILLIS;
+    private ScheduledFuture<?> refresher = null;
+
+    private ByteBuf payload = null;
+    private long builtAt = 0;
+    /** The body is shared only until a new one is built. */
+    private boolean stale = false;
+    private Future<?> building = null;
+    private long buildStarted = 0;
+    /** Bumped to ignore the body of a discarded build. */
+    private long generation = 0;
+    /** Run once the next body is kept. */
+    private Runnable onBuilt = null;
+
+    SdniPayloadCache(final Builder builder) {
+        this(builder, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "sdni-advertiser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    SdniPayloadCache(final Builder builder, final ScheduledExecutorService executor) {
+        this.builder = builder;
+        this.executor = executor;
+    }
+
+    /**
+     * Set how long a body is shared, 0 to build one whenever it is asked
+     * for, and how long a build may take.
+     */
+    synchronized void setInterval(final long intervalMillis, final long deadlineMillis) {
+        this.intervalMillis = intervalMillis;
+        this.deadlineMillis = deadlineMillis;
+        invalidate();
+        if ( refresher != null ) {
+            setActive(false);
+            setActive(true);
+        }
+    }
+
+    /**
+     * Start or stop rebuilding the body every interval, which keeps a fresh
+     * body ready while BGP sessions are up.
+     */
+    synchronized void setActive(final boolean active) {
+        if ( !active ) {
+            if ( refresher != null ) {
+                refresher.cancel(false);
+                refresher = null;
+            }
+            return;
+        }
+        if ( refresher != null || intervalMillis <= 0 ) {
+            return;
+        }
+        try {
+            refresher = executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(System.currentTimeMillis());
+                }
+            }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("SdniPayloadCache closed, not refreshing", e);
+        }
+    }
+
+    /**
+     * @return a retained duplicate of the last body built, empty if there is
+     *         none or nothing to advertise, which the caller releases
+     */
+    synchronized ByteBuf get(final long now) {
+        refresh(now);
+        return payload != null ? payload.retainedDuplicate() : Unpooled.EMPTY_BUFFER;
+    }
+
+    /**
+     * Discard the build running, the next {@link #get} builds a new body and
+     * shares the last one until the new one is kept.
+     */
+    synchronized void invalidate() {
+        stale = true;
+        discard();
+    }
+
+    /**
+     * Build a new body at once, discarding the build running but sharing the
+     * last body until the new one is kept, then run the callback.
+     */
+    synchronized void rebuild(final long now, final Runnable onBuilt) {
+        this.onBuilt = onBuilt;
+        discard();
+        build(now);
+    }
+
+    @Override
+    public synchronized void close() {
+        setActive(false);
+        drop();
+        discard();
+        executor.shutdownNow();
+    }
+
+    private synchronized void refresh(final long now) {
+        if ( building != null ) {
+            if ( now - buildStarted < deadlineMillis ) {
+                return;
+            }
+            LOG.warn("SdniPayloadCache: SDNi advertisement not built within {} ms, skipping it", deadlineMillis);
+            drop();
+            discard();
+            return;
+        }
+        if ( payload == null || stale || now - builtAt >= intervalMillis || now < builtAt ) {
+            build(now);
+        }
+    }
+
+    private void build(final long now) {
+        final long started = ++generation;
+        try {
+            building = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    ByteBuf built = null;
+                    try {
+                        built = builder.build();
+                    } catch (RuntimeException e) {
+                        LOG.error("SdniPayloadCache: cannot build the SDNi advertisement", e);
+                    }
+                    final Runnable callback = complete(started, built, now);
+                    if ( callback != null ) {
+                        callback.run();
+                    }
+                }
+            });
+            buildStarted = now;
+        } catch (RejectedExecutionException e) {
+            LOG.debug("SdniPayloadCache closed, not building", e);
+        }
+    }
+
+    /**
+     * Keep the body if no build was started since, dating it from when its
+     * build started.
+     *
+     * @return the callback of {@link #rebuild} to run, if the body was kept
+     */
+    private synchronized Runnable complete(final long started, final ByteBuf built, final long now) {
+        if ( started != generation ) {
+            if ( built != null ) {
+                built.release();
+            }
+            return null;
+        }
+        building = null;
+        drop();
+        payload = built != null ? built : Unpooled.EMPTY_BUFFER;
+        builtAt = now;
+        stale = false;
+        final Runnable callback = onBuilt;
+        onBuilt = null;
+        return callback;
+    }
+
+    /**
+     * Interrupt the build running, if any, so that a hung build does not hold
+     * the advertiser thread, and ignore its body should it still complete.
+     */
+    private void discard() {
+        if ( building != null ) {
+            building.cancel(true);
+            building = null;
+            generation++;
+        }
+    }
+
+    private void drop() {
+        if ( payload != null ) {
+            payload.release();
+            payload = null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The sequence number and state applied from every peer controller.
+ *
+ * A full message replaces the state of its origin, a delta is merged into it
+ * if its base is not newer than the applied sequence number and it is newer
+ * itself. A delta based on a state this node never applied is a gap: the
+ * origin is acknowledged with 0 until its next full message.
+ */
+final class SdniPeerDeltas {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniPeerDeltas.class);
+
+    private static final class State {
+        long sequence = 0;
+        final Set<String> links = new LinkedHashSet<String>();
+        final Map<String, NetworkCapabilitiesQOS> ports = new LinkedHashMap<String, NetworkCapabilitiesQOS>();
+    }
+
+    private final Map<String, State> states = new HashMap<String, State>();
+
+    /**
+     * Apply a message of a peer.
+     *
+     * @return the message with the full state of the sections it carries, the
+     *         message itself if it is not sequenced, or null if it is a stale
+     *         delta or a delta that cannot be applied
+     */
+    synchronized SdniMessage apply(final SdniMessage message) {
+        final String origin = message.getController();
+        if ( message.getSequence() <= 0 || origin == null ) {
+            return message;
+        }
+        State state = states.get(origin);
+        if ( message.getBase() <= 0 ) {
+            // always applied, a restarted peer numbers its states from 1 again
+            if ( state == null ) {
+                state = new State();
+                states.put(origin, state);
+            }
+            if ( message.getTopology() != null ) {
+                state.links.clear();
+            }
+            if ( message.getQos() != null ) {
+                state.ports.clear();
+            }
+        } else if ( state == null || state.sequence < message.getBase() ) {
+            LOG.info("SdniPeerDeltas: gap from {}, delta {} on {}, applied {}, requesting a full state", origin,
+                    message.getSequence(), message.getBase(), state == null ? 0 : state.sequence);
+            if ( state != null ) {
+                state.sequence = 0;
+            }
+            return null;
+        } else if ( state.sequence >= message.getSequence() ) {
+            return null;
+        }
+
+        final SdniMessage applied = new SdniMessage();
+        applied.setSequence(message.getSequence(), 0);
+        if ( message.getTopology() != null ) {
+            state.links.removeAll(message.getRemovedLinks());
+            state.links.addAll(message.getTopology().getLink());
+            final NetworkCapabilities topology = new NetworkCapabilities();
+            topology.setController(origin);
+            topology.setLink(new ArrayList<String>(state.links));
+            applied.setTopology(topology);
+        }
+        if ( message.getQos() != null ) {
+            for ( NetworkCapabilitiesQOS port : message.getRemovedPorts() ) {
+                state.ports.remove(SdniDeltaLog.portKey(port));
+            }
+            for ( NetworkCapabilitiesQOS port : message.getQos() ) {
+                state.ports.put(SdniDeltaLog.portKey(port), port);
+            }
+            applied.setQos(message.getQosController(), new ArrayList<NetworkCapabilitiesQOS>(state.ports.values()));
+        }
+        state.sequence = message.getSequence();
+        return applied;
+    }
+
+    /**
+     * @return the applied sequence number of every peer, 0 for a peer whose
+     *         full state is needed
+     */
+    synchronized Map<String, Long> getAcks() {
+        final Map<String, Long> acks = new LinkedHashMap<String, Long>();
+        for ( Map.Entry<String, State> entry : states.entrySet() ) {
+            acks.put(entry.getKey(), entry.getValue().sequence);
+        }
+        return acks;
+    }
+
+    /**
+     * Forget the peers that are not in the given set, their next message must
+     * be a full one.
+     */
+    synchronized void retain(final Collection<String> controllers) {
+        states.keySet().retainAll(controllers);
+    }
+}
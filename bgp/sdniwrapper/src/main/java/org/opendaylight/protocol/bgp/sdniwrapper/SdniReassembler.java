@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reassembles the {@link SdniFragments fragments} of SDNi bodies.
+ *
+ * The fragments of incomplete bodies are held up to a total number of bytes,
+ * counting the slots kept for the fragments still to come; past it the
+ * oldest bodies are dropped. A body not completed within the
+ * timeout is dropped when the next fragment arrives. A dropped body is not
+ * recovered, the next advertisement of its sender replaces it.
+ */
+final class SdniReassembler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniReassembler.class);
+
+    static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    /** What is counted for the slot of each fragment of a body. */
+    private static final int SLOT_BYTES = 8;
+
+    private static final class Pending {
+        final ByteBuf[] fragments;
+        final long started;
+        int received = 0;
+        long bytes = 0;
+
+        Pending(final int count, final long started) {
+            this.fragments = new ByteBuf[count];
+            this.started = started;
+            this.bytes = (long) count * SLOT_BYTES;
+        }
+    }
+
+    /** The incomplete bodies by id, oldest first. */
+    private final Map<Long, Pending> pending = new LinkedHashMap<Long, Pending>();
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long bytes = 0;
+
+    synchronized void setLimits(final long timeoutMillis, final long maxBytes) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add a fragment, consuming it.
+     *
+     * @return the body if the fragment completed it, otherwise null
+     * @throws IllegalArgumentException if the fragment is malformed
+     */
+    synchronized ByteBuf add(final ByteBuf fragment, final long now) {
+        if ( fragment.readableBytes() < SdniFragments.HEADER_LENGTH
+                || fragment.readUnsignedByte() != SdniFragments.MAGIC ) {
+            throw new IllegalArgumentException("Malformed SDNi fragment");
+        }
+        final long id = fragment.readLong();
+        final int index = fragment.readUnsignedShort();
+        final int count = fragment.readUnsignedShort();
+        final int length = fragment.readableBytes();
+        if ( count == 0 || index >= count || length == 0 ) {
+            throw new IllegalArgumentException("Invalid SDNi fragment " + index + " of " + count);
+        }
+        // all fragments but the last are as long, the body cannot be longer than an inflated one
+        if ( (long) (count - 1) * length > SdniCompression.MAX_INFLATED_LENGTH ) {
+            throw new IllegalArgumentException("SDNi fragment " + index + " of " + count + " with " + length
+                    + " bytes exceeds " + SdniCompression.MAX_INFLATED_LENGTH + " bytes");
+        }
+        expire(now);
+
+        Pending body = pending.get(id);
+        if ( body == null ) {
+            body = new Pending(count, now);
+            pending.put(id, body);
+            bytes += body.bytes;
+        } else if ( body.fragments.length != count ) {
+            drop(id);
+            throw new IllegalArgumentException("SDNi fragment " + index + " of " + count + " does not match its "
+                    + body.fragments.length + " siblings");
+        }
+        if ( body.fragments[index] != null ) {
+            return null;
+        }
+        // the fragment is a slice of the inbound frame, released after parsing
+        body.fragments[index] = Unpooled.copiedBuffer(fragment);
+        fragment.skipBytes(length);
+        body.received++;
+        body.bytes += length;
+        bytes += length;
+
+        if ( body.received == count ) {
+            pending.remove(id);
+            bytes -= body.bytes;
+            return Unpooled.wrappedBuffer(body.fragments);
+        }
+        final Iterator<Map.Entry<Long, Pending>> oldest = pending.entrySet().iterator();
+        while ( bytes > maxBytes && oldest.hasNext() ) {
+            final Map.Entry<Long, Pending> entry = oldest.next();
+            LOG.warn("SdniReassembler: buffer full, dropping SDNi message {} with {} of {} fragments",
+                    entry.getKey(), entry.getValue().received, entry.getValue().fragments.length);
+            bytes -= entry.getValue().bytes;
+            oldest.remove();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of bytes held for incomplete bodies
+     */
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void expire(final long now) {
+        final Iterator<Map.Entry<Long, Pending>> oldest = pending.entrySet().iterator();
+        while ( oldest.hasNext() ) {
+            final Map.Entry<Long, Pending> entry = oldest.next();
+            if ( entry.getValue().started > now - timeoutMillis ) {
+                return;
+            }
+            LOG.warn("SdniReassembler: SDNi message {} timed out with {} of {} fragments", entry.getKey(),
+                    entry.getValue().received, entry.getValue().fragments.length);
+            bytes -= entry.getValue().bytes;
+            oldest.remove();
+        }
+    }
+
+    private void drop(final long id) {
+        final Pending body = pending.remove(id);
+        if ( body != null ) {
+            bytes -= body.bytes;
+        }
+    }
+}
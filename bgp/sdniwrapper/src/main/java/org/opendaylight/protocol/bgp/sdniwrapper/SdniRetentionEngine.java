@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014 Tata Consultancy Services.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sdninterfaceapp.impl.SdniStorage;
+import org.opendaylight.sdninterfaceapp.impl.SdniPeerStateStore;
+import org.opendaylight.sdninterfaceapp.impl.SdniSnapshotLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Expires the data of controllers that have not sent an update for longer
+ * than a time-to-live.
+ *
+ * Every update {@link #touch(String) touches} its controller. A task on a
+ * single scheduled thread periodically removes the controllers last seen
+ * before the TTL from the {@link SdniPeerStateStore} and deletes their rows
+ * by key, so no table catalog is ever scanned. They are also marked removed
+ * in the {@link SdniSnapshotLog}, if any, so a restart does not replay them. Closing the engine stops the
+ * task, which is started again by the next {@link #start}.
+ */
+public class SdniRetentionEngine implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniRetentionEngine.class);
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    /** History rows deleted per transaction when a controller expires. */
+    public static final int HISTORY_BATCH_SIZE = 500;
+
+    private final ConcurrentMap<String, Long> lastSeen = new ConcurrentHashMap<String, Long>();
+    private final SdniPeerStateStore peerStateStore;
+
+    private volatile SdniStorage storage = null;
+    private volatile SdniSnapshotLog snapshotLog = null;
+    private volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+    private ScheduledExecutorService executor = null;
+
+    public SdniRetentionEngine(SdniPeerStateStore peerStateStore) {
+        this.peerStateStore = peerStateStore;
+    }
+
+    /**
+     * Record that an update of the controller was just received.
+     */
+    public void touch(String controller) {
+        if ( controller != null && !controller.isEmpty() ) {
+            lastSeen.put(controller, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return the controllers that have not expired yet
+     */
+    public Set<String> getControllers() {
+        return new HashSet<String>(lastSeen.keySet());
+    }
+
+    /**
+     * (Re)start the expiry task on the given storage and snapshot log, which
+     * may be null. Controllers restored into the peer state store count as
+     * seen now, so persisted data of a peer that never comes back ages out
+     * after one TTL.
+     */
+    public synchronized void start(SdniStorage storage, SdniSnapshotLog snapshotLog, long ttlMillis,
+            long periodMillis) {
+        stop();
+        this.storage = storage;
+        this.snapshotLog = snapshotLog;
+        this.ttlMillis = ttlMillis;
+        final long now = System.currentTimeMillis();
+        for ( String controller : peerStateStore.getControllers() ) {
+            lastSeen.putIfAbsent(controller, now);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "sdni-retention");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    expire(System.currentTimeMillis());
+                } catch (RuntimeException e) {
+                    // keep the schedule alive, a failed run is retried next period
+                    LOG.error("SdniRetentionEngine: expiry failed", e);
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        LOG.info("SdniRetentionEngine started, ttl {} ms, period {} ms", ttlMillis, periodMillis);
+    }
+
+    /**
+     * Expire every controller last seen before now minus the TTL.
+     *
+     * @return the expired controllers
+     */
+    Set<String> expire(long now) {
+        final long cutoff = now - ttlMillis;
+        final Set<String> expired = new HashSet<String>();
+        for ( Map.Entry<String, Long> entry : lastSeen.entrySet() ) {
+            // remove(key, value) keeps a controller touched since the read
+            if ( entry.getValue() < cutoff && lastSeen.remove(entry.getKey(), entry.getValue()) ) {
+                expired.add(entry.getKey());
+            }
+        }
+        if ( expired.isEmpty() ) {
+            return expired;
+        }
+
+        LOG.info("SdniRetentionEngine: expiring controllers {}", expired);
+        peerStateStore.removeControllers(expired);
+        final SdniStorage current = storage;
+        if ( current != null ) {
+            current.expireControllers(expired, HISTORY_BATCH_SIZE);
+        }
+        final SdniSnapshotLog log = snapshotLog;
+        if ( log != null ) {
+            log.removeControllers(expired, now);
+        }
+        return expired;
+    }
+
+    private synchronized void stop() {
+        if ( executor == null ) {
+            return;
+        }
+        // let a running expiry finish its transaction
+        executor.shutdown();
+        try {
+            if ( !executor.awaitTermination(10, TimeUnit.SECONDS) ) {
+                LOG.warn("SdniRetentionEngine: expiry task did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        stop();
+        storage = null;
+        snapshotLog = null;
+    }
+}
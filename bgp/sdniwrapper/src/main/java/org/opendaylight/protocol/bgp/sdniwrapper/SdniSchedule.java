@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When each BGP session sends its SDNi UPDATE, independently of its
+ * keepalives. An UPDATE is sent at most every maximum interval, less a random
+ * jitter of up to the given percentage so that the sessions do not all send
+ * at once, and never sooner than the minimum interval after the previous one.
+ */
+public final class SdniSchedule {
+
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final int DEFAULT_JITTER_PERCENT = 25;
+
+    public static final SdniSchedule DEFAULT = new SdniSchedule(DEFAULT_MIN_INTERVAL_MILLIS,
+            DEFAULT_MAX_INTERVAL_MILLIS, DEFAULT_JITTER_PERCENT);
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final int jitterPercent;
+
+    public SdniSchedule(final long minIntervalMillis, final long maxIntervalMillis, final int jitterPercent) {
+        if ( minIntervalMillis < 0 || maxIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis ) {
+            throw new IllegalArgumentException("Bad SDNi UPDATE intervals: min " + minIntervalMillis + " ms, max "
+                    + maxIntervalMillis + " ms");
+        }
+        if ( jitterPercent < 0 || jitterPercent > 100 ) {
+            throw new IllegalArgumentException("SDNi UPDATE jitter not a percentage: " + jitterPercent);
+        }
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.jitterPercent = jitterPercent;
+    }
+
+    public long getMinIntervalMillis() {
+        return minIntervalMillis;
+    }
+
+    public long getMaxIntervalMillis() {
+        return maxIntervalMillis;
+    }
+
+    public int getJitterPercent() {
+        return jitterPercent;
+    }
+
+    /**
+     * @return the delay until the next periodic UPDATE, between the maximum
+     *         interval less the jitter and the maximum interval, and not
+     *         below the minimum interval
+     */
+    public long nextDelayMillis(final Random random) {
+        final long jitter = maxIntervalMillis * jitterPercent / 100;
+        final long delay = maxIntervalMillis - (jitter > 0 ? (long) (random.nextDouble() * (jitter + 1)) : 0);
+        return Math.max(minIntervalMillis, Math.min(delay, maxIntervalMillis));
+    }
+
+    /**
+     * @return how long an UPDATE wanted now must wait, the previous one having
+     *         been sent the given time ago
+     */
+    public long holdDownMillis(final long sinceLastMillis) {
+        return sinceLastMillis >= minIntervalMillis ? 0 : minIntervalMillis - Math.max(0, sinceLastMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "SdniSchedule [min=" + minIntervalMillis + "ms, max=" + maxIntervalMillis + "ms, jitter="
+                + jitterPercent + "%]";
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary TLV encoding of the SDNi topology and QoS advertisements, written
+ * straight into the UPDATE body and read straight from it.
+ *
+ * A message is the {@link #MAGIC} byte and a version byte followed by TLVs of
+ * a type byte, a 4-byte length and the value, so TLVs of unknown types are
+ * skipped. Inside a value, counters and lengths are unsigned LEB128 varints
+ * and strings are a varint of their UTF-8 length plus one (0 for null)
+ * followed by the bytes. The QoS ports are grouped by node so every node id
+ * is sent once. Sequenced messages add a sequence TLV, the acks of the sender
+ * and, in a delta, the removed links and ports.
+ *
+ * JSON messages start with '{', so the first byte tells the two apart.
+ */
+public final class SdniTlvCodec {
+
+    public static final int MAGIC = 0xD1;
+    public static final int VERSION = 1;
+
+    static final int TYPE_TOPOLOGY = 1;
+    static final int TYPE_QOS = 2;
+    static final int TYPE_SEQUENCE = 3;
+    static final int TYPE_ACKS = 4;
+    static final int TYPE_REMOVED_LINKS = 5;
+    static final int TYPE_REMOVED_PORTS = 6;
+
+    private SdniTlvCodec() {
+    }
+
+    /**
+     * @return true if the readable bytes of the buffer start a TLV message
+     */
+    public static boolean isTlv(final ByteBuf buffer) {
+        return buffer.isReadable() && buffer.getUnsignedByte(buffer.readerIndex()) == MAGIC;
+    }
+
+    /**
+     * Write the message header, to be followed by {@link #writeTopology} and
+     * {@link #writeQos}.
+     */
+    public static void writeHeader(final ByteBuf out) {
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Write the whole message, header included.
+     */
+    public static void write(final SdniMessage message, final ByteBuf out) {
+        writeHeader(out);
+        if ( message.getSequence() > 0 ) {
+            final int lengthIndex = startTlv(TYPE_SEQUENCE, out);
+            writeVarint(message.getSequence(), out);
+            writeVarint(message.getBase(), out);
+            endTlv(lengthIndex, out);
+        }
+        if ( message.getAcks() != null ) {
+            final int lengthIndex = startTlv(TYPE_ACKS, out);
+            writeVarint(message.getAcks().size(), out);
+            for ( Map.Entry<String, Long> ack : message.getAcks().entrySet() ) {
+                writeString(ack.getKey(), out);
+                writeVarint(ack.getValue(), out);
+            }
+            endTlv(lengthIndex, out);
+        }
+        if ( message.getTopology() != null ) {
+            writeTopology(message.getTopology(), out);
+        }
+        if ( !message.getRemovedLinks().isEmpty() ) {
+            final int lengthIndex = startTlv(TYPE_REMOVED_LINKS, out);
+            writeVarint(message.getRemovedLinks().size(), out);
+            for ( String link : message.getRemovedLinks() ) {
+                writeString(link, out);
+            }
+            endTlv(lengthIndex, out);
+        }
+        if ( message.getQos() != null ) {
+            writeQos(message.getQosController(), message.getQos(), out);
+        }
+        if ( !message.getRemovedPorts().isEmpty() ) {
+            final int lengthIndex = startTlv(TYPE_REMOVED_PORTS, out);
+            writeVarint(message.getRemovedPorts().size(), out);
+            for ( NetworkCapabilitiesQOS port : message.getRemovedPorts() ) {
+                writeString(port.getNode(), out);
+                writeString(port.getPort(), out);
+            }
+            endTlv(lengthIndex, out);
+        }
+    }
+
+    public static void writeTopology(final NetworkCapabilities topology, final ByteBuf out) {
+        final int lengthIndex = startTlv(TYPE_TOPOLOGY, out);
+        writeString(topology.getController(), out);
+        final List<String> links = topology.getLink();
+        writeVarint(links.size(), out);
+        for ( String link : links ) {
+            writeString(link, out);
+        }
+        endTlv(lengthIndex, out);
+    }
+
+    public static void writeQos(final String controller, final List<NetworkCapabilitiesQOS> ports, final ByteBuf out) {
+        final int lengthIndex = startTlv(TYPE_QOS, out);
+        writeString(controller, out);
+
+        // the ports come grouped by node, count the groups first
+        int nodes = 0;
+        String node = null;
+        for ( int i = 0; i < ports.size(); i++ ) {
+            if ( i == 0 || !equal(node, ports.get(i).getNode()) ) {
+                node = ports.get(i).getNode();
+                nodes++;
+            }
+        }
+        writeVarint(nodes, out);
+
+        int i = 0;
+        while ( i < ports.size() ) {
+            node = ports.get(i).getNode();
+            int end = i;
+            while ( end < ports.size() && equal(node, ports.get(end).getNode()) ) {
+                end++;
+            }
+            writeString(node, out);
+            writeVarint(end - i, out);
+            for ( ; i < end; i++ ) {
+                final NetworkCapabilitiesQOS port = ports.get(i);
+                writeString(port.getPort(), out);
+                writeString(port.getBridgePort(), out);
+                writeVarint(port.getCollisionCount(), out);
+                writeVarint(port.getReceiveFrameError(), out);
+                writeVarint(port.getReceiveOverRunError(), out);
+                writeVarint(port.getReceiveCrcError(), out);
+                writeVarint(port.getReceivePackets(), out);
+                writeVarint(port.getTransmitPackets(), out);
+            }
+        }
+        endTlv(lengthIndex, out);
+    }
+
+    /**
+     * Read a TLV message from the readable bytes of the buffer, consuming
+     * them.
+     *
+     * @throws IllegalArgumentException if the message is not a supported TLV
+     *         message or is truncated
+     */
+    public static SdniMessage read(final ByteBuf in) {
+        try {
+            if ( in.readUnsignedByte() != MAGIC ) {
+                throw new IllegalArgumentException("Not an SDNi TLV message");
+            }
+            final int version = in.readUnsignedByte();
+            if ( version != VERSION ) {
+                throw new IllegalArgumentException("Unsupported SDNi TLV version " + version);
+            }
+            final SdniMessage message = new SdniMessage();
+            message.setAcceptsTlv(true);
+            while ( in.isReadable() ) {
+                final int type = in.readUnsignedByte();
+                final int length = in.readInt();
+                if ( length < 0 || length > in.readableBytes() ) {
+                    throw new IllegalArgumentException("Invalid SDNi TLV length " + length);
+                }
+                final int end = in.readerIndex() + length;
+                if ( type == TYPE_TOPOLOGY ) {
+                    message.setTopology(readTopology(in));
+                } else if ( type == TYPE_QOS ) {
+                    readQos(in, message);
+                } else if ( type == TYPE_SEQUENCE ) {
+                    final long sequence = readVarint(in);
+                    message.setSequence(sequence, readVarint(in));
+                } else if ( type == TYPE_ACKS ) {
+                    message.setAcks(readAcks(in));
+                } else if ( type == TYPE_REMOVED_LINKS ) {
+                    message.setRemovedLinks(readRemovedLinks(in));
+                } else if ( type == TYPE_REMOVED_PORTS ) {
+                    message.setRemovedPorts(readRemovedPorts(in));
+                }
+                in.readerIndex(end);
+            }
+            return message;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated SDNi TLV message", e);
+        }
+    }
+
+    private static NetworkCapabilities readTopology(final ByteBuf in) {
+        final NetworkCapabilities topology = new NetworkCapabilities();
+        topology.setController(readString(in));
+        final int count = readCount(in);
+        final List<String> links = new ArrayList<String>(count);
+        for ( int i = 0; i < count; i++ ) {
+            links.add(readString(in));
+        }
+        topology.setLink(links);
+        return topology;
+    }
+
+    private static void readQos(final ByteBuf in, final SdniMessage message) {
+        final String controller = readString(in);
+        final List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>();
+        final int nodes = readCount(in);
+        for ( int n = 0; n < nodes; n++ ) {
+            final String node = readString(in);
+            final int count = readCount(in);
+            for ( int p = 0; p < count; p++ ) {
+                final NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+                port.setController(controller);
+                port.setNode(node);
+                port.setPort(readString(in));
+                port.setBridgePort(readString(in));
+                port.setCollisionCount(readVarint(in));
+                port.setReceiveFrameError(readVarint(in));
+                port.setReceiveOverRunError(readVarint(in));
+                port.setReceiveCrcError(readVarint(in));
+                port.setReceivePackets(readVarint(in));
+                port.setTransmitPackets(readVarint(in));
+                ports.add(port);
+            }
+        }
+        message.setQos(controller, ports);
+    }
+
+    private static Map<String, Long> readAcks(final ByteBuf in) {
+        final int count = readCount(in);
+        final Map<String, Long> acks = new LinkedHashMap<String, Long>();
+        for ( int i = 0; i < count; i++ ) {
+            final String origin = readString(in);
+            acks.put(origin, readVarint(in));
+        }
+        return acks;
+    }
+
+    private static List<String> readRemovedLinks(final ByteBuf in) {
+        final int count = readCount(in);
+        final List<String> links = new ArrayList<String>(count);
+        for ( int i = 0; i < count; i++ ) {
+            links.add(readString(in));
+        }
+        return links;
+    }
+
+    private static List<NetworkCapabilitiesQOS> readRemovedPorts(final ByteBuf in) {
+        final int count = readCount(in);
+        final List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>(count);
+        for ( int i = 0; i < count; i++ ) {
+            final NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+            port.setNode(readString(in));
+            port.setPort(readString(in));
+            ports.add(port);
+        }
+        return ports;
+    }
+
+    private static int startTlv(final int type, final ByteBuf out) {
+        out.writeByte(type);
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        return lengthIndex;
+    }
+
+    private static void endTlv(final int lengthIndex, final ByteBuf out) {
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    static void writeVarint(long value, final ByteBuf out) {
+        while ( (value & ~0x7FL) != 0 ) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(final ByteBuf in) {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 ) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed SDNi TLV varint");
+    }
+
+    private static int readCount(final ByteBuf in) {
+        final long count = readVarint(in);
+        // every element takes at least one byte
+        if ( count > in.readableBytes() ) {
+            throw new IllegalArgumentException("Invalid SDNi TLV count " + count);
+        }
+        return (int) count;
+    }
+
+    private static void writeString(final String value, final ByteBuf out) {
+        if ( value == null ) {
+            writeVarint(0, out);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1L, out);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(final ByteBuf in) {
+        final long length = readVarint(in) - 1;
+        if ( length < 0 ) {
+            return null;
+        }
+        if ( length > in.readableBytes() ) {
+            throw new IllegalArgumentException("Invalid SDNi TLV string length " + length);
+        }
+        final String value = in.toString(in.readerIndex(), (int) length, StandardCharsets.UTF_8);
+        in.skipBytes((int) length);
+        return value;
+    }
+
+    private static boolean equal(final String a, final String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -10,33 +10,30 @@ package org.opendaylight.protocol.bgp.sdniwrapper;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
-
-import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.swapper.rev151006.UntrustedControllerBuilder;
-
-
-
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
-import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.controller.sal.binding.api.NotificationProviderService;
+import org.opendaylight.sdninterfaceapp.impl.PortStatistics;
+import org.opendaylight.sdninterfaceapp.impl.SdniChangeNotifier;
+import org.opendaylight.sdninterfaceapp.impl.SdniConnectionManager;
+import org.opendaylight.sdninterfaceapp.impl.SdniDataBase;
+import org.opendaylight.sdninterfaceapp.impl.SdniStorage;
+import org.opendaylight.sdninterfaceapp.impl.SdniPeerStateStore;
+import org.opendaylight.sdninterfaceapp.impl.SdniQosHistory;
+import org.opendaylight.sdninterfaceapp.impl.SdniSnapshotLog;
+import org.opendaylight.sdninterfaceapp.impl.SdniTrustedControllers;
+import org.opendaylight.sdninterfaceapp.impl.SdniWriteBehindQueue;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.OpendaylightSdniQosMsgService;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.nodes.NodeList;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.topology.msg.rev151006.OpendaylightSdniTopologyMsgService;
@@ -57,32 +54,91 @@ public class SdniWrapper
 
     private static final Logger LOG = LoggerFactory.getLogger(SdniWrapper.class);
 
-    public static Map peer_information = new HashMap();
+    private static final Long NO_DELTAS = Long.valueOf(-1);
 
-    private static final String JDBC_DRIVER = "org.sqlite.JDBC";
     //   private static final String DB_URL = "jdbc:sqlite:/home/tcs/sdni/database/CONTROLLER_TOPOLOGY_DATABASE";
     //  private static final String QOS_DB_URL = "jdbc:sqlite:/home/tcs/sdni/database/CONTROLLER_QOS_DATABASE";
     private static SdniWrapper serviceObj = null;
     private RpcProviderRegistry rpcRegistryDependency;
     private NotificationProviderService notificationProvider;
     
-    private Set<String> aliveControllersList = new HashSet<String>();
+    private volatile SdniStorage storage = new SdniDataBase();
 
-    private Connection connection = null;
+    private SdniConnectionManager connectionManager = null;
 
-    {
-        Timer timer=new Timer();
-        timer.schedule(new CleanupDB(), 1000*60*5,1000*60*1);
-    }
-
-    private Connection getConnection() throws SQLException, ClassNotFoundException
-    {
-        if ( connection == null ) {
-            Class.forName("org.sqlite.JDBC", true, Thread.currentThread().getContextClassLoader());
-            connection = DriverManager.getConnection("jdbc:sqlite:sdninterfaceapp:db");
+    /** Reopens the storage when the sdninterfaceapp module selects another backend. */
+    private final Runnable reopenStorage = new Runnable() {
+        @Override
+        public void run() {
+            reopenStorage();
         }
-        return connection;
-    }
+    };
+
+    private final SdniPeerStateStore peerStateStore = SdniPeerStateStore.getInstance();
+
+    private final SdniRetentionEngine retention = new SdniRetentionEngine(peerStateStore);
+
+    private final SdniTrustedControllers trustedControllers = SdniTrustedControllers.getInstance();
+
+    private long peerTtlMillis = SdniRetentionEngine.DEFAULT_TTL_MILLIS;
+
+    private long retentionPeriodMillis = SdniRetentionEngine.DEFAULT_PERIOD_MILLIS;
+
+    private SdniWriteBehindQueue writeBehind = null;
+
+    private volatile int qosHistorySize = SdniQosHistory.DEFAULT_CAPACITY;
+
+    private volatile boolean persistQosHistory = false;
+
+    private String snapshotLogFile = "";
+
+    private volatile SdniSnapshotLog snapshotLog = null;
+
+    private volatile SdniEncoding encoding = SdniEncoding.TLV;
+
+    /** Whether each peer that advertised to us accepts TLV advertisements. */
+    private final ConcurrentMap<String, Boolean> peerAcceptsTlv = new ConcurrentHashMap<String, Boolean>();
+
+    private volatile boolean deltaAdvertisements = true;
+
+    private final SdniDeltaLog deltaLog = new SdniDeltaLog();
+
+    private final SdniPeerDeltas peerDeltas = new SdniPeerDeltas();
+
+    /** The sequence number of the local state each peer applied, {@link #NO_DELTAS} if it takes none. */
+    private final ConcurrentMap<String, Long> peerAcks = new ConcurrentHashMap<String, Long>();
+
+    private volatile String localController = null;
+
+    private volatile long fullAdvertisementsUntil = 0;
+
+    private volatile long compressionThreshold = 1024;
+
+    /**
+     * The BGP sessions up, and those of them without the SDNi compression or
+     * the extended message capability.
+     */
+    private int sessionsUp = 0;
+
+    private int sessionsWithoutCompression = 0;
+
+    private int sessionsWithoutExtendedMessage = 0;
+
+    private final SdniReassembler reassembler = new SdniReassembler();
+
+    private volatile SdniSchedule schedule = SdniSchedule.DEFAULT;
+
+    private volatile SdniPayloadCache advertisement = newAdvertisement();
+
+    private final List<SdniAdvertisementListener> advertisementListeners = new CopyOnWriteArrayList<SdniAdvertisementListener>();
+
+    private volatile SdniChangeDebouncer changes = newChanges();
+
+    private SdniChangeNotifier changeNotifier = null;
+
+    private int inboundWorkers = SdniInboundMailbox.DEFAULT_WORKERS;
+
+    private volatile SdniInboundMailbox inbound = newInbound(inboundWorkers);
 
     private SdniWrapper() {
 
@@ -107,14 +163,519 @@ public class SdniWrapper
     	notificationProvider = notificationProviderService;
     }
 
+    /**
+     * Set how many QoS samples are kept per peer port and whether they are
+     * persisted as well as held in memory.
+     */
+    public void setQosHistory(int size, boolean persist)
+    {
+        qosHistorySize = size;
+        persistQosHistory = persist;
+        peerStateStore.getQosHistory().setCapacity(size);
+    }
+
+    /**
+     * Set how long a controller's data is kept after its last update and how
+     * often expired controllers are looked for. Takes effect on the next
+     * {@link #setConnectionManager}.
+     */
+    public synchronized void setRetention(long ttlMillis, long periodMillis)
+    {
+        peerTtlMillis = ttlMillis;
+        retentionPeriodMillis = periodMillis;
+    }
+
+    /**
+     * Set the file of the {@link SdniSnapshotLog} the peer snapshots are
+     * appended to and replayed from at start-up; empty disables it. Takes
+     * effect on the next {@link #setConnectionManager}.
+     */
+    public synchronized void setSnapshotLog(String file)
+    {
+        snapshotLogFile = file == null ? "" : file;
+    }
+
+    /**
+     * Select the encoding of the advertisements sent by {@link #writeSDNIMessage}.
+     */
+    public void setEncoding(SdniEncoding encoding)
+    {
+        this.encoding = encoding;
+        advertisement.invalidate();
+    }
+
+    /**
+     * Set the size from which the advertisements are compressed, 0 to never
+     * compress them.
+     */
+    public void setCompressionThreshold(long threshold)
+    {
+        compressionThreshold = threshold;
+        advertisement.invalidate();
+    }
+
+    /**
+     * Count a BGP session that came up, and whether both sides advertised the
+     * SDNi compression and the extended message capabilities on it.
+     */
+    public synchronized void sessionUp(boolean compression, boolean extendedMessage)
+    {
+        sessionsUp++;
+        if ( !compression ) {
+            sessionsWithoutCompression++;
+        }
+        if ( !extendedMessage ) {
+            sessionsWithoutExtendedMessage++;
+        }
+        advertisement.invalidate();
+        advertisement.setActive(sessionsUp > 0);
+    }
+
+    /**
+     * Count a BGP session counted by {@link #sessionUp} that went down.
+     */
+    public synchronized void sessionDown(boolean compression, boolean extendedMessage)
+    {
+        sessionsUp--;
+        if ( !compression ) {
+            sessionsWithoutCompression--;
+        }
+        if ( !extendedMessage ) {
+            sessionsWithoutExtendedMessage--;
+        }
+        advertisement.invalidate();
+        advertisement.setActive(sessionsUp > 0);
+    }
+
+    /**
+     * @return the length of the BGP messages every session up accepts; longer
+     *         SDNi bodies are sent as {@link SdniFragments}
+     */
+    public synchronized int getMaxMessageLength()
+    {
+        return sessionsUp > 0 && sessionsWithoutExtendedMessage == 0 ? SdniFragments.EXTENDED_MAX_MESSAGE_LENGTH
+                : SdniFragments.MAX_MESSAGE_LENGTH;
+    }
+
+    /**
+     * Set how long the fragments of an SDNi body are kept waiting for the
+     * others, and how many bytes of incomplete bodies are kept at most.
+     */
+    public void setReassembly(long timeoutMillis, long maxBytes)
+    {
+        reassembler.setLimits(timeoutMillis, maxBytes);
+    }
+
+    /**
+     * The same UPDATE body goes to every session, so it is only compressed
+     * when all of them negotiated it.
+     */
+    private synchronized boolean useCompression()
+    {
+        return compressionThreshold > 0 && sessionsUp > 0 && sessionsWithoutCompression == 0;
+    }
+
+    /**
+     * Enable the delta advertisements, which only carry what changed since
+     * the state every live peer acknowledged.
+     */
+    public void setDeltaAdvertisements(boolean enabled)
+    {
+        deltaAdvertisements = enabled;
+        advertisement.invalidate();
+    }
+
+    /**
+     * Send full advertisements for the given time, so a new session gets the
+     * whole state whatever the other peers acknowledged.
+     */
+    public void requestFullAdvertisement(long windowMillis)
+    {
+        final long until = System.currentTimeMillis() + windowMillis;
+        if ( until > fullAdvertisementsUntil ) {
+            fullAdvertisementsUntil = until;
+        }
+        advertisement.invalidate();
+    }
+
+    /**
+     * Set how often the advertisement shared by the BGP sessions is rebuilt,
+     * 0 to rebuild it whenever a session sends it, and how long a rebuild may
+     * take before it is cancelled.
+     */
+    public void setAdvertisementInterval(long intervalMillis, long deadlineMillis)
+    {
+        advertisement.setInterval(intervalMillis, deadlineMillis);
+    }
+
+    /**
+     * Set when the BGP sessions send their SDNi UPDATEs, independently of
+     * their keepalives.
+     */
+    public void setSchedule(SdniSchedule schedule)
+    {
+        this.schedule = schedule;
+    }
+
+    public SdniSchedule getSchedule()
+    {
+        return schedule;
+    }
+
+    /**
+     * Build the next advertisement afresh, as the local topology or
+     * statistics changed.
+     */
+    public void invalidateAdvertisement()
+    {
+        advertisement.invalidate();
+    }
+
+    /**
+     * Subscribe to the local topology and statistics changes relayed by the
+     * notifier, null to unsubscribe.
+     */
+    public synchronized void setChangeNotifier(SdniChangeNotifier notifier)
+    {
+        if ( changeNotifier != null ) {
+            changeNotifier.setListener(null);
+        }
+        changeNotifier = notifier;
+        if ( notifier != null ) {
+            notifier.setListener(changes);
+        }
+    }
+
+    /**
+     * Set how long local changes are gathered before being advertised, and
+     * how long port statistics changes may wait at most.
+     */
+    public void setChangeWindows(long debounceMillis, long maxStalenessMillis)
+    {
+        changes.setWindows(debounceMillis, maxStalenessMillis);
+    }
+
+    public void addAdvertisementListener(SdniAdvertisementListener listener)
+    {
+        advertisementListeners.add(listener);
+    }
+
+    public void removeAdvertisementListener(SdniAdvertisementListener listener)
+    {
+        advertisementListeners.remove(listener);
+    }
+
+    /**
+     * Set how many threads store the peer states decoded from inbound SDNi
+     * messages, in parallel across peer controllers.
+     */
+    public void setInboundWorkers(int workers)
+    {
+        final SdniInboundMailbox previous;
+        synchronized (this) {
+            inboundWorkers = workers;
+            previous = inbound;
+            inbound = newInbound(workers);
+        }
+        // its workers store through this wrapper, they are not waited for holding it
+        previous.close();
+    }
+
+    /**
+     * Stop the threads debouncing the local changes, building the
+     * advertisement and storing the inbound states, the latter once the
+     * states waiting are stored, before the storage is released. They are
+     * replaced by new ones, which start no thread until used.
+     */
+    public void close()
+    {
+        final SdniChangeDebouncer previousChanges;
+        final SdniPayloadCache previousAdvertisement;
+        final SdniInboundMailbox previousInbound;
+        synchronized (this) {
+            setChangeNotifier(null);
+            previousChanges = changes;
+            changes = newChanges();
+            previousAdvertisement = advertisement;
+            advertisement = newAdvertisement();
+            previousInbound = inbound;
+            inbound = newInbound(inboundWorkers);
+        }
+        previousChanges.close();
+        previousAdvertisement.close();
+        previousInbound.close();
+    }
+
+    private SdniPayloadCache newAdvertisement()
+    {
+        return new SdniPayloadCache(new SdniPayloadCache.Builder() {
+            @Override
+            public ByteBuf build() {
+                final ByteBuf body = Unpooled.buffer();
+                buildSDNIMessage(body);
+                return body;
+            }
+        });
+    }
+
+    private SdniChangeDebouncer newChanges()
+    {
+        return new SdniChangeDebouncer(new Runnable() {
+            @Override
+            public void run() {
+                advertiseChanges();
+            }
+        });
+    }
+
+    private SdniInboundMailbox newInbound(int workers)
+    {
+        return new SdniInboundMailbox(new SdniInboundMailbox.Handler() {
+            @Override
+            public void storeTopology(NetworkCapabilities topology) {
+                updatePeerTopoTable(topology);
+            }
+
+            @Override
+            public void storeQos(List<NetworkCapabilitiesQOS> qos, String controller) {
+                updatePeerQOSTable(qos, controller);
+            }
+        }, workers);
+    }
+
+    /**
+     * Rebuild the advertisement with the changes gathered, then have the
+     * sessions send it.
+     */
+    private void advertiseChanges()
+    {
+        synchronized (this) {
+            if ( sessionsUp == 0 ) {
+                return;
+            }
+        }
+        advertisement.rebuild(System.currentTimeMillis(), new Runnable() {
+            @Override
+            public void run() {
+                for ( SdniAdvertisementListener listener : advertisementListeners ) {
+                    listener.onAdvertisementChanged();
+                }
+            }
+        });
+    }
+
+    /**
+     * Inject the connection shared with the sdninterfaceapp-impl storage, open
+     * the {@link SdniStorage} of the backend it carries, again whenever that
+     * backend changes, and (re)start the
+     * {@link SdniRetentionEngine} and the write-behind writer. The snapshot
+     * log is replayed after the storage is loaded, as it holds the latest
+     * snapshots. Passing null stops everything, flushing the pending writes
+     * first.
+     */
+    public synchronized void setConnectionManager(SdniConnectionManager manager)
+    {
+        if ( connectionManager != null ) {
+            connectionManager.removeStorageBackendListener(reopenStorage);
+        }
+        connectionManager = manager;
+        retention.close();
+        if ( writeBehind != null ) {
+            writeBehind.close();
+            writeBehind = null;
+        }
+        if ( snapshotLog != null ) {
+            snapshotLog.close();
+            snapshotLog = null;
+        }
+        if ( manager == null ) {
+            return;
+        }
+        // the backend is selected by the sdninterfaceapp module, which the RPCs write through
+        storage = manager.openStorage();
+        trustedControllers.reload(storage);
+        peerStateStore.loadFrom(storage);
+        if ( !snapshotLogFile.isEmpty() ) {
+            try {
+                snapshotLog = SdniSnapshotLog.open(new File(snapshotLogFile), SdniSnapshotLog.DEFAULT_CAPACITY);
+                snapshotLog.replayInto(peerStateStore);
+            } catch (IOException e) {
+                LOG.error("Cannot open the SDNi snapshot log {}, continuing without it", snapshotLogFile, e);
+            }
+        }
+        writeBehind = new SdniWriteBehindQueue("sdni-db-writer");
+        retention.start(storage, snapshotLog, peerTtlMillis, retentionPeriodMillis);
+        manager.addStorageBackendListener(reopenStorage);
+    }
+
+    private synchronized void reopenStorage()
+    {
+        if ( connectionManager != null ) {
+            setConnectionManager(connectionManager);
+        }
+    }
+
+    /**
+     * Persist a snapshot on the write-behind writer so the caller, usually a
+     * BGP I/O thread, never waits on SQLite. Without a writer, i.e. before the
+     * module is started, the write runs inline.
+     */
+    private synchronized void persist(String key, Runnable write)
+    {
+        if ( writeBehind != null ) {
+            writeBehind.submit(key, write);
+        } else {
+            write.run();
+        }
+    }
+
+    /**
+     * Write the advertisement shared by the BGP sessions into an UPDATE body.
+     */
+    public void writeSDNIMessage(ByteBuf out) {
+        final ByteBuf payload = getSDNIPayload();
+        try {
+            out.writeBytes(payload);
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * @return a retained duplicate of the advertisement shared by the BGP
+     *         sessions, built in the background and empty if there is none
+     *         yet or nothing to advertise; the caller releases it
+     */
+    public ByteBuf getSDNIPayload() {
+        return advertisement.get(System.currentTimeMillis());
+    }
+
+    /**
+     * Write the local topology and QoS advertisement into an UPDATE body: as
+     * {@link SdniTlvCodec TLV} if that is the configured encoding and every
+     * live peer has advertised it accepts it, as JSON otherwise. The message
+     * is numbered by the {@link SdniDeltaLog} and carries the acks of the
+     * peer states applied here. Bodies from the compression threshold on are
+     * {@link SdniCompression compressed} when every session negotiated it.
+     */
+    private void buildSDNIMessage(ByteBuf out) {
+        final NetworkCapabilities topology = collectTopology();
+        final List<NetworkCapabilitiesQOS> qos = new ArrayList<NetworkCapabilitiesQOS>();
+        final String controller = collectQoS(qos);
+        final String local = topology != null ? topology.getController() : controller;
+        if ( local != null ) {
+            localController = local;
+        }
+        final Set<String> alive = retention.getControllers();
+        peerAcks.keySet().retainAll(alive);
+        peerDeltas.retain(alive);
+
+        final SdniMessage message = deltaLog.next(topology, controller, qos, deltaBase(local, alive));
+        if ( message.getController() == null ) {
+            return;
+        }
+        message.setAcks(peerDeltas.getAcks());
+        if ( !useCompression() ) {
+            encodeSDNIMessage(message, out);
+            return;
+        }
+        final ByteBuf body = Unpooled.buffer();
+        try {
+            encodeSDNIMessage(message, body);
+            if ( body.readableBytes() >= compressionThreshold ) {
+                SdniCompression.compress(body, out);
+            } else {
+                out.writeBytes(body);
+            }
+        } finally {
+            body.release();
+        }
+    }
+
+    private void encodeSDNIMessage(SdniMessage message, ByteBuf out) {
+        if ( useTlv() ) {
+            SdniTlvCodec.write(message, out);
+        } else {
+            try {
+                SdniJsonCodec.write(message, out);
+            } catch (IOException e) {
+                LOG.error("Sdniwrapper : cannot encode the SDNi message", e);
+            }
+        }
+    }
+
+    /**
+     * The same UPDATE body goes to every peer, so a delta is based on the
+     * oldest state they acknowledged. A full message is sent if any live
+     * peer takes no deltas or needs a full state, or a session just came up.
+     *
+     * @return the base of the message, 0 for a full one
+     */
+    private long deltaBase(String local, Set<String> alive)
+    {
+        if ( !deltaAdvertisements || local == null || System.currentTimeMillis() < fullAdvertisementsUntil ) {
+            return 0;
+        }
+        long base = 0;
+        for ( String peer : alive ) {
+            if ( peer.equals(local) ) {
+                continue;
+            }
+            final Long ack = peerAcks.get(peer);
+            // an ack above the sequence number is of a state before a restart
+            if ( ack == null || ack <= 0 || ack > deltaLog.getSequence() ) {
+                return 0;
+            }
+            base = base == 0 ? ack : Math.min(base, ack);
+        }
+        return base;
+    }
+
+    /**
+     * TLV is used only when every live peer accepts it, as the same UPDATE
+     * body goes to all of them. Peers that expired are forgotten.
+     */
+    private boolean useTlv()
+    {
+        if ( encoding != SdniEncoding.TLV ) {
+            return false;
+        }
+        final Set<String> alive = retention.getControllers();
+        for ( Map.Entry<String, Boolean> peer : peerAcceptsTlv.entrySet() ) {
+            if ( !alive.contains(peer.getKey()) ) {
+                peerAcceptsTlv.remove(peer.getKey(), peer.getValue());
+            } else if ( !peer.getValue() ) {
+                return false;
+            }
+        }
+        return !peerAcceptsTlv.isEmpty();
+    }
+
     public ByteBuf getSDNITopoMessage() {
+        final NetworkCapabilities nCap = collectTopology();
+        if ( nCap == null ) {
+            return null;
+        }
+        final ByteBuf sdniBytes = Unpooled.buffer();
+        try {
+            SdniJsonCodec.writeTopology(nCap, sdniBytes);
+        } catch (IOException e) {
+            LOG.error("Sdniwrapper : cannot encode the topology", e);
+            return null;
+        }
+        return sdniBytes;
+    }
+
+    /**
+     * Read the local topology and store it.
+     *
+     * @return the topology, or null if it could not be read
+     */
+    private NetworkCapabilities collectTopology() {
         LOG.info("SdniWrapper  - getSDNITopoMessage -Start");
         List<String> linkList = new ArrayList<String>();
-        byte[] defaultBytes = null;
-        ByteBuf sdniBytes = null;
 
         NetworkCapabilities nCap = new NetworkCapabilities();
-        StringBuilder data = new StringBuilder();
         try {
 
             OpendaylightSdniTopologyMsgService sdniTopoData = rpcRegistryDependency.getRpcService(OpendaylightSdniTopologyMsgService.class);
@@ -176,269 +737,201 @@ public class SdniWrapper
             LOG.info("SdniWrapper  - getSDNITopoMessage " + "CONTROLLER : " + network.getControllerIp() + "Updating DB");
             updateControllerTopoTable(nCap);
             LOG.info("SdniWrapper  - getSDNITopoMessage " + "CONTROLLER : " + network.getControllerIp() + "DB updated Successfully");
-
-            data.append("{\"TOPOoutput\":"+nCap.toString()+"};");
-            LOG.info("SdniWrapper  - getSDNITopoMessage " + "CONTROLLER : " + network.getControllerIp() + "-MESSAGE : " + data.toString());
-            defaultBytes = data.toString().getBytes();
-            sdniBytes = Unpooled.copiedBuffer(defaultBytes);
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            // the build was cancelled, let the QoS read stop as well
+            Thread.currentThread().interrupt();
+            LOG.info(e.getMessage());
+            return null;
+        } catch (ExecutionException e) {
             LOG.info(e.getMessage());
+            return null;
         }
         catch (Exception e) {
             LOG.info(e.getMessage());
+            return null;
         }
         LOG.info("SdniWrapper  - getSDNITopoMessage -END");
-        return sdniBytes;
+        return nCap;
     }
 
-    public String parseSDNITopoMessage(ByteBuf msg) {
-        LOG.info("Sdniwrapper : parseSDNIMessage - Start");
-        String result = "";
-        byte[] bytes = new byte[msg.readableBytes()];
-        int readerIndex = msg.readerIndex();
-        msg.getBytes(readerIndex, bytes);
-        String sdniMsg = new String(bytes);
+    /**
+     * Parse an SDNi UPDATE body, TLV or JSON and possibly compressed, or a
+     * fragment of one, consuming it.
+     */
+    public void parseSDNIMessage(ByteBuf msg) {
+        parseSDNIMessage(msg, SdniFragments.isFragment(msg));
+    }
 
-        LOG.info("TOPO: Before parsing sdni message from ByteBuf to String: {}", sdniMsg);
-        result = parseSDNITopoMessage(sdniMsg);
-        LOG.info("Sdniwrapper : parseSDNIMessage - End");
-        return result;
+    /**
+     * Parse an SDNi advertisement, TLV or JSON and possibly compressed,
+     * consuming it.
+     */
+    public void parseSDNIAdvertisement(ByteBuf msg) {
+        parseSDNIMessage(msg, false);
     }
 
-    private String parseSDNITopoMessage(String sdnimsg) {
-        LOG.info("Sdniwrapper : parseSDNIMessage (sdni msg)- Start");
-        final List<NetworkCapabilities> listTopo = new ArrayList<NetworkCapabilities>();
-        final NetworkCapabilities network = new NetworkCapabilities();
-        try {
+    /**
+     * Parse a {@link SdniFragments fragment} of an SDNi advertisement,
+     * consuming it, and the advertisement if the fragment completes it.
+     */
+    public void parseSDNIFragment(ByteBuf msg) {
+        parseSDNIMessage(msg, true);
+    }
 
-            String message = sdnimsg.replace('"', '\"');
-            String[] outputArray = message.split(";");
-            for(String token: outputArray) {
-                if(token.contains("TOPOoutput")) {
-                    JSONObject json = new JSONObject(token);
-                    List<String> temp = new ArrayList<String>();
-                    
-                    String controller = json.getJSONObject("TOPOoutput").get("controller").toString();
-                    try {
-                        if (! isControllerTrusted(controller) )
-                        {
-                        //	send notification
-                            LOG.info("SdniWrapper  - publish notification -Start");
-                            notificationProvider.publish( new UntrustedControllerBuilder().setControllerip(controller).build() );
-                            LOG.info("SdniWrapper  - publish notification -end");
-                    	    break;
-                        }
-                    }
-                    catch (Exception e) {
-                        LOG.error("Notification Exception: {0}", e);
-                    }
+    private void parseSDNIMessage(ByteBuf msg, boolean fragment) {
+        final SdniMessage message = readSDNIMessage(msg, fragment);
+        if ( message != null ) {
+            acceptPeerMessage(message);
+        }
+    }
 
-                    
-                    network.setController(controller);
-                    JSONArray jArray = json.getJSONObject("TOPOoutput").getJSONArray("links");
-                    for (int i = 0; i < jArray.length(); i++) {
-                        temp.add(jArray.get(i).toString());
-                    }
-                    network.setLink(temp);
+    private SdniMessage readSDNIMessage(ByteBuf msg, boolean fragment) {
+        try {
+            ByteBuf body = msg;
+            if ( fragment ) {
+                body = reassembler.add(body, System.currentTimeMillis());
+                if ( body == null ) {
+                    return null;
                 }
             }
+            if ( SdniCompression.isCompressed(body) ) {
+                body = SdniCompression.decompress(body);
+            }
+            return SdniTlvCodec.isTlv(body) ? SdniTlvCodec.read(body) : SdniJsonCodec.read(body);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.error("Sdniwrapper : dropping malformed SDNi message: {}", e.getMessage());
+            return null;
+        }
+    }
 
-        } catch (Exception e) {
-            LOG.error("Exception: {0}", e);
-            return "IOException";
+    /**
+     * Record what the peer accepts and acknowledged, then leave the state the
+     * message brings it to in the inbound mailbox, to be stored unless a
+     * newer one replaces it first; stale deltas and gaps store nothing.
+     */
+    private void acceptPeerMessage(SdniMessage message) {
+        final String controller = message.getController();
+        if ( controller == null || !isPeerTrusted(controller) ) {
+            return;
+        }
+        // only the topology tells what a JSON peer accepts
+        final Boolean acceptsTlv;
+        if ( message.acceptsTlv() ) {
+            acceptsTlv = peerAcceptsTlv.put(controller, Boolean.TRUE);
+        } else if ( message.getTopology() != null ) {
+            acceptsTlv = peerAcceptsTlv.put(controller, Boolean.FALSE);
+        } else {
+            acceptsTlv = peerAcceptsTlv.putIfAbsent(controller, Boolean.FALSE);
+        }
+        final Map<String, Long> acks = message.getAcks();
+        Long ack = NO_DELTAS;
+        if ( acks != null ) {
+            ack = localController == null ? null : acks.get(localController);
+            if ( ack == null ) {
+                ack = Long.valueOf(0);
+            }
+        }
+        final Long previousAck = peerAcks.put(controller, ack);
+        // a new encoding, or a peer needing the full state, cannot wait for the next interval
+        if ( !peerAcceptsTlv.get(controller).equals(acceptsTlv) || (ack <= 0 && !ack.equals(previousAck)) ) {
+            advertisement.invalidate();
         }
 
-        updatePeerTopoTable(network);
-        LOG.info("Sdniwrapper : parseSDNIMessage (sdni msg)- END");
-        return "success";
+        // deltas are applied here, in order, so the mailbox only holds full states
+        final SdniMessage state = peerDeltas.apply(message);
+        if ( state == null || (state.getTopology() == null && state.getQos() == null) ) {
+            return;
+        }
+        inbound.post(controller, state.getTopology(), state.getQos(), state.getQosController());
+    }
 
+    /**
+     * @return true if the controller is trusted, otherwise publish an
+     *         UntrustedController notification
+     */
+    private boolean isPeerTrusted(String controller) {
+        if ( isControllerTrusted(controller) ) {
+            return true;
+        }
+        try {
+            notificationProvider.publish( new UntrustedControllerBuilder().setControllerip(controller).build() );
+        } catch (Exception e) {
+            LOG.error("Notification Exception: {0}", e);
+        }
+        return false;
     }
 
     public void updateControllerTopoTable(NetworkCapabilities networkData) {
         LOG.info("Sdniwrapper : updateControllerTopoTable- Start");
 
-        Connection conn = null;
-        Statement stmt = null;
-        LOG.info("TOPO: inside updateControllerTopoTable PeerCount:0");
-        String controllerIp = null;
-
         if ( networkData == null || networkData.getController() == null || networkData.getController() == "")
         {
         	return;
         }
-        
-        try {
-
-            controllerIp = networkData.getController().replace('.', '_');
-            conn = getConnection();
 
-            LOG.info("TOPO: sql connection established");
-
-            stmt = conn.createStatement();
-            try{
-                String sql = "drop table if exists TOPOLOGY_DATABASE_" + controllerIp;
-                LOG.info("TOPO: SQL query to delete controller table: {}", sql);
-                stmt.executeUpdate(sql);
-            }
-            catch (Exception e) {
-                LOG.error("Exception: {0}", e);
-            }
-            String sql = "create table IF NOT EXISTS TOPOLOGY_DATABASE_" + controllerIp + " (controller TEXT NOT NULL, links TEXT NOT NULL);";
-            LOG.info("TOPO: SQL query to create controller table: {}", sql);
-            stmt.executeUpdate(sql);
-
-            aliveControllersList.add("TOPOLOGY_DATABASE_" + controllerIp);
-
-            String insertQueries = formTopoInsertQuery(networkData, false);
-            String[] insertQuery = insertQueries.split("--");
-            for (int j = 0; j < insertQuery.length; j++) {
-                stmt.executeUpdate(insertQuery[j]);
-            }
-        } catch (SQLException se) {
-            LOG.error("SQLException: {0}", se);
-            //            return;
-        } catch (Exception e) {
-            LOG.error("Exception: {0}", e);
-            //            return;
-        } finally {
-            try {
-                if (stmt != null) {
-                    stmt.close();
-                }
-            } catch (SQLException se2) {
-                LOG.error("SQLException2: {0}", se2);
-                //                return;
-            }
-            try {
-                if (conn != null) {
-                    conn.close();
-                    connection = null;
-                }
-            } catch (SQLException se) {
-                LOG.error("SQLException3: {0}", se);
-                //                return;
+        final SdniStorage db = storage;
+        final String controller = networkData.getController();
+        final List<String> links = networkData.getLink();
+        retention.touch(controller);
+        persist("links:" + controller, new Runnable() {
+            @Override
+            public void run() {
+                db.replaceLinks(controller, false, links);
             }
-        }
+        });
         LOG.info("Sdniwrapper : updateControllerTopoTable- End");
     }
 
 
     public void updatePeerTopoTable(NetworkCapabilities networkData) {
     	LOG.info("Sdniwrapper : updatePeerTopoTable- Start");
-    	//   String ipAddress = networkData.getController().toString().replace("[", "").replace("]", "");
-    	String ipAddress = networkData.getController();
-    	Connection conn = null;
-    	Statement stmt = null;
-    	ResultSet rs = null;
-    	String sql = null;
-    	String controllerIp = null;
-
-
-    	//      boolean tableExist = false;
-
-		try {
-
-	    	if ( networkData == null || networkData.getController() == null || networkData.getController() == "")
-	    	{
-	    		return;
-	    	} 
-	    	
-			controllerIp = networkData.getController().replace('.', '_');
-
-			conn = getConnection();
-
-			stmt = conn.createStatement();
-
-			LOG.info("sql connection established");
-
-			try {
-				sql = "drop table if exists TOPOLOGY_DATABASE_PEER_" + controllerIp;
-				stmt.executeUpdate(sql);
-			} catch (Exception e)
-			{
-				LOG.warn("SQL: Warning {0}", e.getMessage());
-			}
-
-			if (networkData.getLink() == null && !networkData.getLink().isEmpty())
-			{
-				return;
-			}
-
-			LOG.info("TOPO: inside if, SQL query to delete topology peer table: {}", sql);
-
-			sql = "create table IF NOT EXISTS TOPOLOGY_DATABASE_PEER_" + controllerIp
-					+ " (controller TEXT NOT NULL, links TEXT NOT NULL);";
-			LOG.info("TOPO: inside if SQL query to create topology peer table: {}", sql);
-			stmt.executeUpdate(sql);
-
-			aliveControllersList.add("TOPOLOGY_DATABASE_PEER_" + controllerIp);
-
-			String insertQueries = formTopoInsertQuery(networkData, true);
-			String[] insertQuery = insertQueries.split("--");
-			for (int j = 0; j < insertQuery.length; j++) {
-				stmt.executeUpdate(insertQuery[j]);
-			}
-
-		} catch (SQLException se) {
-			LOG.error("SQLException: {0}", se);
-			return;
-		} catch (Exception e) {
-			LOG.error("Exception: {0}", e);
-			return;
-		} finally {
-			try {
-				if (stmt != null) {
-					stmt.close();
-				}
-			} catch (SQLException se2) {
-				LOG.error("SQLException2: {0}", se2);
-				return;
-			}
-
-			try {
-				if (conn != null) {
-					conn.close();
-					connection = null;
-				}
-			} catch (SQLException se) {
-				LOG.error("SQLException3: {0}", se);
-				return;
-			}
-		}
-	
-    	LOG.info("Sdniwrapper : updatePeerTopoTable- End");
-    }
-
-    public String formTopoInsertQuery(NetworkCapabilities networkData, boolean isPeer) {
-        LOG.info("QoS: Inside formTopoInsertQuery peer {}", isPeer);
-        String insertQuery = "";
 
-        String controller = networkData.getController().replace('.', '_');
-        List<String> link_id_list = networkData.getLink();
-        String controllerIP = networkData.getController();
+    	if ( networkData == null || networkData.getController() == null || networkData.getController() == "")
+    	{
+    		return;
+    	}
 
-        for (int i = 0; i < link_id_list.size(); i++) {
-            String link = link_id_list.get(i);
-            if (!isPeer) {
-                insertQuery += "insert into TOPOLOGY_DATABASE_" + controller + " values (\"" + controllerIP + "\",\"" + link + "\"); -- ";
-            } else {
-                insertQuery += "insert into TOPOLOGY_DATABASE_PEER_" + controller + " values( \"" + controllerIP
-                        + "\",\"" + link + "\"); -- ";
-            }
+    	final SdniStorage db = storage;
+    	final String controller = networkData.getController();
+    	final List<String> links = networkData.getLink();
+    	retention.touch(controller);
+    	peerStateStore.putLinks(controller, links);
+    	final SdniSnapshotLog log = snapshotLog;
+    	if ( log != null && links != null ) {
+    		log.appendLinks(controller, links, System.currentTimeMillis());
+    	}
+    	persist("peer-links:" + controller, new Runnable() {
+    		@Override
+    		public void run() {
+    			db.replaceLinks(controller, true, links);
+    		}
+    	});
+    	LOG.info("Sdniwrapper : updatePeerTopoTable- End");
+    }
 
+    public ByteBuf getSDNIQoSMessage() {
+        final List<NetworkCapabilitiesQOS> list_QoS = new ArrayList<NetworkCapabilitiesQOS>();
+        final String controller = collectQoS(list_QoS);
+        if ( controller == null ) {
+            return null;
+        }
+        final ByteBuf sdniQOSBytes = Unpooled.buffer();
+        try {
+            SdniJsonCodec.writeQos(controller, list_QoS, sdniQOSBytes);
+        } catch (IOException e) {
+            LOG.error("Sdniwrapper : cannot encode the QoS", e);
+            return null;
         }
-        LOG.info("QoS: At the end of formTopoInsertQuery() method insertQuery:{}", insertQuery);
-        return insertQuery;
+        return sdniQOSBytes;
     }
 
-    public ByteBuf getSDNIQoSMessage() {
-        byte[] defaultBytes = null;
-        //String qosDetails = null;
-        ByteBuf sdniQOSBytes = null;
+    /**
+     * Read the local port statistics into the list and store them.
+     *
+     * @return the local controller, or null if the statistics could not be read
+     */
+    private String collectQoS(final List<NetworkCapabilitiesQOS> list_QoS) {
         String controller = null;
-        final List<NetworkCapabilitiesQOS> list_QoS = new ArrayList();
-        StringBuilder data = new StringBuilder();
-        boolean flag = false;
         try {
 
             OpendaylightSdniQosMsgService sdniQoSData = rpcRegistryDependency.getRpcService(OpendaylightSdniQosMsgService.class);
@@ -456,11 +949,8 @@ public class SdniWrapper
             List<NodeList> ndList = qosDetails.getNodeList();
             controller = qosDetails.getControllerIp();
 
-            data.append("{\"QoSoutput\":{\"controller\":\"" + controller +"\",\"QoS\":[");
-            //data.append("{controller:" + controller +"}");
             if ( ndList != null && !ndList.isEmpty() )
             {
-                //data.append("[");
                 for (NodeList nList : ndList) {
                     String nodeID = nList.getNodeId();
                     List<PortList> portlist = nList
@@ -484,24 +974,14 @@ public class SdniWrapper
                                 ncQoS.setController(controller);
                                 ncQoS.setNode(nodeID);
                                 ncQoS.setPort(portID);
-                                ncQoS.setReceiveCrcError(Pparams.getReceiveCrcError().toString());
-                                ncQoS.setReceiveFrameError(Pparams.getReceiveFrameError().toString());
-                                ncQoS.setReceiveOverRunError(Pparams.getReceiveOverRunError().toString());
-                                ncQoS.setCollisionCount(Pparams.getCollisionCount().toString());
-                                ncQoS.setTransmitPackets(Pparams.getPackets().getTransmitted().toString());
-                                ncQoS.setReceivePackets(Pparams.getPackets().getReceived().toString());
+                                ncQoS.setReceiveCrcError(Pparams.getReceiveCrcError().longValue());
+                                ncQoS.setReceiveFrameError(Pparams.getReceiveFrameError().longValue());
+                                ncQoS.setReceiveOverRunError(Pparams.getReceiveOverRunError().longValue());
+                                ncQoS.setCollisionCount(Pparams.getCollisionCount().longValue());
+                                ncQoS.setTransmitPackets(Pparams.getPackets().getTransmitted().longValue());
+                                ncQoS.setReceivePackets(Pparams.getPackets().getReceived().longValue());
                                 ncQoS.setBridgePort(Pparams.getPortName());
                                 list_QoS.add(ncQoS);
-
-                                if(!flag) {
-                                    data.append(ncQoS.toString());
-                                    flag = true;
-                                }
-                                else {
-                                    data.append(","+ncQoS.toString());
-                                }
-
-
                             }
                         }
                     }
@@ -515,305 +995,87 @@ public class SdniWrapper
             updateControllerQOSTable(list_QoS, controller);
             LOG.info("Sdniwrapper : getSDNIQoSMessage : DB updated successfully");
 
-            data.append("]}};");
-            LOG.info("final: data is {}",data);
-            LOG.info("Sdniwrapper : getSDNIQoSMessage : MESSAGE : {}" , data.toString());
-            defaultBytes = data.toString().getBytes();
-            sdniQOSBytes = Unpooled.copiedBuffer(defaultBytes);
-
         } catch (InterruptedException | ExecutionException e) {
 
             LOG.error("Exception : {0}",e.getMessage());
+            return null;
         }
         catch (Exception e) {
             LOG.info(e.getMessage());
+            return null;
         }
-        return sdniQOSBytes;
-    }
-
-    public String parseSDNIQoSMessage(ByteBuf msg) {
-        String result = "";
-        byte[] bytes = new byte[msg.readableBytes()];
-        int readerIndex =msg.readerIndex();
-        msg.getBytes(readerIndex, bytes);
-        String sdniQOSMsg = new String(bytes);
-
-        LOG.info("QoS: After parsing sdni qos message from ByteBuf to String: {}",sdniQOSMsg);
-        result = parseSDNIQoSMessage(sdniQOSMsg);
-        return result;
-    }
-
-    private String parseSDNIQoSMessage(String sdniQOSMsg) {
-        final List<NetworkCapabilitiesQOS> list_QoS = new ArrayList<NetworkCapabilitiesQOS>();
-        boolean peer = true;
-        String controller = null;
-
-        try {
-
-            String message = sdniQOSMsg.replace('"', '\"');
-            String[] outputArray = message.split(";");
-            LOG.info("TOKENS SIZE: {}", outputArray.length);
-
-            for(String token: outputArray) {
-                LOG.info("TOKEN MESSAGE : {}", token);
-
-                if(token.contains("QoSoutput")) {
-                    JSONObject json=new JSONObject(token);
-                    LOG.info("sdni QOS Msg: {}", sdniQOSMsg);
-
-                    controller = json.getJSONObject("QoSoutput").get("controller").toString();
-                    try {
-
-                        if (! isControllerTrusted(controller) )
-                        {
-                            LOG.info("SdniWrapper  - publish notification -Start");
-                    	    //notificationProvider.publish( new UntrustedControllerBuilder().build() );
-                            notificationProvider.publish( new UntrustedControllerBuilder().setControllerip(controller).build() );
-                            LOG.info("SdniWrapper  - publish notification -end");
-                    	    break;
-                        }
-                        }
-                    catch (Exception e) {
-                        LOG.error("Notification Exception: {0}", e);
-                    }
-
-                    
-                    JSONArray jArray = json.getJSONObject("QoSoutput").getJSONArray("QoS");
-
-                    for(int i=0;i<jArray.length();i++)
-                    {
-                        NetworkCapabilitiesQOS qosData = new NetworkCapabilitiesQOS();
-                        JSONObject subJson = (JSONObject)jArray.get(i);
-                        controller = subJson.get("controller").toString();
-                        qosData.setController(controller);
-                        qosData.setNode(subJson.get("node").toString());
-                        qosData.setPort(subJson.get("port").toString());
-                        qosData.setReceiveCrcError(subJson.get("receiveCrcError").toString());
-                        qosData.setReceiveFrameError(subJson.get("receiveFrameError").toString());
-                        qosData.setReceiveOverRunError(subJson.get("receiveOverRunError").toString());
-                        qosData.setCollisionCount(subJson.get("collisionCount").toString());
-                        qosData.setTransmitPackets(subJson.get("transmitPackets").toString());
-                        qosData.setReceivePackets(subJson.get("receivePackets").toString());
-                        qosData.setBridgePort(subJson.get("bridgePort").toString());
-                        
-                        list_QoS.add(qosData);
-                    }
-
-                }
-            }
-
-        }catch (Exception e) {
-            LOG.error("Exception Message is: {0}", e);
-        }
-
-        LOG.info("parseSDNIQoSMessage : controller ip : {}", controller);
-        updatePeerQOSTable(list_QoS, controller);
-        return "";
+        return controller;
     }
 
     private void updateControllerQOSTable(List<NetworkCapabilitiesQOS> list, String controller) {
 
-        Connection conn = null;
-        Statement stmt = null;
-        String sql = null;
-
         if ( controller == null || controller == "")
         {
         	return;
         }
-        
-        try {
-            controller = controller.replace('.', '_');
-            conn = getConnection();
-
-            LOG.info("sql connection established");
-
-            stmt = conn.createStatement();
-
-
-            //Drop Table
-            try{
-                sql = "drop table if exists QOS_DATABASE_" + controller;
-                LOG.info("QoS: SQL query to delete Controller QoS table: {}", sql);
-                stmt.executeUpdate(sql);
-            }
-            catch(Exception e)
-            {
-                LOG.error("SQLException3: {0}", e);
-            }
-
-            //Create Table
-            sql = "create table IF NOT EXISTS QOS_DATABASE_" + controller + " (controller TEXT NOT NULL, node TEXT NOT NULL, port TEXT NOT NULL,"
-                    + " receiveFrameError TEXT NOT NULL, receiveOverRunError TEXT NOT NULL, receiveCrcError TEXT NOT NULL,"
-                    + " collisionCount TEXT NOT NULL, receivePackets TEXT NOT NULL, transmitPackets TEXT NOT NULL, bridge_port TEXT NOT NULL);";
-            LOG.info("QoS: SQL query to create Controller QoS table: {}", sql);
-            stmt.executeUpdate(sql);
-            aliveControllersList.add("QOS_DATABASE_" + controller);
-
-            if ( list != null && !list.isEmpty() ) {
-                String insertQueries = formQOSInsertQuery(list, false);
-                String[] insertQuery = insertQueries.split("--");
-
-                for (int j = 0; j < insertQuery.length; j++) {
-                    String query = insertQuery[j].replace("LOCAL", "0");
-                    LOG.info("QoS: InsertQuery after executing: {}", query);
-                    stmt.executeUpdate(query);
-                }
-            }
-
-        } catch (SQLException se) {
-            LOG.error("SQLException: {0}", se);
-            return;
-        } catch (Exception e) {
-            LOG.error("Exception: {0}", e);
-            return;
-        } finally {
-            try {
-                if (stmt != null) {
-                    stmt.close();
-                }
-            } catch (SQLException se2) {
-                LOG.error("SQLException2: {0}", se2);
-                return;
-            }
 
-            try {
-                if (conn != null) {
-                    conn.close();
-                    connection = null;
-                }
-            } catch (SQLException se) {
-                LOG.error("SQLException3: {0}", se);
-                return;
+        final SdniStorage db = storage;
+        final String controllerIp = controller;
+        final List<PortStatistics> ports = toPortStatistics(list);
+        retention.touch(controllerIp);
+        persist("qos:" + controllerIp, new Runnable() {
+            @Override
+            public void run() {
+                db.replacePortStatistics(controllerIp, false, ports);
             }
-        }
+        });
     }
 
     public void updatePeerQOSTable(List<NetworkCapabilitiesQOS> list, String ipAddress) {
-        Connection conn = null;
-        Statement stmt = null;
-        ResultSet rs = null;
-        String sql = null;
-        String controllerIp = null;
-        try {
-
-            if ( ipAddress == null || ipAddress == "")
-            {
-                return;
-            }
-            controllerIp = ipAddress.replace('.', '_');
-            conn = getConnection();
 
-            stmt = conn.createStatement();
-            LOG.info("sql connection established");
-
-            //Drop the PEER Table
-            try{
-                sql = "drop table if exists QOS_DATABASE_PEER_" + controllerIp;
-                LOG.info("QoS: SQL query to delete Controller QoS table: {}", sql);
-                stmt.executeUpdate(sql);
-            }
-            catch(Exception e)
-            {
-                LOG.error("SQLException3: {0}", e);
-            }
-
-            sql = "create table IF NOT EXISTS QOS_DATABASE_PEER_" + controllerIp
-                    + " (controller TEXT NOT NULL, node TEXT NOT NULL, port TEXT NOT NULL, receiveFrameError TEXT NOT NULL,"
-                    + " receiveOverRunError TEXT NOT NULL, receiveCrcError TEXT NOT NULL, collisionCount TEXT NOT NULL,"
-                    + " receivePackets TEXT NOT NULL, transmitPackets TEXT NOT NULL, bridge_port TEXT NOT NULL);";
-            LOG.info("QoS: SQL query to create QoS peer table: {}", sql);
-            stmt.executeUpdate(sql);
-
-            aliveControllersList.add("QOS_DATABASE_PEER_" + controllerIp);
-            if ( list != null && !list.isEmpty() )
-            {
-
-                String insertQueries = formQOSInsertQuery(list, true);
-                String[] insertQuery = insertQueries.split("--");
-                for (int j = 0; j < insertQuery.length; j++) {
-                    String query = insertQuery[j].replace("LOCAL", "0");
-                    stmt.executeUpdate(query);
-                }
-            }
-
-        } catch (SQLException se) {
-            LOG.error("SQLException: {0}", se);
-            return;
-        } catch (Exception e) {
-            LOG.error("Exception: {0}", e);
+        if ( ipAddress == null || ipAddress == "")
+        {
             return;
-        } finally {
-            try {
-                if (stmt != null) {
-                    stmt.close();
-                }
-            } catch (SQLException se2) {
-                LOG.error("SQLException2: {0}", se2);
-                return;
-            }
-            try {
-                if (conn != null) {
-                    conn.close();
-                    connection = null;
+        }
+
+        final SdniStorage db = storage;
+        final String controllerIp = ipAddress;
+        final List<PortStatistics> ports = toPortStatistics(list);
+        final long sampledAt = System.currentTimeMillis();
+        final boolean persistHistory = persistQosHistory;
+        final int historySize = qosHistorySize;
+        retention.touch(controllerIp);
+        peerStateStore.putQos(controllerIp, ports, sampledAt);
+        final SdniSnapshotLog log = snapshotLog;
+        if ( log != null ) {
+            log.appendQos(controllerIp, ports, sampledAt);
+        }
+        persist("peer-qos:" + controllerIp, new Runnable() {
+            @Override
+            public void run() {
+                db.replacePortStatistics(controllerIp, true, ports);
+                if ( persistHistory ) {
+                    db.appendQosHistory(controllerIp, sampledAt, ports, historySize);
                 }
-            } catch (SQLException se) {
-                LOG.error("SQLException3: {0}", se);
-                return;
             }
-        }
+        });
     }
 
-    public String formQOSInsertQuery(List<NetworkCapabilitiesQOS> list, boolean isPeer) {
-        String insertQuery = "";
-
+    private static List<PortStatistics> toPortStatistics(List<NetworkCapabilitiesQOS> list) {
+        List<PortStatistics> ports = new ArrayList<PortStatistics>();
+        if ( list == null ) {
+            return ports;
+        }
         for (NetworkCapabilitiesQOS qosData : list) {
-            String controller = qosData.getController().replace('.', '_');
-
-            String node = qosData.getNode();
-            String port = qosData.getPort();
-            String receiveFrameError = qosData.getReceiveFrameError();
-            String receiveOverRunError = qosData.getReceiveOverRunError();
-            String receiveCrcError = qosData.getReceiveCrcError();
-            String collisionCount = qosData.getCollisionCount();
-            String receivePackets = qosData.getReceivePackets();
-            String transmitPackets = qosData.getTransmitPackets();
-            String bridgePort = qosData.getBridgePort();
-/*            String receiveFrameError = "" + getRandomNum();
-            String receiveOverRunError = "" + getRandomNum();
-            String receiveCrcError = "" + getRandomNum();
-            String collisionCount = "" + getRandomNum();
-            String receivePackets = "" + getRandomNum();
-            String transmitPackets = "" + getRandomNum();
-*/            
-
-            String controllerIP = qosData.getController();
-            if (node == null || port == null) {
-                if (!isPeer) {
-                    insertQuery += "insert into QOS_DATABASE_" + controller + " (controller) values (" + controllerIP + "); -- ";
-                } else {
-                    insertQuery += "insert into QOS_DATABASE_PEER_"+controller + " (controller) values( "
-                            + controllerIP + "); -- ";
-                }
-            } else {
-                if (!isPeer) {
-                    insertQuery += "insert into QOS_DATABASE_" + controller + " values (\"" + controllerIP + "\",\""
-                            + node + "\",\""
-                            + port + "\",\"" + receiveFrameError + "\",\""
-                            + receiveOverRunError + "\",\"" + receiveCrcError + "\",\"" + collisionCount + "\",\"" + receivePackets
-                            + "\",\"" + transmitPackets + "\",\"" + bridgePort + "\"); -- ";
-                } else {
-                    insertQuery += "insert into QOS_DATABASE_PEER_" + controller + " values (\"" + controllerIP + "\",\""
-                            + node + "\",\""
-                            + port + "\",\"" + receiveFrameError + "\",\""
-                            + receiveOverRunError + "\",\"" + receiveCrcError + "\",\"" + collisionCount + "\",\"" + receivePackets
-                            + "\",\"" + transmitPackets + "\",\"" + bridgePort + "\"); -- ";
-                }
-            }
+            ports.add(PortStatistics.builder()
+                    .setController(qosData.getController())
+                    .setNodeID(qosData.getNode())
+                    .setPortID(qosData.getPort())
+                    .setReceiveFrameError(qosData.getReceiveFrameError())
+                    .setReceiveOverRunError(qosData.getReceiveOverRunError())
+                    .setReceiveCrcError(qosData.getReceiveCrcError())
+                    .setCollisionCount(qosData.getCollisionCount())
+                    .setReceivePackets(qosData.getReceivePackets())
+                    .setTransmitPackets(qosData.getTransmitPackets())
+                    .setPortName(qosData.getBridgePort())
+                    .build());
         }
-
-        LOG.info("QoS: At the end of formQOSInsertQuery() method insertQuery:{}", insertQuery);
-        return insertQuery;
+        return ports;
     }
 
     /*    public static String ntoa(long raw) {
@@ -839,74 +1101,13 @@ public class SdniWrapper
 
     public Set<String> getAliveControllers()
     {
-        return aliveControllersList;
-    }
-    private int getRandomNum()
-    {
-        return new Random().nextInt(10);
+        return retention.getControllers();
     }
     
     
     private boolean isControllerTrusted(String controllerIp)
     {
-        if ( controllerIp == null )
-        {
-            return false;
-        }
-        
-        List<String> controllersList = getTrustedControllers();
-        
-        return controllersList.contains(controllerIp);
-        
-    }
-    
-    private List<String> getTrustedControllers()
-    {
-    	Connection conn = null;
-    	Statement stmt = null;
-    	ResultSet rs = null;
-    	String sql = null;
-    	String controllerIp = null;
-    	List<String> controllersList = new ArrayList<String>();
-    	try {
-
-
-    		conn = getConnection();
-
-    		stmt = conn.createStatement();
-    		LOG.info("sql connection established");
-
-    		sql = "SELECT * FROM TRUSTED_CONTROLLERS";
-    				LOG.info("QoS: SQL query to fetch trusted controllers : {}", sql);
-    		rs = stmt.executeQuery(sql);
-    		while(rs.next())
-    		{
-    			controllerIp = rs.getString(1);
-    			controllersList.add(controllerIp);
-    		}
-
-    	} catch (SQLException se) {
-    		LOG.error("SQLException: {0}", se);
-    	} catch (Exception e) {
-    		LOG.error("Exception: {0}", e);
-    	} finally {
-    		try {
-    			if (rs != null ){
-    				rs.close();
-    			}
-    			if (stmt != null) {
-    				stmt.close();
-    			}
-
-    			if (conn != null) {
-    				conn.close();
-    				connection = null;
-    			}
-    		} catch (SQLException se) {
-    			LOG.error("SQLException3: {0}", se);
-    		}
-    	}
-    	return controllersList;
+        return trustedControllers.isTrusted(controllerIp);
     }
 
 /*   @Override
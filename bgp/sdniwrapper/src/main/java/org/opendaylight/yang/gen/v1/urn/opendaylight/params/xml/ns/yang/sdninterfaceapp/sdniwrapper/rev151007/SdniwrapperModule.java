@@ -1,8 +1,15 @@
 package org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.sdniwrapper.rev151007;
 
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.controller.config.api.JmxAttributeValidationException;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.controller.sal.binding.api.NotificationProviderService;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniEncoding;
+import org.opendaylight.protocol.bgp.sdniwrapper.SdniSchedule;
 import org.opendaylight.protocol.bgp.sdniwrapper.SdniWrapper;
+import org.opendaylight.sdninterfaceapp.impl.SdniChangeNotifier;
+import org.opendaylight.sdninterfaceapp.impl.SdniConnectionManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +33,10 @@ public class SdniwrapperModule extends org.opendaylight.yang.gen.v1.urn.opendayl
     @Override
     public void customValidation() {
         // add custom validation form module attributes here.
+        JmxAttributeValidationException.checkCondition(SdniEncoding.forConfigName(getEncoding()) != null,
+                "must be json or tlv", encodingJmxAttribute);
+        JmxAttributeValidationException.checkCondition(getUpdateMinInterval() <= getUpdateMaxInterval(),
+                "must not exceed update-max-interval", updateMinIntervalJmxAttribute);
     }
 
     @Override
@@ -33,12 +44,30 @@ public class SdniwrapperModule extends org.opendaylight.yang.gen.v1.urn.opendayl
         // TODO:implement
 
         LOG.info("In SdniwrapperModule : createInstance : START");
+        final SdniConnectionManager connectionManager = SdniConnectionManager.getInstance().acquire();
 try {
         rpcRegistryDependency = getRpcRegistryDependency();
         notificationProvider = getNotificationServiceDependency();
         
         SdniWrapper.getInstance().setRPCRegistry(rpcRegistryDependency);
         SdniWrapper.getInstance().setNotificationService(notificationProvider);
+        SdniWrapper.getInstance().setQosHistory(getQosHistorySize(), getPersistQosHistory());
+        SdniWrapper.getInstance().setRetention(TimeUnit.SECONDS.toMillis(getPeerTtl()),
+                TimeUnit.SECONDS.toMillis(getRetentionInterval()));
+        SdniWrapper.getInstance().setSnapshotLog(getSnapshotLog());
+        SdniWrapper.getInstance().setEncoding(SdniEncoding.forConfigName(getEncoding()));
+        SdniWrapper.getInstance().setCompressionThreshold(getCompressionThreshold());
+        SdniWrapper.getInstance().setAdvertisementInterval(TimeUnit.SECONDS.toMillis(getAdvertisementInterval()),
+                TimeUnit.SECONDS.toMillis(getAdvertisementDeadline()));
+        SdniWrapper.getInstance().setDeltaAdvertisements(getDeltaAdvertisements());
+        SdniWrapper.getInstance().setReassembly(TimeUnit.SECONDS.toMillis(getReassemblyTimeout()),
+                getReassemblyBufferSize());
+        SdniWrapper.getInstance().setSchedule(new SdniSchedule(TimeUnit.SECONDS.toMillis(getUpdateMinInterval()),
+                TimeUnit.SECONDS.toMillis(getUpdateMaxInterval()), getUpdateJitter()));
+        SdniWrapper.getInstance().setChangeWindows(getChangeDebounce(), TimeUnit.SECONDS.toMillis(getMaxStaleness()));
+        SdniWrapper.getInstance().setChangeNotifier(SdniChangeNotifier.getInstance());
+        SdniWrapper.getInstance().setInboundWorkers(getInboundWorkers());
+        SdniWrapper.getInstance().setConnectionManager(connectionManager);
 
        
 
@@ -53,8 +82,9 @@ try {
 
             @Override
             public void close() throws Exception {
-                // TODO Auto-generated method stub
-
+                SdniWrapper.getInstance().close();
+                SdniWrapper.getInstance().setConnectionManager(null);
+                connectionManager.release();
             }
         };
     }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class SdniChangeDebouncerTest {
+
+	private final Semaphore advertised = new Semaphore(0);
+
+	private final SdniChangeDebouncer debouncer = new SdniChangeDebouncer(new Runnable() {
+		@Override
+		public void run() {
+			advertised.release();
+		}
+	});
+
+	@After
+	public void tearDown() {
+		debouncer.close();
+	}
+
+	@Test
+	public void testBurstCoalesced() throws InterruptedException {
+		debouncer.setWindows(200, 60000);
+		for (int i = 0; i < 10; i++) {
+			debouncer.onTopologyChanged();
+			debouncer.onStatisticsChanged();
+		}
+		assertFalse(advertised.tryAcquire(100, TimeUnit.MILLISECONDS));
+		assertTrue(advertised.tryAcquire(5, TimeUnit.SECONDS));
+		assertFalse(advertised.tryAcquire(300, TimeUnit.MILLISECONDS));
+
+		// a change after the advertisement gets its own
+		debouncer.onTopologyChanged();
+		assertTrue(advertised.tryAcquire(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testStatisticsWaitForStaleness() throws InterruptedException {
+		debouncer.setWindows(10, 500);
+		debouncer.onTopologyChanged();
+		assertTrue(advertised.tryAcquire(5, TimeUnit.SECONDS));
+
+		// statistics change with every poll, they wait for the staleness bound
+		debouncer.onStatisticsChanged();
+		assertFalse(advertised.tryAcquire(200, TimeUnit.MILLISECONDS));
+		// unless a topology change brings them forward
+		debouncer.onTopologyChanged();
+		assertTrue(advertised.tryAcquire(100, TimeUnit.MILLISECONDS));
+		assertFalse(advertised.tryAcquire(600, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testStalenessBound() throws InterruptedException {
+		debouncer.setWindows(10, 300);
+		debouncer.onTopologyChanged();
+		assertTrue(advertised.tryAcquire(5, TimeUnit.SECONDS));
+		final long start = System.nanoTime();
+		debouncer.onStatisticsChanged();
+		assertTrue(advertised.tryAcquire(5, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+		assertEquals(0, advertised.availablePermits());
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class SdniCompressionTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<String> links = new ArrayList<String>();
+		for (int i = 1; i <= 500; i++) {
+			links.add("openflow:" + i + ":1->openflow:" + (i + 1) + ":2");
+		}
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(links);
+		ByteBuf body = Unpooled.buffer();
+		SdniJsonCodec.writeTopology(topology, body);
+		int length = body.readableBytes();
+
+		ByteBuf compressed = Unpooled.buffer();
+		SdniCompression.compress(body.duplicate(), compressed);
+		assertTrue(SdniCompression.isCompressed(compressed));
+		assertFalse(SdniTlvCodec.isTlv(compressed));
+		assertTrue(compressed.readableBytes() * 5 < length);
+
+		ByteBuf inflated = SdniCompression.decompress(compressed);
+		assertFalse(compressed.isReadable());
+		assertEquals(body, inflated);
+		assertEquals(links, SdniJsonCodec.read(inflated).getTopology().getLink());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedMessage() {
+		ByteBuf compressed = Unpooled.buffer();
+		SdniCompression.compress(Unpooled.copiedBuffer(new byte[1000]), compressed);
+		SdniCompression.decompress(compressed.slice(0, compressed.readableBytes() - 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLongMessage() {
+		ByteBuf compressed = Unpooled.buffer();
+		compressed.writeByte(SdniCompression.MAGIC);
+		SdniTlvCodec.writeVarint(SdniCompression.MAX_INFLATED_LENGTH + 1L, compressed);
+		SdniCompression.decompress(compressed);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class SdniDeltaLogTest {
+
+	@Test
+	public void testDeltaOnlyHoldsChanges() {
+		SdniDeltaLog log = new SdniDeltaLog();
+		SdniMessage full = log.next(topology("a", "b"), "10.0.0.2", ports(1, 2, 3), 0);
+		assertEquals(1, full.getSequence());
+		assertEquals(0, full.getBase());
+		assertEquals(3, full.getQos().size());
+
+		// nothing changed, the sequence number stays
+		SdniMessage same = log.next(topology("a", "b"), "10.0.0.2", ports(1, 2, 3), 1);
+		assertEquals(1, same.getSequence());
+		assertEquals(1, same.getBase());
+		assertTrue(same.getTopology().getLink().isEmpty());
+		assertTrue(same.getQos().isEmpty());
+
+		List<NetworkCapabilitiesQOS> changed = ports(1, 2);
+		changed.get(1).setReceivePackets(99);
+		SdniMessage delta = log.next(topology("a", "c"), "10.0.0.2", changed, 1);
+		assertEquals(2, delta.getSequence());
+		assertEquals(1, delta.getBase());
+		assertEquals(Arrays.asList("c"), delta.getTopology().getLink());
+		assertEquals(Arrays.asList("b"), delta.getRemovedLinks());
+		assertEquals(1, delta.getQos().size());
+		assertEquals(99, delta.getQos().get(0).getReceivePackets());
+		assertEquals(1, delta.getRemovedPorts().size());
+		assertEquals("openflow:1:3", delta.getRemovedPorts().get(0).getPort());
+	}
+
+	@Test
+	public void testUnknownBaseGetsFullState() {
+		SdniDeltaLog log = new SdniDeltaLog();
+		for (int i = 1; i <= SdniDeltaLog.MAX_HISTORY + 2; i++) {
+			log.next(topology("link" + i), null, null, 0);
+		}
+		assertEquals(0, log.next(topology("last"), null, null, 1).getBase());
+		assertEquals(0, log.next(topology("last"), null, null, 1000).getBase());
+		assertEquals(log.getSequence() - 1, log.next(topology("next"), null, null, log.getSequence() - 1).getBase());
+	}
+
+	@Test
+	public void testPeerAppliesDeltas() {
+		SdniDeltaLog log = new SdniDeltaLog();
+		SdniPeerDeltas peer = new SdniPeerDeltas();
+		SdniMessage state = peer.apply(log.next(topology("a", "b"), "10.0.0.2", ports(1, 2), 0));
+		assertEquals(Arrays.asList("a", "b"), state.getTopology().getLink());
+		assertEquals(Long.valueOf(1), peer.getAcks().get("10.0.0.2"));
+
+		state = peer.apply(log.next(topology("b", "c"), "10.0.0.2", ports(2, 3), 1));
+		assertEquals(Arrays.asList("b", "c"), state.getTopology().getLink());
+		assertEquals(2, state.getQos().size());
+		assertEquals(Long.valueOf(2), peer.getAcks().get("10.0.0.2"));
+
+		// a delta on the state already applied is stale
+		SdniMessage stale = log.next(topology("b", "c"), "10.0.0.2", ports(2, 3), 1);
+		assertNull(peer.apply(stale));
+	}
+
+	@Test
+	public void testGapRequestsFullState() {
+		SdniDeltaLog log = new SdniDeltaLog();
+		SdniPeerDeltas peer = new SdniPeerDeltas();
+		peer.apply(log.next(topology("a"), null, null, 0));
+		log.next(topology("b"), null, null, 1);
+		SdniMessage delta = log.next(topology("c"), null, null, 2);
+		assertNull(peer.apply(delta));
+		assertEquals(Long.valueOf(0), peer.getAcks().get("10.0.0.2"));
+
+		SdniMessage state = peer.apply(log.next(topology("c"), null, null, 0));
+		assertEquals(Arrays.asList("c"), state.getTopology().getLink());
+		assertEquals(Long.valueOf(3), peer.getAcks().get("10.0.0.2"));
+	}
+
+	private static NetworkCapabilities topology(String... links) {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(new ArrayList<String>(Arrays.asList(links)));
+		return topology;
+	}
+
+	private static List<NetworkCapabilitiesQOS> ports(int... ids) {
+		List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>();
+		for (int id : ids) {
+			NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+			port.setController("10.0.0.2");
+			port.setNode("openflow:1");
+			port.setPort("openflow:1:" + id);
+			port.setReceivePackets(id);
+			ports.add(port);
+		}
+		return ports;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+import org.junit.Test;
+
+public class SdniFragmentsTest {
+
+	private static ByteBuf body(int length) {
+		ByteBuf body = Unpooled.buffer(length);
+		for (int i = 0; i < length; i++) {
+			body.writeByte(i);
+		}
+		return body;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		ByteBuf body = body(10000);
+		List<ByteBuf> fragments = SdniFragments.split(body.duplicate(), 4000);
+		assertEquals(3, fragments.size());
+		for (ByteBuf fragment : fragments) {
+			assertTrue(SdniFragments.isFragment(fragment));
+			assertTrue(fragment.readableBytes() <= 4000);
+		}
+
+		SdniReassembler reassembler = new SdniReassembler();
+		assertNull(reassembler.add(fragments.get(2), 0));
+		assertNull(reassembler.add(fragments.get(0), 0));
+		assertTrue(reassembler.getBytes() > 0);
+		assertEquals(body, reassembler.add(fragments.get(1), 0));
+		assertEquals(0, reassembler.getBytes());
+	}
+
+	@Test
+	public void testDuplicateFragment() {
+		List<ByteBuf> fragments = SdniFragments.split(body(100), 63);
+		assertEquals(2, fragments.size());
+		SdniReassembler reassembler = new SdniReassembler();
+		assertNull(reassembler.add(fragments.get(0).duplicate(), 0));
+		assertNull(reassembler.add(fragments.get(0), 0));
+		assertEquals(100, reassembler.add(fragments.get(1), 0).readableBytes());
+	}
+
+	@Test
+	public void testTimeout() {
+		List<ByteBuf> fragments = SdniFragments.split(body(100), 63);
+		SdniReassembler reassembler = new SdniReassembler();
+		reassembler.setLimits(1000, SdniReassembler.DEFAULT_MAX_BYTES);
+		assertNull(reassembler.add(fragments.get(0), 0));
+		assertNull(reassembler.add(fragments.get(1), 1000));
+		// the fragment and the slots of the two fragments of its body
+		assertEquals(fragments.get(1).writerIndex() - SdniFragments.HEADER_LENGTH + 16, reassembler.getBytes());
+	}
+
+	@Test
+	public void testBufferFull() {
+		List<ByteBuf> first = SdniFragments.split(body(100), 63);
+		List<ByteBuf> second = SdniFragments.split(body(100), 63);
+		SdniReassembler reassembler = new SdniReassembler();
+		reassembler.setLimits(SdniReassembler.DEFAULT_TIMEOUT_MILLIS, 120);
+		assertNull(reassembler.add(first.get(0), 0));
+		assertNull(reassembler.add(second.get(0), 0));
+		assertEquals(66, reassembler.getBytes());
+		// the first message was dropped, its last fragment does not complete it
+		assertNull(reassembler.add(first.get(1), 0));
+		assertEquals(66, reassembler.getBytes());
+	}
+
+	private static ByteBuf fragment(long id, int index, int count, int length) {
+		ByteBuf fragment = Unpooled.buffer(SdniFragments.HEADER_LENGTH + length);
+		fragment.writeByte(SdniFragments.MAGIC);
+		fragment.writeLong(id);
+		fragment.writeShort(index);
+		fragment.writeShort(count);
+		fragment.writeZero(length);
+		return fragment;
+	}
+
+	@Test
+	public void testSlotsCounted() {
+		SdniReassembler reassembler = new SdniReassembler();
+		reassembler.setLimits(SdniReassembler.DEFAULT_TIMEOUT_MILLIS, 1024 * 1024);
+		// tiny fragments announcing many siblings cannot hold more than the limit
+		for (long id = 0; id < 10; id++) {
+			assertNull(reassembler.add(fragment(id, 0, SdniFragments.MAX_FRAGMENTS, 1), 0));
+			assertTrue(reassembler.getBytes() <= 1024 * 1024);
+		}
+		assertTrue(reassembler.getBytes() > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBodyTooLong() {
+		new SdniReassembler().add(fragment(1, 0, SdniFragments.MAX_FRAGMENTS, 1000), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedFragment() {
+		ByteBuf fragment = SdniFragments.split(body(100), 63).get(0);
+		fragment.setShort(SdniFragments.HEADER_LENGTH - 4, 2);
+		new SdniReassembler().add(fragment, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyFragments() {
+		SdniFragments.split(body(SdniFragments.MAX_FRAGMENTS + 1), SdniFragments.HEADER_LENGTH + 1);
+	}
+
+	@Test
+	public void testNotFragment() {
+		assertFalse(SdniFragments.isFragment(Unpooled.EMPTY_BUFFER));
+		assertFalse(SdniFragments.isFragment(Unpooled.copiedBuffer(new byte[] { '{' })));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class SdniInboundMailboxTest {
+
+	/** Blocks storing the topologies of 10.0.0.1 until released. */
+	private static final class RecordingHandler implements SdniInboundMailbox.Handler {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> stored = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch done;
+
+		RecordingHandler(int expected) {
+			done = new CountDownLatch(expected);
+		}
+
+		@Override
+		public void storeTopology(NetworkCapabilities topology) {
+			if ("10.0.0.1".equals(topology.getController())) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			stored.add(topology.getController() + " " + topology.getLink());
+			done.countDown();
+		}
+
+		@Override
+		public void storeQos(List<NetworkCapabilitiesQOS> qos, String controller) {
+			stored.add(controller + " qos " + qos.size());
+			done.countDown();
+		}
+	}
+
+	private SdniInboundMailbox mailbox = null;
+
+	@After
+	public void tearDown() {
+		if (mailbox != null) {
+			mailbox.close();
+		}
+	}
+
+	private static NetworkCapabilities topology(String controller, String link) {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController(controller);
+		topology.setLink(Collections.singletonList(link));
+		return topology;
+	}
+
+	@Test
+	public void testLatestWins() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler(2);
+		mailbox = new SdniInboundMailbox(handler, 2);
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "a"), null, null);
+		assertTrue(handler.blocked.await(5, TimeUnit.SECONDS));
+
+		// while "a" is being stored, "b" is replaced by "c" unstored
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "b"), null, null);
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "c"), null, null);
+		handler.release.countDown();
+		assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, mailbox.getSuperseded());
+		assertEquals(Arrays.asList("10.0.0.1 [a]", "10.0.0.1 [c]"), handler.stored);
+	}
+
+	@Test
+	public void testControllersInParallel() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler(2);
+		mailbox = new SdniInboundMailbox(handler, 2);
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "a"), null, null);
+		assertTrue(handler.blocked.await(5, TimeUnit.SECONDS));
+
+		// a slow store for one controller does not hold up another
+		mailbox.post("10.0.0.2", topology("10.0.0.2", "x"), null, null);
+		for (int i = 0; i < 500 && handler.stored.isEmpty(); i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(Collections.singletonList("10.0.0.2 [x]"), handler.stored);
+		handler.release.countDown();
+		assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSectionsKeptApart() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler(3);
+		mailbox = new SdniInboundMailbox(handler, 1);
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "a"), null, null);
+		assertTrue(handler.blocked.await(5, TimeUnit.SECONDS));
+
+		// a QoS-only state does not replace the topology waiting
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "b"), null, null);
+		mailbox.post("10.0.0.1", null, Collections.singletonList(new NetworkCapabilitiesQOS()), "10.0.0.1");
+		handler.release.countDown();
+		assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+		assertEquals(0, mailbox.getSuperseded());
+		assertEquals("10.0.0.1 [b]", handler.stored.get(1));
+		assertEquals("10.0.0.1 qos 1", handler.stored.get(2));
+	}
+
+	@Test
+	public void testErrorDoesNotStallController() throws InterruptedException {
+		final CountDownLatch stored = new CountDownLatch(1);
+		mailbox = new SdniInboundMailbox(new SdniInboundMailbox.Handler() {
+			@Override
+			public void storeTopology(NetworkCapabilities topology) {
+				if (topology.getLink().contains("a")) {
+					throw new LinkageError("storage bundle gone");
+				}
+				stored.countDown();
+			}
+
+			@Override
+			public void storeQos(List<NetworkCapabilitiesQOS> qos, String controller) {
+			}
+		}, 1);
+		mailbox.post("10.0.0.1", topology("10.0.0.1", "a"), null, null);
+		// the slot of the controller is drained again by the next state
+		for (int i = 0; i < 500 && stored.getCount() > 0; i++) {
+			mailbox.post("10.0.0.1", topology("10.0.0.1", "b"), null, null);
+			Thread.sleep(10);
+		}
+		assertTrue(stored.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the streaming {@link SdniJsonCodec} and the {@link SdniTlvCodec}
+ * with the String and org.json DOM path they replace, on a QoS advertisement
+ * of the given number of ports. Run with main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SdniJsonCodecBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int ports;
+
+	private List<NetworkCapabilitiesQOS> qos;
+	private ByteBuf json;
+	private ByteBuf tlv;
+
+	@Setup
+	public void setUp() throws IOException {
+		qos = new ArrayList<NetworkCapabilitiesQOS>(ports);
+		for (int i = 0; i < ports; i++) {
+			NetworkCapabilitiesQOS port = new NetworkCapabilitiesQOS();
+			port.setController("10.0.0.2");
+			port.setNode("openflow:" + (i / 16 + 1));
+			port.setPort("openflow:" + (i / 16 + 1) + ":" + (i % 16 + 1));
+			port.setBridgePort("s" + (i / 16 + 1) + "-eth" + (i % 16 + 1));
+			port.setReceivePackets(1000000L + i);
+			port.setTransmitPackets(2000000L + i);
+			port.setReceiveCrcError(i % 3);
+			qos.add(port);
+		}
+		json = Unpooled.buffer();
+		SdniJsonCodec.writeQos("10.0.0.2", qos, json);
+		tlv = Unpooled.buffer();
+		SdniTlvCodec.writeHeader(tlv);
+		SdniTlvCodec.writeQos("10.0.0.2", qos, tlv);
+	}
+
+	@Benchmark
+	public ByteBuf legacyEncode() {
+		StringBuilder data = new StringBuilder();
+		data.append("{\"QoSoutput\":{\"controller\":\"10.0.0.2\",\"QoS\":[");
+		boolean flag = false;
+		for (NetworkCapabilitiesQOS ncQoS : qos) {
+			data.append(flag ? "," + ncQoS.toString() : ncQoS.toString());
+			flag = true;
+		}
+		data.append("]}};");
+		return Unpooled.copiedBuffer(data.toString().getBytes());
+	}
+
+	@Benchmark
+	public ByteBuf streamingEncode() throws IOException {
+		ByteBuf out = Unpooled.buffer();
+		SdniJsonCodec.writeQos("10.0.0.2", qos, out);
+		return out;
+	}
+
+	@Benchmark
+	public ByteBuf tlvEncode() {
+		ByteBuf out = Unpooled.buffer();
+		SdniTlvCodec.writeHeader(out);
+		SdniTlvCodec.writeQos("10.0.0.2", qos, out);
+		return out;
+	}
+
+	/**
+	 * The former SdniWrapper.parseSDNIQoSMessage: copy to a String, split on
+	 * ';' and build a DOM per token.
+	 */
+	@Benchmark
+	public List<NetworkCapabilitiesQOS> legacyDecode() {
+		ByteBuf msg = json.duplicate();
+		byte[] bytes = new byte[msg.readableBytes()];
+		msg.getBytes(msg.readerIndex(), bytes);
+		String message = new String(bytes).replace('"', '\"');
+		List<NetworkCapabilitiesQOS> list = new ArrayList<NetworkCapabilitiesQOS>();
+		for (String token : message.split(";")) {
+			if (token.contains("QoSoutput")) {
+				JSONArray jArray = new JSONObject(token).getJSONObject("QoSoutput").getJSONArray("QoS");
+				for (int i = 0; i < jArray.length(); i++) {
+					JSONObject subJson = (JSONObject) jArray.get(i);
+					NetworkCapabilitiesQOS qosData = new NetworkCapabilitiesQOS();
+					qosData.setController(subJson.get("controller").toString());
+					qosData.setNode(subJson.get("node").toString());
+					qosData.setPort(subJson.get("port").toString());
+					qosData.setReceiveCrcError(subJson.getLong("receiveCrcError"));
+					qosData.setReceiveFrameError(subJson.getLong("receiveFrameError"));
+					qosData.setReceiveOverRunError(subJson.getLong("receiveOverRunError"));
+					qosData.setCollisionCount(subJson.getLong("collisionCount"));
+					qosData.setTransmitPackets(subJson.getLong("transmitPackets"));
+					qosData.setReceivePackets(subJson.getLong("receivePackets"));
+					qosData.setBridgePort(subJson.get("bridgePort").toString());
+					list.add(qosData);
+				}
+			}
+		}
+		return list;
+	}
+
+	@Benchmark
+	public SdniMessage streamingDecode() throws IOException {
+		return SdniJsonCodec.read(json.duplicate());
+	}
+
+	@Benchmark
+	public SdniMessage tlvDecode() {
+		return SdniTlvCodec.read(tlv.duplicate());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SdniJsonCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
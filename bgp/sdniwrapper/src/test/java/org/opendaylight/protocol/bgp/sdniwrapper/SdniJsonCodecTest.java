@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class SdniJsonCodecTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(Arrays.asList("openflow:1:1->openflow:2:1", "openflow:2:1->openflow:1:1"));
+		List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>();
+		ports.add(port("openflow:1:1", "s1-eth1", 7));
+		ports.add(port("openflow:1:LOCAL", null, Long.MAX_VALUE));
+
+		ByteBuf buffer = Unpooled.buffer();
+		SdniJsonCodec.writeTopology(topology, buffer);
+		SdniJsonCodec.writeQos("10.0.0.2", ports, buffer);
+		assertFalse(SdniTlvCodec.isTlv(buffer));
+
+		SdniMessage message = SdniJsonCodec.read(buffer);
+		assertFalse(buffer.isReadable());
+		assertTrue(message.acceptsTlv());
+		assertEquals("10.0.0.2", message.getTopology().getController());
+		assertEquals(topology.getLink(), message.getTopology().getLink());
+		assertEquals("10.0.0.2", message.getQosController());
+		assertEquals(2, message.getQos().size());
+		assertEquals("s1-eth1", message.getQos().get(0).getBridgePort());
+		assertEquals(7, message.getQos().get(0).getReceiveCrcError());
+		assertEquals(8, message.getQos().get(0).getReceivePackets());
+		assertNull(message.getQos().get(1).getBridgePort());
+		assertEquals(Long.MAX_VALUE, message.getQos().get(1).getReceiveCrcError());
+	}
+
+	@Test
+	public void testLegacyMessage() throws IOException {
+		String legacy = "{\"TOPOoutput\":{\"controller\":\"10.138.89.79\",\"links\":[\"openflow:3:1->openflow:1:3\"]}};"
+				+ "{\"QoSoutput\":{\"controller\":\"10.138.89.79\",\"QoS\":[{\"controller\":\"10.138.89.79\","
+				+ "\"node\":\"openflow:1\",\"port\":\"openflow:1:2\",\"collisionCount\":\"0\",\"receiveFrameError\":\"0\","
+				+ "\"receiveOverRunError\":\"0\",\"receiveCrcError\":\"12\",\"receivePackets\":\"234\","
+				+ "\"transmitPackets\":123,\"bridgePort\":\"null\",\"extra\":{\"ignored\":[1,2]}}]}};";
+
+		SdniMessage message = SdniJsonCodec.read(Unpooled.copiedBuffer(legacy.getBytes(StandardCharsets.UTF_8)));
+		assertFalse(message.acceptsTlv());
+		assertEquals(Arrays.asList("openflow:3:1->openflow:1:3"), message.getTopology().getLink());
+		NetworkCapabilitiesQOS port = message.getQos().get(0);
+		assertEquals("openflow:1", port.getNode());
+		assertEquals(12, port.getReceiveCrcError());
+		assertEquals(234, port.getReceivePackets());
+		assertEquals(123, port.getTransmitPackets());
+	}
+
+	@Test
+	public void testDeltaRoundTrip() throws IOException {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(Arrays.asList("openflow:1:1->openflow:2:1"));
+		NetworkCapabilitiesQOS removed = new NetworkCapabilitiesQOS();
+		removed.setNode("openflow:3");
+		removed.setPort("openflow:3:1");
+		Map<String, Long> acks = new LinkedHashMap<String, Long>();
+		acks.put("10.0.0.3", 5L);
+		acks.put("10.0.0.4", 0L);
+		SdniMessage message = new SdniMessage();
+		message.setSequence(12, 9);
+		message.setAcks(acks);
+		message.setTopology(topology);
+		message.setRemovedLinks(Arrays.asList("openflow:2:1->openflow:1:1"));
+		message.setQos("10.0.0.2", new ArrayList<NetworkCapabilitiesQOS>());
+		message.setRemovedPorts(Arrays.asList(removed));
+
+		ByteBuf buffer = Unpooled.buffer();
+		SdniJsonCodec.write(message, buffer);
+		SdniMessage read = SdniJsonCodec.read(buffer);
+		assertEquals(12, read.getSequence());
+		assertEquals(9, read.getBase());
+		assertEquals(acks, read.getAcks());
+		assertEquals(topology.getLink(), read.getTopology().getLink());
+		assertEquals(Arrays.asList("openflow:2:1->openflow:1:1"), read.getRemovedLinks());
+		assertTrue(read.getQos().isEmpty());
+		assertEquals("openflow:3", read.getRemovedPorts().get(0).getNode());
+		assertEquals("openflow:3:1", read.getRemovedPorts().get(0).getPort());
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedMessage() throws IOException {
+		String truncated = "{\"TOPOoutput\":{\"controller\":\"10.138.89.79\",\"links\":[\"openflow:3:1";
+		SdniJsonCodec.read(Unpooled.copiedBuffer(truncated.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static NetworkCapabilitiesQOS port(String port, String bridgePort, long crcErrors) {
+		NetworkCapabilitiesQOS qos = new NetworkCapabilitiesQOS();
+		qos.setController("10.0.0.2");
+		qos.setNode("openflow:1");
+		qos.setPort(port);
+		qos.setBridgePort(bridgePort);
+		qos.setReceiveCrcError(crcErrors);
+		qos.setReceivePackets(crcErrors + 1);
+		return qos;
+	}
+}
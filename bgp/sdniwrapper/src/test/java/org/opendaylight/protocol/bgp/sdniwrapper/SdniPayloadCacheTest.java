@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class SdniPayloadCacheTest {
+
+	private static final class BlockingBuilder implements SdniPayloadCache.Builder {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		volatile int builds = 0;
+
+		@Override
+		public ByteBuf build() {
+			builds++;
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+				return null;
+			}
+			ByteBuf body = Unpooled.buffer();
+			body.writeInt(builds);
+			return body;
+		}
+	}
+
+	private SdniPayloadCache cache = null;
+
+	@After
+	public void tearDown() {
+		if (cache != null) {
+			cache.close();
+		}
+	}
+
+	private static ByteBuf awaitPayload(SdniPayloadCache cache, long now) throws InterruptedException {
+		for (int i = 0; i < 500; i++) {
+			ByteBuf payload = cache.get(now);
+			if (payload.isReadable()) {
+				return payload;
+			}
+			payload.release();
+			Thread.sleep(10);
+		}
+		throw new AssertionError("SDNi advertisement not built");
+	}
+
+	@Test
+	public void testBuiltInBackground() throws InterruptedException {
+		BlockingBuilder builder = new BlockingBuilder();
+		cache = new SdniPayloadCache(builder);
+		cache.setInterval(1000, 1000);
+
+		// the caller does not wait for the build
+		assertFalse(cache.get(0).isReadable());
+		builder.release.countDown();
+		ByteBuf first = awaitPayload(cache, 10);
+		ByteBuf second = cache.get(999);
+		assertEquals(1, builder.builds);
+		// each session reads its own duplicate
+		assertEquals(1, first.readInt());
+		assertEquals(1, second.readInt());
+		first.release();
+		second.release();
+
+		// past the interval the last body is sent while the next one is built
+		ByteBuf stale = cache.get(2000);
+		assertEquals(1, stale.readInt());
+		stale.release();
+		ByteBuf fresh = cache.get(2000);
+		for (int i = 0; i < 500 && fresh.getInt(0) == 1; i++) {
+			fresh.release();
+			Thread.sleep(10);
+			fresh = cache.get(2000);
+		}
+		assertEquals(2, fresh.readInt());
+		fresh.release();
+	}
+
+	@Test
+	public void testDeadlineSkipsCycle() throws InterruptedException {
+		BlockingBuilder builder = new BlockingBuilder();
+		cache = new SdniPayloadCache(builder);
+		cache.setInterval(1000, 100);
+
+		assertFalse(cache.get(0).isReadable());
+		assertTrue(builder.started.await(5, TimeUnit.SECONDS));
+		assertFalse(cache.get(99).isReadable());
+		assertFalse(cache.get(100).isReadable());
+		assertTrue(builder.interrupted.await(5, TimeUnit.SECONDS));
+
+		builder.release.countDown();
+		ByteBuf payload = awaitPayload(cache, 200);
+		assertEquals(2, payload.readInt());
+		payload.release();
+	}
+
+	@Test
+	public void testInvalidate() throws InterruptedException {
+		BlockingBuilder builder = new BlockingBuilder();
+		builder.release.countDown();
+		cache = new SdniPayloadCache(builder);
+		cache.setInterval(60000, 1000);
+		ByteBuf held = awaitPayload(cache, 0);
+		cache.invalidate();
+		// still readable by the session holding it
+		assertEquals(1, held.readInt());
+		held.release();
+
+		// the last body is shared, never an empty one, until the new one is built
+		ByteBuf payload = cache.get(1);
+		for (int i = 0; i < 500 && payload.getInt(0) == 1; i++) {
+			payload.release();
+			Thread.sleep(10);
+			payload = cache.get(1);
+		}
+		assertEquals(2, payload.readInt());
+		payload.release();
+	}
+
+	@Test
+	public void testInvalidateDuringBuild() throws InterruptedException {
+		BlockingBuilder builder = new BlockingBuilder();
+		cache = new SdniPayloadCache(builder);
+		cache.setInterval(60000, 60000);
+
+		assertFalse(cache.get(0).isReadable());
+		assertTrue(builder.started.await(5, TimeUnit.SECONDS));
+		// the hung build is interrupted, not left holding the advertiser thread
+		cache.invalidate();
+		assertTrue(builder.interrupted.await(5, TimeUnit.SECONDS));
+
+		builder.release.countDown();
+		ByteBuf payload = awaitPayload(cache, 1);
+		assertEquals(2, payload.readInt());
+		payload.release();
+	}
+
+	@Test
+	public void testRebuild() throws InterruptedException {
+		BlockingBuilder builder = new BlockingBuilder();
+		builder.release.countDown();
+		cache = new SdniPayloadCache(builder);
+		cache.setInterval(60000, 1000);
+		ByteBuf payload = awaitPayload(cache, 0);
+		payload.release();
+
+		final CountDownLatch rebuilt = new CountDownLatch(1);
+		cache.rebuild(1, new Runnable() {
+			@Override
+			public void run() {
+				rebuilt.countDown();
+			}
+		});
+		assertTrue(rebuilt.await(5, TimeUnit.SECONDS));
+		payload = cache.get(2);
+		assertEquals(2, payload.readInt());
+		payload.release();
+	}
+
+	@Test
+	public void testNothingToAdvertise() throws InterruptedException {
+		final CountDownLatch built = new CountDownLatch(1);
+		cache = new SdniPayloadCache(new SdniPayloadCache.Builder() {
+			@Override
+			public ByteBuf build() {
+				built.countDown();
+				return null;
+			}
+		});
+		cache.get(0).release();
+		assertTrue(built.await(5, TimeUnit.SECONDS));
+		ByteBuf payload = cache.get(1);
+		assertFalse(payload.isReadable());
+		payload.release();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.opendaylight.sdninterfaceapp.impl.SdniPeerStateStore;
+
+public class SdniRetentionEngineTest {
+
+	@Test
+	public void testStaleControllersExpireAfterTtl() {
+		SdniPeerStateStore store = new SdniPeerStateStore();
+		SdniRetentionEngine engine = new SdniRetentionEngine(store);
+
+		store.putLinks("10.0.0.2", Collections.singletonList("a->b"));
+		engine.touch("10.0.0.2");
+		engine.touch("10.0.0.3");
+		long now = System.currentTimeMillis();
+
+		assertTrue(engine.expire(now).isEmpty());
+		assertEquals(2, engine.getControllers().size());
+
+		assertEquals(2, engine.expire(now + SdniRetentionEngine.DEFAULT_TTL_MILLIS + 1).size());
+		assertTrue(engine.getControllers().isEmpty());
+		assertTrue(store.getAllPeerTopology().isEmpty());
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class SdniScheduleTest {
+
+	@Test
+	public void testJitter() {
+		SdniSchedule schedule = new SdniSchedule(1000, 30000, 25);
+		Random random = new Random(42);
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			long delay = schedule.nextDelayMillis(random);
+			assertTrue(delay >= 22500 && delay <= 30000);
+			least = Math.min(least, delay);
+		}
+		// the delays spread over the jitter
+		assertTrue(least < 23000);
+	}
+
+	@Test
+	public void testNoJitter() {
+		assertEquals(30000, new SdniSchedule(1000, 30000, 0).nextDelayMillis(new Random()));
+	}
+
+	@Test
+	public void testMinimumInterval() {
+		SdniSchedule schedule = new SdniSchedule(20000, 30000, 100);
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(schedule.nextDelayMillis(random) >= 20000);
+		}
+		assertEquals(15000, schedule.holdDownMillis(5000));
+		assertEquals(0, schedule.holdDownMillis(20000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMinimumAboveMaximum() {
+		new SdniSchedule(30000, 20000, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testJitterAboveHundred() {
+		new SdniSchedule(0, 20000, 101);
+	}
+}
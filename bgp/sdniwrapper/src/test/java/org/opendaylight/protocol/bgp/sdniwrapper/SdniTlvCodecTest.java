@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.protocol.bgp.sdniwrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class SdniTlvCodecTest {
+
+	@Test
+	public void testRoundTrip() {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(Arrays.asList("openflow:1:1->openflow:2:1", "openflow:2:1->openflow:1:1"));
+		List<NetworkCapabilitiesQOS> ports = new ArrayList<NetworkCapabilitiesQOS>();
+		ports.add(port("openflow:1", "openflow:1:1", "s1-eth1", 0));
+		ports.add(port("openflow:1", "openflow:1:LOCAL", null, 300));
+		ports.add(port("openflow:2", "openflow:2:1", "s2-eth1", Long.MAX_VALUE));
+
+		ByteBuf buffer = Unpooled.buffer();
+		SdniTlvCodec.writeHeader(buffer);
+		SdniTlvCodec.writeTopology(topology, buffer);
+		SdniTlvCodec.writeQos("10.0.0.2", ports, buffer);
+		assertTrue(SdniTlvCodec.isTlv(buffer));
+
+		SdniMessage message = SdniTlvCodec.read(buffer);
+		assertFalse(buffer.isReadable());
+		assertTrue(message.acceptsTlv());
+		assertEquals("10.0.0.2", message.getTopology().getController());
+		assertEquals(topology.getLink(), message.getTopology().getLink());
+		assertEquals("10.0.0.2", message.getQosController());
+		assertEquals(3, message.getQos().size());
+		NetworkCapabilitiesQOS local = message.getQos().get(1);
+		assertEquals("10.0.0.2", local.getController());
+		assertEquals("openflow:1", local.getNode());
+		assertEquals("openflow:1:LOCAL", local.getPort());
+		assertNull(local.getBridgePort());
+		assertEquals(300, local.getReceiveCrcError());
+		assertEquals(301, local.getTransmitPackets());
+		assertEquals(Long.MAX_VALUE, message.getQos().get(2).getReceiveCrcError());
+		assertEquals("openflow:2", message.getQos().get(2).getNode());
+	}
+
+	@Test
+	public void testJsonIsNotTlv() {
+		assertFalse(SdniTlvCodec.isTlv(Unpooled.copiedBuffer("{\"TOPOoutput\":{}};".getBytes())));
+	}
+
+	@Test
+	public void testUnknownTlvIsSkipped() {
+		ByteBuf buffer = Unpooled.buffer();
+		SdniTlvCodec.writeHeader(buffer);
+		buffer.writeByte(99);
+		buffer.writeInt(3);
+		buffer.writeByte(1);
+		buffer.writeByte(2);
+		buffer.writeByte(3);
+		SdniTlvCodec.writeQos("10.0.0.3", new ArrayList<NetworkCapabilitiesQOS>(), buffer);
+
+		SdniMessage message = SdniTlvCodec.read(buffer);
+		assertNull(message.getTopology());
+		assertEquals("10.0.0.3", message.getQosController());
+		assertTrue(message.getQos().isEmpty());
+	}
+
+	@Test
+	public void testDeltaRoundTrip() {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(Arrays.asList("openflow:1:1->openflow:2:1"));
+		NetworkCapabilitiesQOS removed = new NetworkCapabilitiesQOS();
+		removed.setNode("openflow:3");
+		removed.setPort("openflow:3:1");
+		Map<String, Long> acks = new LinkedHashMap<String, Long>();
+		acks.put("10.0.0.3", 5L);
+		acks.put("10.0.0.4", 0L);
+		SdniMessage message = new SdniMessage();
+		message.setSequence(12, 9);
+		message.setAcks(acks);
+		message.setTopology(topology);
+		message.setRemovedLinks(Arrays.asList("openflow:2:1->openflow:1:1"));
+		message.setQos("10.0.0.2", new ArrayList<NetworkCapabilitiesQOS>());
+		message.setRemovedPorts(Arrays.asList(removed));
+
+		ByteBuf buffer = Unpooled.buffer();
+		SdniTlvCodec.write(message, buffer);
+		SdniMessage read = SdniTlvCodec.read(buffer);
+		assertEquals(12, read.getSequence());
+		assertEquals(9, read.getBase());
+		assertEquals(acks, read.getAcks());
+		assertEquals(topology.getLink(), read.getTopology().getLink());
+		assertEquals(Arrays.asList("openflow:2:1->openflow:1:1"), read.getRemovedLinks());
+		assertTrue(read.getQos().isEmpty());
+		assertEquals("openflow:3", read.getRemovedPorts().get(0).getNode());
+		assertEquals("openflow:3:1", read.getRemovedPorts().get(0).getPort());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedMessage() {
+		NetworkCapabilities topology = new NetworkCapabilities();
+		topology.setController("10.0.0.2");
+		topology.setLink(Arrays.asList("openflow:1:1->openflow:2:1"));
+		ByteBuf buffer = Unpooled.buffer();
+		SdniTlvCodec.writeHeader(buffer);
+		SdniTlvCodec.writeTopology(topology, buffer);
+		SdniTlvCodec.read(buffer.slice(0, buffer.readableBytes() - 4));
+	}
+
+	private static NetworkCapabilitiesQOS port(String node, String port, String bridgePort, long crcErrors) {
+		NetworkCapabilitiesQOS qos = new NetworkCapabilitiesQOS();
+		qos.setController("10.0.0.2");
+		qos.setNode(node);
+		qos.setPort(port);
+		qos.setBridgePort(bridgePort);
+		qos.setReceiveCrcError(crcErrors);
+		qos.setTransmitPackets(crcErrors + 1);
+		return qos;
+	}
+}
@@ -60,7 +60,7 @@ public class parsesdniqosmessageTest extends TestCase{
         Defaultbytes = s.toString().getBytes();
         Sdnibytes= Unpooled.copiedBuffer(Defaultbytes);
         SdniWrapper Sw=SdniWrapper.getInstance();
-        Sw.parseSDNIQoSMessage(Sdnibytes);
+        Sw.parseSDNIMessage(Sdnibytes);
 
         try{
             Class.forName(JDBC_DRIVER);
@@ -48,7 +48,7 @@ public class parsesdnitoplologymessageTest extends TestCase{
         defaultbytes = s.toString().getBytes();
         sdnibytes = Unpooled.copiedBuffer(defaultbytes);
         SdniWrapper sw=SdniWrapper.getInstance();
-        sw.parseSDNITopoMessage(sdnibytes);
+        sw.parseSDNIMessage(sdnibytes);
         try{
             Class.forName(JDBC_DRIVER);
             conn = DriverManager.getConnection(DB_URL);
@@ -9,7 +9,9 @@
 package org.opendaylight.sdninterfaceapp.impl;
 
 import com.google.common.base.Optional;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
@@ -32,12 +34,27 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnector;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.AddTrustedControllerInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetAllPeerNodeConnectorsStatisticsOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetPeerNodeConnectorsStatisticsHistoryOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetPeerNodeConnectorsStatisticsInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetPeerNodeConnectorsStatisticsOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetPeerNodeConnectorsStatisticsOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetTrustedControllersOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetTrustedControllersOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.GetPeerNodeConnectorsStatisticsHistoryOutputBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.OpendaylightSdniQosMsgService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.RemoveTrustedControllerInput;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.SdnControllers;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.SdnControllersBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.all.peer.node.connectors.statistics.output.Controllers;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.all.peer.node.connectors.statistics.output.ControllersBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.ControllerHistory;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.ControllerHistoryBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.controller.history.PortHistory;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.controller.history.PortHistoryBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.controller.history.port.history.Samples;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.history.output.controller.history.port.history.SamplesBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.nodes.NodeList;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.nodes.NodeListBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.nodes.NodeListKey;
@@ -48,6 +65,7 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninter
 import org.opendaylight.yang.gen.v1.urn.opendaylight.port.statistics.rev131214.FlowCapableNodeConnectorStatisticsData;
 import org.opendaylight.yangtools.yang.binding.DataObject;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.common.RpcError.ErrorType;
 import org.opendaylight.yangtools.yang.common.RpcResult;
 import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
 import org.slf4j.Logger;
@@ -60,6 +78,9 @@ public class OpendaylightSdniQosMsgServiceImpl implements OpendaylightSdniQosMsg
 	private List<String> sdnControllers = new ArrayList<String>();
 	private InstanceIdentifier<SdnControllers> instanceIdentifier = InstanceIdentifier.builder(SdnControllers.class).build();
 	private DataBroker dataBroker;
+	private SdniPeerStateStore peerStateStore = SdniPeerStateStore.getInstance();
+	private SdniTrustedControllers trustedControllers = SdniTrustedControllers.getInstance();
+	private SdniStorage storage = null;
 
 	private OpendaylightSdniQosMsgServiceImpl(){
 		//getAllNodeConnectorsStatistics();
@@ -294,9 +315,7 @@ public class OpendaylightSdniQosMsgServiceImpl implements OpendaylightSdniQosMsg
 		List<Controllers> controllers = new ArrayList<Controllers>();
 
 		try {
-			SdniDataBase sdb = new SdniDataBase();
-
-			Map<String,Map<String,Map<String, PortStatistics>>> qosData = sdb.getAllQoSPeerData();
+			Map<String,Map<String,Map<String, PortStatistics>>> qosData = peerStateStore.getAllQoSPeerData();
 			if ( qosData != null && !qosData.isEmpty() )
 			{
 				//get controller info
@@ -335,27 +354,7 @@ public class OpendaylightSdniQosMsgServiceImpl implements OpendaylightSdniQosMsg
 										{
 											for ( String port : portsList )
 											{
-												PortStatistics portStatistics = ncList.get(port);
-
-												PortListBuilder portListBuilder = new PortListBuilder();
-
-												List<PortParams> portparams = new ArrayList<PortParams>();
-												PortParamsBuilder portparamsBuilder = new PortParamsBuilder();
-
-												portparamsBuilder.setCollisionCount(new BigInteger(portStatistics.getCollisionCount()));
-												portparamsBuilder.setReceiveCrcError(new BigInteger(portStatistics.getReceiveCrcError()));
-
-												portparamsBuilder.setReceiveDrops(new BigInteger(portStatistics.getReceivePackets()));
-
-												portparamsBuilder.setReceiveFrameError(new BigInteger(portStatistics.getReceiveFrameError()));
-												portparamsBuilder.setReceiveOverRunError(new BigInteger(portStatistics.getReceiveOverRunError()));
-												portparamsBuilder.setTransmitDrops(new BigInteger(portStatistics.getTransmitPackets()));
-
-												portparams.add(portparamsBuilder.build());
-												portListBuilder.setPortId(port);
-												portListBuilder.setPortParams(portparams);
-
-												ports.add(portListBuilder.build());
+												ports.add(toPortList(port, ncList.get(port)));
 											}
 										}
 									}
@@ -404,7 +403,207 @@ public class OpendaylightSdniQosMsgServiceImpl implements OpendaylightSdniQosMsg
 		return RpcResultBuilder.success(outputBuilder.build()).buildFuture();
 	}
 
+	private static PortList toPortList(String port, PortStatistics portStatistics) {
+		PortListBuilder portListBuilder = new PortListBuilder();
+
+		List<PortParams> portparams = new ArrayList<PortParams>();
+		PortParamsBuilder portparamsBuilder = new PortParamsBuilder();
+
+		portparamsBuilder.setCollisionCount(BigInteger.valueOf(portStatistics.getCollisionCount()));
+		portparamsBuilder.setReceiveCrcError(BigInteger.valueOf(portStatistics.getReceiveCrcError()));
+
+		portparamsBuilder.setReceiveDrops(BigInteger.valueOf(portStatistics.getReceivePackets()));
+
+		portparamsBuilder.setReceiveFrameError(BigInteger.valueOf(portStatistics.getReceiveFrameError()));
+		portparamsBuilder.setReceiveOverRunError(BigInteger.valueOf(portStatistics.getReceiveOverRunError()));
+		portparamsBuilder.setTransmitDrops(BigInteger.valueOf(portStatistics.getTransmitPackets()));
+
+		portparams.add(portparamsBuilder.build());
+		portListBuilder.setPortId(port);
+		portListBuilder.setPortParams(portparams);
+		return portListBuilder.build();
+	}
+
+	@Override
+	public Future<RpcResult<GetPeerNodeConnectorsStatisticsOutput>> getPeerNodeConnectorsStatistics(
+			GetPeerNodeConnectorsStatisticsInput input) {
+		logger.info("In getPeerNodeConnectorsStatistics START");
+		SdniQosPage page;
+		try {
+			SdniQosQuery.Builder queryBuilder = SdniQosQuery.builder();
+			if ( input != null )
+			{
+				queryBuilder.setControllerIp(input.getControllerIp());
+				queryBuilder.setNodeIdPrefix(input.getNodeIdPrefix());
+				queryBuilder.setPortId(input.getPortId());
+				queryBuilder.setCursor(input.getCursor());
+				if ( input.getMinReceiveErrors() != null )
+				{
+					queryBuilder.setMinReceiveErrors(input.getMinReceiveErrors().min(BigInteger.valueOf(Long.MAX_VALUE)).longValue());
+				}
+				if ( input.getLimit() != null )
+				{
+					queryBuilder.setLimit((int) Math.min(input.getLimit(), SdniQosQuery.MAX_LIMIT));
+				}
+			}
+			page = peerStateStore.queryQos(queryBuilder.build());
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid input of getPeerNodeConnectorsStatistics : {}", e.getMessage());
+			return RpcResultBuilder.<GetPeerNodeConnectorsStatisticsOutput>failed()
+					.withError(ErrorType.PROTOCOL, "invalid-value", e.getMessage()).buildFuture();
+		}
+
+		List<org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.
+		get.peer.node.connectors.statistics.output.Controllers> controllers = new ArrayList<org.opendaylight.yang.gen.v1.urn.
+		opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.output.Controllers>();
+		for ( Map.Entry<String, Map<String, Map<String, PortStatistics>>> controller : page.getControllers().entrySet() )
+		{
+			List<NodeList> nodeList = new ArrayList<NodeList>();
+			for ( Map.Entry<String, Map<String, PortStatistics>> node : controller.getValue().entrySet() )
+			{
+				List<PortList> ports = new ArrayList<PortList>();
+				for ( Map.Entry<String, PortStatistics> port : node.getValue().entrySet() )
+				{
+					ports.add(toPortList(port.getKey(), port.getValue()));
+				}
+				NodeListBuilder nLBuilder = new NodeListBuilder();
+				nLBuilder.setNodeId(node.getKey());
+				nLBuilder.setPortList(ports);
+				nodeList.add(nLBuilder.build());
+			}
+			org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.
+			connectors.statistics.output.ControllersBuilder crtlBuilder = new org.opendaylight.yang.gen.v1.urn.opendaylight.params.
+			xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.get.peer.node.connectors.statistics.output.ControllersBuilder();
+			crtlBuilder.setControllerIp(controller.getKey());
+			crtlBuilder.setNodeList(nodeList);
+			controllers.add(crtlBuilder.build());
+		}
+		logger.info("In getPeerNodeConnectorsStatistics ports : {}, next cursor : {}", page.size(), page.getNextCursor());
+
+		GetPeerNodeConnectorsStatisticsOutputBuilder outputBuilder = new GetPeerNodeConnectorsStatisticsOutputBuilder();
+		outputBuilder.setControllers(controllers);
+		outputBuilder.setNextCursor(page.getNextCursor());
+		return RpcResultBuilder.success(outputBuilder.build()).buildFuture();
+	}
+
+	@Override
+	public Future<RpcResult<GetPeerNodeConnectorsStatisticsHistoryOutput>> getPeerNodeConnectorsStatisticsHistory() {
+		logger.info("In getPeerNodeConnectorsStatisticsHistory START");
+		List<ControllerHistory> controllers = new ArrayList<ControllerHistory>();
+
+		Map<String, Map<String, Map<String, List<SdniQosHistory.Sample>>>> history = peerStateStore.getQosHistory().getAll();
+		for ( Map.Entry<String, Map<String, Map<String, List<SdniQosHistory.Sample>>>> controller : history.entrySet() )
+		{
+			List<PortHistory> ports = new ArrayList<PortHistory>();
+			for ( Map.Entry<String, Map<String, List<SdniQosHistory.Sample>>> node : controller.getValue().entrySet() )
+			{
+				for ( Map.Entry<String, List<SdniQosHistory.Sample>> port : node.getValue().entrySet() )
+				{
+					List<Samples> samples = new ArrayList<Samples>();
+					for ( SdniQosHistory.Sample sample : port.getValue() )
+					{
+						samples.add(toSamples(sample));
+					}
+					PortHistoryBuilder portHistoryBuilder = new PortHistoryBuilder();
+					portHistoryBuilder.setNodeId(node.getKey());
+					portHistoryBuilder.setPortId(port.getKey());
+					portHistoryBuilder.setSamples(samples);
+					ports.add(portHistoryBuilder.build());
+				}
+			}
+			ControllerHistoryBuilder controllerBuilder = new ControllerHistoryBuilder();
+			controllerBuilder.setControllerIp(controller.getKey());
+			controllerBuilder.setPortHistory(ports);
+			controllers.add(controllerBuilder.build());
+		}
+		logger.info("In getPeerNodeConnectorsStatisticsHistory controllers : {}", controllers.size());
+
+		GetPeerNodeConnectorsStatisticsHistoryOutputBuilder outputBuilder = new GetPeerNodeConnectorsStatisticsHistoryOutputBuilder();
+		outputBuilder.setControllerHistory(controllers);
+		return RpcResultBuilder.success(outputBuilder.build()).buildFuture();
+	}
+
+	private static Samples toSamples(SdniQosHistory.Sample sample) {
+		PortStatistics statistics = sample.getStatistics();
+		SamplesBuilder samplesBuilder = new SamplesBuilder();
+		samplesBuilder.setTimestamp(BigInteger.valueOf(sample.getTimestampMillis()));
+		samplesBuilder.setReceivePackets(BigInteger.valueOf(statistics.getReceivePackets()));
+		samplesBuilder.setTransmitPackets(BigInteger.valueOf(statistics.getTransmitPackets()));
+		samplesBuilder.setReceiveErrors(BigInteger.valueOf(statistics.getReceiveFrameError())
+				.add(BigInteger.valueOf(statistics.getReceiveOverRunError()))
+				.add(BigInteger.valueOf(statistics.getReceiveCrcError())));
+		samplesBuilder.setCollisionCount(BigInteger.valueOf(statistics.getCollisionCount()));
+		if ( sample.hasRates() )
+		{
+			samplesBuilder.setReceivePacketsRate(toRate(sample.getReceivePacketsPerSecond()));
+			samplesBuilder.setTransmitPacketsRate(toRate(sample.getTransmitPacketsPerSecond()));
+			samplesBuilder.setReceiveErrorsRate(toRate(sample.getErrorsPerSecond()));
+			samplesBuilder.setCollisionRate(toRate(sample.getCollisionsPerSecond()));
+		}
+		return samplesBuilder.build();
+	}
+
+	private static BigDecimal toRate(double perSecond) {
+		return BigDecimal.valueOf(perSecond).setScale(3, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public Future<RpcResult<Void>> addTrustedController(AddTrustedControllerInput input) {
+		String controllerIp = input == null ? null : input.getControllerIp();
+		logger.info("In addTrustedController : {}", controllerIp);
+		if ( controllerIp == null || controllerIp.isEmpty() )
+		{
+			return RpcResultBuilder.<Void>failed()
+					.withError(ErrorType.PROTOCOL, "invalid-value", "controller-ip is required").buildFuture();
+		}
+		if ( storage == null || !trustedControllers.add(storage, controllerIp) )
+		{
+			return RpcResultBuilder.<Void>failed()
+					.withError(ErrorType.APPLICATION, "operation-failed", "Cannot store trusted controller " + controllerIp).buildFuture();
+		}
+		return RpcResultBuilder.<Void>success().buildFuture();
+	}
+
+	@Override
+	public Future<RpcResult<Void>> removeTrustedController(RemoveTrustedControllerInput input) {
+		String controllerIp = input == null ? null : input.getControllerIp();
+		logger.info("In removeTrustedController : {}", controllerIp);
+		if ( controllerIp == null || controllerIp.isEmpty() )
+		{
+			return RpcResultBuilder.<Void>failed()
+					.withError(ErrorType.PROTOCOL, "invalid-value", "controller-ip is required").buildFuture();
+		}
+		if ( storage == null || !trustedControllers.remove(storage, controllerIp) )
+		{
+			return RpcResultBuilder.<Void>failed()
+					.withError(ErrorType.APPLICATION, "operation-failed", "Cannot remove trusted controller " + controllerIp).buildFuture();
+		}
+		return RpcResultBuilder.<Void>success().buildFuture();
+	}
+
+	@Override
+	public Future<RpcResult<GetTrustedControllersOutput>> getTrustedControllers() {
+		GetTrustedControllersOutputBuilder outputBuilder = new GetTrustedControllersOutputBuilder();
+		outputBuilder.setControllerIp(new ArrayList<String>(trustedControllers.getControllers()));
+		return RpcResultBuilder.success(outputBuilder.build()).buildFuture();
+	}
+
 	public void setDataBroker(final DataBroker dataBroker) {
 		this.dataBroker = dataBroker;
 	}
+
+	public void setPeerStateStore(final SdniPeerStateStore peerStateStore) {
+		this.peerStateStore = peerStateStore;
+	}
+
+	/**
+	 * Set the storage the trusted-controller RPCs write through to.
+	 */
+	public void setStorage(final SdniStorage storage) {
+		this.storage = storage;
+	}
+
+	public void setTrustedControllers(final SdniTrustedControllers trustedControllers) {
+		this.trustedControllers = trustedControllers;
+	}
 }
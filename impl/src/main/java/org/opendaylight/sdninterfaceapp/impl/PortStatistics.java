@@ -7,103 +7,108 @@
  */
 
 package org.opendaylight.sdninterfaceapp.impl;
-	
-	
-	
-public class PortStatistics{
 
+import java.util.Objects;
 
-	private String receivePackets;
-	private String transmitPackets;
-	private String collisionCount;
-	private String receiveFrameError;
-	private String receiveOverRunError;
-	private String receiveCrcError;
-	private String nodeID;
-	private String portID;
-	private String portName;
-	private String controller;
-
+/**
+ * Immutable statistics of one switch port as exchanged over SDNi. Counters
+ * are kept as primitive longs; instances are created with {@link #builder()}.
+ */
+public final class PortStatistics {
+
+	private final String controller;
+	private final String nodeID;
+	private final String portID;
+	private final String portName;
+	private final long receivePackets;
+	private final long transmitPackets;
+	private final long collisionCount;
+	private final long receiveFrameError;
+	private final long receiveOverRunError;
+	private final long receiveCrcError;
+
+	private PortStatistics(Builder builder) {
+		this.controller = builder.controller;
+		this.nodeID = builder.nodeID;
+		this.portID = builder.portID;
+		this.portName = builder.portName;
+		this.receivePackets = builder.receivePackets;
+		this.transmitPackets = builder.transmitPackets;
+		this.collisionCount = builder.collisionCount;
+		this.receiveFrameError = builder.receiveFrameError;
+		this.receiveOverRunError = builder.receiveOverRunError;
+		this.receiveCrcError = builder.receiveCrcError;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
 
 	public String getController() {
 		return controller;
 	}
 
-	public void setController(String controller) {
-		this.controller = controller;
+	public String getNodeID() {
+		return nodeID;
 	}
 
-	public String getReceivePackets() {
-		return receivePackets;
+	public String getPortID() {
+		return portID;
 	}
 
-	public void setReceivePackets(String receivePackets) {
-		this.receivePackets = receivePackets;
+	public String getPortName() {
+		return portName;
 	}
 
-	public String getTransmitPackets() {
-		return transmitPackets;
+	public long getReceivePackets() {
+		return receivePackets;
 	}
 
-	public void setTransmitPackets(String transmitPackets) {
-		this.transmitPackets = transmitPackets;
+	public long getTransmitPackets() {
+		return transmitPackets;
 	}
 
-	public String getCollisionCount() {
+	public long getCollisionCount() {
 		return collisionCount;
 	}
 
-	public void setCollisionCount(String collisionCount) {
-		this.collisionCount = collisionCount;
-	}
-
-	public String getReceiveFrameError() {
+	public long getReceiveFrameError() {
 		return receiveFrameError;
 	}
 
-	public void setReceiveFrameError(String receiveFrameErrors) {
-		this.receiveFrameError = receiveFrameErrors;
-	}
-
-	public String getReceiveOverRunError() {
+	public long getReceiveOverRunError() {
 		return receiveOverRunError;
 	}
 
-	public void setReceiveOverRunError(String receiveOverRunErrors) {
-		this.receiveOverRunError = receiveOverRunErrors;
-	}
-
-	public String getReceiveCrcError() {
+	public long getReceiveCrcError() {
 		return receiveCrcError;
 	}
 
-	public void setReceiveCrcError(String receiveCrcErrors) {
-		this.receiveCrcError = receiveCrcErrors;
-	}
-
-	public String getNodeID() {
-		return nodeID;
-	}
-
-	public void setNodeID(String nodeID) {
-		this.nodeID = nodeID;
-	}
-
-	
-	public String getPortID() {
-		return portID;
-	}
-
-	public void setPortID(String portID) {
-		this.portID = portID;
-	}
-	
-	public String getPortName() {
-		return portName;
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PortStatistics)) {
+			return false;
+		}
+		PortStatistics other = (PortStatistics) obj;
+		return receivePackets == other.receivePackets
+				&& transmitPackets == other.transmitPackets
+				&& collisionCount == other.collisionCount
+				&& receiveFrameError == other.receiveFrameError
+				&& receiveOverRunError == other.receiveOverRunError
+				&& receiveCrcError == other.receiveCrcError
+				&& Objects.equals(controller, other.controller)
+				&& Objects.equals(nodeID, other.nodeID)
+				&& Objects.equals(portID, other.portID)
+				&& Objects.equals(portName, other.portName);
 	}
 
-	public void setPortName(String portName) {
-		this.portName = portName;
+	@Override
+	public int hashCode() {
+		return Objects.hash(controller, nodeID, portID, portName, receivePackets, transmitPackets,
+				collisionCount, receiveFrameError, receiveOverRunError, receiveCrcError);
 	}
 
 	@Override
@@ -113,16 +118,86 @@ public class PortStatistics{
 		sb.append("\"controller\":\""+controller+"\"");
 		sb.append(",\"nodeID\":\""+nodeID+"\"");
 		sb.append(",\"portID\":\""+portID+"\"");
-		sb.append(",\"collisionCount\":\""+collisionCount+"\"");
-		sb.append(",\"receiveFrameError\":\""+receiveFrameError+"\"");
-		sb.append(",\"receiveOverRunError\":\""+receiveOverRunError+"\"");
-		sb.append(",\"receiveCrcError\":\""+receiveCrcError+"\"");
-		sb.append(",\"receivePackets\":\""+receivePackets+"\"");
-		sb.append(",\"transmitPackets\":\""+transmitPackets+"\"");
+		sb.append(",\"collisionCount\":"+collisionCount);
+		sb.append(",\"receiveFrameError\":"+receiveFrameError);
+		sb.append(",\"receiveOverRunError\":"+receiveOverRunError);
+		sb.append(",\"receiveCrcError\":"+receiveCrcError);
+		sb.append(",\"receivePackets\":"+receivePackets);
+		sb.append(",\"transmitPackets\":"+transmitPackets);
 		sb.append(",\"portName\":\""+portName+"\"");
 		sb.append("}");
 
 		return sb.toString();
 	}
-}
 
+	public static final class Builder {
+
+		private String controller;
+		private String nodeID;
+		private String portID;
+		private String portName;
+		private long receivePackets;
+		private long transmitPackets;
+		private long collisionCount;
+		private long receiveFrameError;
+		private long receiveOverRunError;
+		private long receiveCrcError;
+
+		private Builder() {
+		}
+
+		public Builder setController(String controller) {
+			this.controller = controller;
+			return this;
+		}
+
+		public Builder setNodeID(String nodeID) {
+			this.nodeID = nodeID;
+			return this;
+		}
+
+		public Builder setPortID(String portID) {
+			this.portID = portID;
+			return this;
+		}
+
+		public Builder setPortName(String portName) {
+			this.portName = portName;
+			return this;
+		}
+
+		public Builder setReceivePackets(long receivePackets) {
+			this.receivePackets = receivePackets;
+			return this;
+		}
+
+		public Builder setTransmitPackets(long transmitPackets) {
+			this.transmitPackets = transmitPackets;
+			return this;
+		}
+
+		public Builder setCollisionCount(long collisionCount) {
+			this.collisionCount = collisionCount;
+			return this;
+		}
+
+		public Builder setReceiveFrameError(long receiveFrameError) {
+			this.receiveFrameError = receiveFrameError;
+			return this;
+		}
+
+		public Builder setReceiveOverRunError(long receiveOverRunError) {
+			this.receiveOverRunError = receiveOverRunError;
+			return this;
+		}
+
+		public Builder setReceiveCrcError(long receiveCrcError) {
+			this.receiveCrcError = receiveCrcError;
+			return this;
+		}
+
+		public PortStatistics build() {
+			return new PortStatistics(this);
+		}
+	}
+}
@@ -13,6 +13,8 @@ import org.opendaylight.controller.sal.binding.api.BindingAwareBroker.ProviderCo
 import org.opendaylight.controller.sal.binding.api.BindingAwareBroker.RpcRegistration;
 import org.opendaylight.controller.sal.binding.api.BindingAwareProvider;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.qos.msg.rev151006.OpendaylightSdniQosMsgService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.port.statistics.rev131214.FlowCapableNodeConnectorStatisticsData;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,9 +23,23 @@ public class QosDataServiceProvider implements BindingAwareProvider, AutoCloseab
     private final Logger logger = LoggerFactory.getLogger(QosDataServiceProvider.class);
     private RpcRegistration<OpendaylightSdniQosMsgService> qosDataServiceRpcReg;
     private final DataBroker dataBroker;
+    private final SdniConnectionManager connectionManager;
+    private final SdniStorage storage;
+    private ListenerRegistration<SdniChangeListener<FlowCapableNodeConnectorStatisticsData>> statisticsListenerReg;
 
     public QosDataServiceProvider(final DataBroker dataBroker) {
+        this(dataBroker, SdniStorageBackend.SQLITE);
+    }
+
+    public QosDataServiceProvider(final DataBroker dataBroker, final SdniStorageBackend storageBackend) {
+        this(dataBroker, SdniConnectionManager.getInstance(), storageBackend);
+    }
+
+    public QosDataServiceProvider(final DataBroker dataBroker, final SdniConnectionManager connectionManager,
+            final SdniStorageBackend storageBackend) {
         this.dataBroker = dataBroker;
+        this.connectionManager = connectionManager.acquire();
+        this.storage = storageBackend.open(this.connectionManager);
     }
 
     @Override
@@ -31,9 +47,10 @@ public class QosDataServiceProvider implements BindingAwareProvider, AutoCloseab
         logger.info("Provider Session initialized");
         final OpendaylightSdniQosMsgServiceImpl opendaylightSdniQosMsgService = OpendaylightSdniQosMsgServiceImpl.getInstance();
         opendaylightSdniQosMsgService.setDataBroker(dataBroker);
+        opendaylightSdniQosMsgService.setStorage(storage);
+        SdniTrustedControllers.getInstance().reload(storage);
         qosDataServiceRpcReg = session.addRpcImplementation(OpendaylightSdniQosMsgService.class, opendaylightSdniQosMsgService);
-        SdniDataBase sdb = new SdniDataBase();
-        sdb.create_trusted_controllers();
+        statisticsListenerReg = SdniChangeListener.registerStatistics(dataBroker, SdniChangeNotifier.getInstance());
     }
 
     @Override
@@ -42,6 +59,10 @@ public class QosDataServiceProvider implements BindingAwareProvider, AutoCloseab
         if (qosDataServiceRpcReg != null) {
             qosDataServiceRpcReg.close();
         }
+        if (statisticsListenerReg != null) {
+            statisticsListenerReg.close();
+        }
+        connectionManager.release();
     }
 }
 
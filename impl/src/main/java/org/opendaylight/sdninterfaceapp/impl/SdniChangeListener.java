@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.Collection;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.node.NodeConnector;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.port.statistics.rev131214.FlowCapableNodeConnectorStatisticsData;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells the {@link SdniChangeNotifier} of each change of an operational
+ * subtree, so SDNi advertisements follow the changes rather than a timer.
+ */
+public final class SdniChangeListener<T extends DataObject> implements DataTreeChangeListener<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniChangeListener.class);
+
+    static final InstanceIdentifier<NetworkTopology> TOPOLOGY_IDENTIFIER = InstanceIdentifier.create(NetworkTopology.class);
+
+    static final InstanceIdentifier<FlowCapableNodeConnectorStatisticsData> STATISTICS_IDENTIFIER = InstanceIdentifier
+            .create(Nodes.class).child(Node.class).child(NodeConnector.class)
+            .augmentation(FlowCapableNodeConnectorStatisticsData.class);
+
+    private final Runnable onChange;
+
+    private SdniChangeListener(final Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    @Override
+    public void onDataTreeChanged(final Collection<DataTreeModification<T>> changes) {
+        if ( !changes.isEmpty() ) {
+            onChange.run();
+        }
+    }
+
+    /**
+     * Listen to the operational network-topology.
+     */
+    public static ListenerRegistration<SdniChangeListener<NetworkTopology>> registerTopology(final DataBroker dataBroker,
+            final SdniChangeNotifier notifier) {
+        LOG.info("Listening to the topology changes for SDNi");
+        return dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<NetworkTopology>(LogicalDatastoreType.OPERATIONAL, TOPOLOGY_IDENTIFIER),
+                new SdniChangeListener<NetworkTopology>(new Runnable() {
+                    @Override
+                    public void run() {
+                        notifier.topologyChanged();
+                    }
+                }));
+    }
+
+    /**
+     * Listen to the operational statistics of every node connector.
+     */
+    public static ListenerRegistration<SdniChangeListener<FlowCapableNodeConnectorStatisticsData>> registerStatistics(
+            final DataBroker dataBroker, final SdniChangeNotifier notifier) {
+        LOG.info("Listening to the port statistics changes for SDNi");
+        return dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<FlowCapableNodeConnectorStatisticsData>(LogicalDatastoreType.OPERATIONAL,
+                        STATISTICS_IDENTIFIER),
+                new SdniChangeListener<FlowCapableNodeConnectorStatisticsData>(new Runnable() {
+                    @Override
+                    public void run() {
+                        notifier.statisticsChanged();
+                    }
+                }));
+    }
+}
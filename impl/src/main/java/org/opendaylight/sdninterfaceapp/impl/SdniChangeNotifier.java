@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+/**
+ * Relays the changes of the local topology and port statistics seen by the
+ * {@link SdniChangeListener}s to the SDNi advertisement, which subscribes
+ * with {@link #setListener}. Changes seen with no subscriber are ignored.
+ */
+public final class SdniChangeNotifier {
+
+    /**
+     * Told of the changes, on the datastore notification threads, so it must
+     * return quickly.
+     */
+    public interface Listener {
+        void onTopologyChanged();
+
+        void onStatisticsChanged();
+    }
+
+    private static final SdniChangeNotifier INSTANCE = new SdniChangeNotifier();
+
+    private volatile Listener listener = null;
+
+    public SdniChangeNotifier() {
+    }
+
+    public static SdniChangeNotifier getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param listener the subscriber, or null to unsubscribe
+     */
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    public void topologyChanged() {
+        final Listener l = listener;
+        if ( l != null ) {
+            l.onTopologyChanged();
+        }
+    }
+
+    public void statisticsChanged() {
+        final Listener l = listener;
+        if ( l != null ) {
+            l.onStatisticsChanged();
+        }
+    }
+}
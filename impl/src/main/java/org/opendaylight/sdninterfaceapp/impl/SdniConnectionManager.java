@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Owns the long-lived SQLite connection shared by {@link SdniDataBase}, the
+ * SdniWrapper and its cleanup task.
+ *
+ * The connection is opened lazily on first use and kept open across calls;
+ * opening it also migrates the database to the current {@link SdniSchema}.
+ * Provider modules {@link #acquire()} the manager when they start and
+ * {@link #release()} it when they are closed; the connection is closed once the
+ * last owner has released it.
+ *
+ * The database runs in WAL mode. All writes go through the single shared
+ * connection, while {@link #runReadOnly(ReadWork)} hands out separate
+ * read-only connections that read a snapshot without taking the manager lock
+ * or blocking the writer.
+ *
+ * It also carries the {@link SdniStorageBackend} selected by the
+ * sdninterfaceapp module, so that every module opens the same storage.
+ */
+public final class SdniConnectionManager implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniConnectionManager.class);
+
+    public static final String DEFAULT_DB_URL = "jdbc:sqlite:sdninterfaceapp:db";
+
+    private static final String JDBC_DRIVER = "org.sqlite.JDBC";
+
+    /** Page cache per connection, in KiB (negative cache_size). */
+    private static final int CACHE_SIZE_KIB = 8192;
+    private static final long MMAP_SIZE = 64L * 1024 * 1024;
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_IDLE_READERS = 4;
+
+    private static SdniConnectionManager instance = null;
+
+    private final String dbUrl;
+    private Connection connection = null;
+    private int owners = 0;
+
+    private final BlockingQueue<Connection> idleReaders = new LinkedBlockingQueue<Connection>(MAX_IDLE_READERS);
+    /** Bumped whenever the connections are closed, so stale readers are not pooled again. */
+    private volatile int generation = 0;
+    private volatile boolean writerOpen = false;
+
+    private SdniStorageBackend storageBackend = SdniStorageBackend.SQLITE;
+    private final List<Runnable> storageBackendListeners = new CopyOnWriteArrayList<Runnable>();
+
+    public SdniConnectionManager(final String dbUrl) {
+        this.dbUrl = dbUrl;
+    }
+
+    public static synchronized SdniConnectionManager getInstance() {
+        if ( instance == null ) {
+            instance = new SdniConnectionManager(DEFAULT_DB_URL);
+        }
+        return instance;
+    }
+
+    /**
+     * Register a new owner of the shared connection.
+     *
+     * @return this manager, for chaining into the classes it is injected into
+     */
+    public synchronized SdniConnectionManager acquire() {
+        owners++;
+        LOG.debug("SdniConnectionManager acquired, owners: {}", owners);
+        return this;
+    }
+
+    /**
+     * Drop one owner, closing the connection when none are left.
+     */
+    public synchronized void release() {
+        if ( owners > 0 ) {
+            owners--;
+        }
+        LOG.debug("SdniConnectionManager released, owners: {}", owners);
+        if ( owners == 0 ) {
+            closeConnection();
+        }
+    }
+
+    /**
+     * Select the backend every module opens its {@link SdniStorage} with. The
+     * listeners are run if it changed, so that the modules started before
+     * reopen their storage.
+     */
+    public void setStorageBackend(final SdniStorageBackend backend) {
+        synchronized (this) {
+            if ( backend == storageBackend ) {
+                return;
+            }
+            storageBackend = backend;
+        }
+        LOG.info("SDNi storage backend set to {}", backend.getConfigName());
+        for ( Runnable listener : storageBackendListeners ) {
+            listener.run();
+        }
+    }
+
+    public synchronized SdniStorageBackend getStorageBackend() {
+        return storageBackend;
+    }
+
+    /**
+     * @return a storage of the selected backend
+     */
+    public SdniStorage openStorage() {
+        return getStorageBackend().open(this);
+    }
+
+    public void addStorageBackendListener(final Runnable listener) {
+        storageBackendListeners.add(listener);
+    }
+
+    public void removeStorageBackendListener(final Runnable listener) {
+        storageBackendListeners.remove(listener);
+    }
+
+    /**
+     * Return the shared connection, opening it if it is not open yet. Callers
+     * must close their statements and result sets but never the connection.
+     */
+    public synchronized Connection getConnection() throws SQLException, ClassNotFoundException {
+        if ( connection == null || connection.isClosed() ) {
+            Class.forName(JDBC_DRIVER, true, Thread.currentThread().getContextClassLoader());
+            final Connection conn = DriverManager.getConnection(dbUrl);
+            try {
+                applyPragmas(conn, "PRAGMA journal_mode=WAL", "PRAGMA synchronous=NORMAL");
+                SdniSchema.migrate(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            connection = conn;
+            writerOpen = true;
+            LOG.info("sql connection established to {}", dbUrl);
+        }
+        return connection;
+    }
+
+    /**
+     * Run work on the shared connection inside one explicit transaction. The
+     * manager stays locked while the work runs so no other caller can
+     * interleave statements, and the transaction is rolled back on failure.
+     */
+    public synchronized void runInTransaction(final TransactionWork work) throws SQLException, ClassNotFoundException {
+        final Connection conn = getConnection();
+        final boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            work.execute(conn);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Run a query on a pooled read-only connection. Each read sees a
+     * consistent snapshot of the last committed transaction and neither waits
+     * for nor blocks the writer.
+     */
+    public <T> T runReadOnly(final ReadWork<T> work) throws SQLException, ClassNotFoundException {
+        if ( !writerOpen ) {
+            // the writer creates the file, switches it to WAL and migrates it
+            getConnection();
+        }
+
+        final int readerGeneration = generation;
+        Connection reader = idleReaders.poll();
+        if ( reader == null ) {
+            reader = openReader();
+        }
+        boolean reusable = false;
+        try {
+            final T result = work.execute(reader);
+            reusable = true;
+            return result;
+        } finally {
+            if ( !reusable || readerGeneration != generation || !idleReaders.offer(reader) ) {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    private Connection openReader() throws SQLException {
+        final SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        final Connection reader = DriverManager.getConnection(dbUrl, config.toProperties());
+        try {
+            applyPragmas(reader, "PRAGMA query_only=true");
+        } catch (SQLException e) {
+            reader.close();
+            throw e;
+        }
+        LOG.debug("read-only sql connection opened to {}", dbUrl);
+        return reader;
+    }
+
+    private static void applyPragmas(final Connection conn, final String... extra) throws SQLException {
+        final Statement stmt = conn.createStatement();
+        try {
+            for ( String pragma : extra ) {
+                stmt.execute(pragma);
+            }
+            stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+            stmt.execute("PRAGMA cache_size=-" + CACHE_SIZE_KIB);
+            stmt.execute("PRAGMA mmap_size=" + MMAP_SIZE);
+            stmt.execute("PRAGMA temp_store=MEMORY");
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        owners = 0;
+        closeConnection();
+    }
+
+    private void closeConnection() {
+        writerOpen = false;
+        generation++;
+        Connection reader;
+        while ( (reader = idleReaders.poll()) != null ) {
+            closeQuietly(reader);
+        }
+        if ( connection == null ) {
+            return;
+        }
+        try {
+            connection.close();
+            LOG.info("sql connection to {} closed", dbUrl);
+        } catch (SQLException se) {
+            LOG.error("SQLException while closing connection: {}", se);
+        } finally {
+            connection = null;
+        }
+    }
+
+    private static void closeQuietly(final Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException se) {
+            LOG.error("SQLException while closing connection: {}", se);
+        }
+    }
+
+    /**
+     * Unit of work executed by {@link #runInTransaction(TransactionWork)}.
+     */
+    public interface TransactionWork {
+        void execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Query executed by {@link #runReadOnly(ReadWork)}.
+     */
+    public interface ReadWork<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+}
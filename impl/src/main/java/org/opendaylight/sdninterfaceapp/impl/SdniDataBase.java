@@ -9,432 +9,698 @@
 package org.opendaylight.sdninterfaceapp.impl;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SdniDataBase {
+public class SdniDataBase implements SdniStorage {
 	
     private static final Logger LOG = LoggerFactory.getLogger(SdniDataBase.class);
 
-   private static Connection connection = null;
-	
-    private Connection getConnection() throws SQLException, ClassNotFoundException
+    /** Separator between source and destination termination point in a link string. */
+    public static final String LINK_SEPARATOR = "->";
+
+    private final SdniConnectionManager connectionManager;
+
+    /** Link set last persisted per local / peer controller, guarded by persistedLinksLock. */
+    private final Object persistedLinksLock = new Object();
+    private final Map<String, Set<String>> persistedLinks = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> persistedPeerLinks = new HashMap<String, Set<String>>();
+
+    public SdniDataBase()
     {
-        if ( connection == null ) {
-            Class.forName("org.sqlite.JDBC", true, Thread.currentThread().getContextClassLoader());
-            connection = DriverManager.getConnection("jdbc:sqlite:sdninterfaceapp:db");
-        }
-        return connection;
+        this(SdniConnectionManager.getInstance());
     }
-    
 
-   public void create_trusted_controllers()
+    public SdniDataBase(SdniConnectionManager connectionManager)
     {
-        Connection c = null;
-        Statement stmt = null;
-    	int check=0;
-        try
-        {
-           c = getConnection();
-
-           LOG.info("TOPO: sql connection established");
-
-            stmt = c.createStatement();
-            try{
-                String sql = "drop table if exists TRUSTED_CONTROLLERS";
-                LOG.info("TOPO: SQL query to delete TRUSTED CONTROLLERS table: {}", sql);
-                stmt.executeUpdate(sql);
-            }
-            catch (Exception e) {
-                LOG.error("Exception: {0}", e);
-            }
-            String sql = "create table IF NOT EXISTS TRUSTED_CONTROLLERS (controller TEXT NOT NULL);";
-            LOG.info("TOPO: SQL query to create TRUSTED CONTROLLERS table: {}", sql);
-            check=stmt.executeUpdate(sql);
-            LOG.info("CHECKED VALUE:"+check);
-            
-        }
-         catch (SQLException se) {
-            LOG.error("SQLException: {0}", se);
-            //            return;
-        } 
-          catch(ClassNotFoundException f) {
-            LOG.error("FileNotFoundException: {0}",f);
-        }  
-           catch (Exception e) {
-            LOG.error("Exception: {0}", e);
-            //            return;
-        } finally {
-            try {
-                if (stmt != null) {
-                    stmt.close();
-                }
-            } catch (SQLException se2) {
-                LOG.error("SQLException2: {0}", se2);
-                //                return;
-            }
-            try {
-                if (c != null) {
-                    c.close();
-                    connection = null;
-                }
-            } catch (SQLException se) {
-                LOG.error("SQLException3: {0}", se);
-                //                return;
-            }
-        }
-
+        this.connectionManager = connectionManager;
     }
-    
+
     /**
-     * Get the QoS peer table data
+     * Get the list of trusted controllers
      */
-    
-    public Map<String,Map<String,Map<String, PortStatistics>>> getAllQoSPeerData()
+    @Override
+    public List<String> getTrustedControllers()
     {
-    	Connection conn = null;
-    	Statement stmt = null;
-    	ResultSet rset = null;
-    	
-    	//Map<controller,Map<nodeid,Map<portid, portparams>>>
-    	Map<String,Map<String,Map<String, PortStatistics>>> peerControllerData = new HashMap<String,Map<String,Map<String, PortStatistics>>>();
-    	
-    	
-    	try{
-    		String query = "SELECT name FROM sqlite_master WHERE type = 'table' and  name like 'QOS%PEER%'";
-    		List<String> dbTables = getTables(query);
-    		conn = getConnection();
-
-    		LOG.info("sql connection established");
-
-
-    		for (String tableName : dbTables)
-    		{
-    			stmt = conn.createStatement();
-    			String sqlInfo = "SELECT * FROM " + tableName;
-    			
-    			LOG.info("QoS: SQL query to fetch all the QoS Peer tables in database: {}", sqlInfo);
-        		rset = stmt.executeQuery(sqlInfo);
-    			
-    			while(rset.next())
-    			{
-
-    				String controller = rset.getString(1);
-    				String node = rset.getString(2);
-    				String port = rset.getString(3);
-    				String receiveFrameError = rset.getString(4);
-    				String receiveOverRunError = rset.getString(5);
-    				String receiveCrcError = rset.getString(6);
-    				String collisionCount = rset.getString(7);
-    				String receivePackets = rset.getString(8); 
-    				String transmitPackets = rset.getString(9);
-
-    				LOG.info(controller + ", " + node + ", " + port + ", " + receiveFrameError + ", " + 
-    						receiveOverRunError + ", " + receiveCrcError + ", " + collisionCount + ", " + receivePackets + ", " + transmitPackets);
-
-    				//If controller already exists
-    				if (peerControllerData.containsKey(controller))
-    				{
-    					//Map<nodeid,Map<portid, portparams>>
-    					Map<String,Map<String, PortStatistics>> nodeStatistics = peerControllerData.get(controller.trim());
-
-    					//if nodeId already exists
-    					if(nodeStatistics.containsKey(node))
-    					{
-    						Map<String, PortStatistics> nodeConnectorStatics = nodeStatistics.get(node);
-
-    						nodeConnectorStatics.put(port, getPortStatistics(receiveFrameError, receiveOverRunError, receiveCrcError,
-    								collisionCount, receivePackets, transmitPackets));
+    	List<String> controllersList = new ArrayList<String>();
+    	try {
+    		controllersList = connectionManager.runReadOnly(new SdniConnectionManager.ReadWork<List<String>>() {
+    			@Override
+    			public List<String> execute(Connection conn) throws SQLException {
+    				List<String> controllers = new ArrayList<String>();
+    				Statement stmt = conn.createStatement();
+    				try {
+    					ResultSet rs = stmt.executeQuery("SELECT controller FROM " + SdniSchema.TRUSTED_CONTROLLERS);
+    					try {
+    						while(rs.next())
+    						{
+    							controllers.add(rs.getString(1));
+    						}
+    					} finally {
+    						rs.close();
     					}
-    					else
-    					{
-    						//Map<portid, portparams>
-    						Map<String, PortStatistics> nodeConnectorStatics = new HashMap<String, PortStatistics>();
-    						nodeConnectorStatics.put(port, getPortStatistics(receiveFrameError, receiveOverRunError, receiveCrcError,
-    								collisionCount, receivePackets, transmitPackets));
-
-    						nodeStatistics.put(node, nodeConnectorStatics);
-    					}
-
+    				} finally {
+    					stmt.close();
     				}
-    				else
-    				{
-    					//Map<nodeid,Map<portid, portparams>>
-    					Map<String,Map<String, PortStatistics>> nodeStatistics = new HashMap<String,Map<String, PortStatistics>>();
-
-    					//Map<portid, portparams>
-    					Map<String, PortStatistics> nodeConnectorStatics = new HashMap<String, PortStatistics>();
-    					nodeConnectorStatics.put(port, getPortStatistics(receiveFrameError, receiveOverRunError, receiveCrcError,
-    							collisionCount, receivePackets, transmitPackets));
-
-    					nodeStatistics.put(node, nodeConnectorStatics);
+    				return controllers;
+    			}
+    		});
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
+    	return controllersList;
+    }
 
-    					peerControllerData.put(controller, nodeStatistics);
+    @Override
+    public boolean addTrustedController(final String controller)
+    {
+    	try {
+    		connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    			@Override
+    			public void execute(Connection conn) throws SQLException {
+    				PreparedStatement insert = conn.prepareStatement("insert into " + SdniSchema.TRUSTED_CONTROLLERS
+    						+ " (controller) select ? where not exists (select 1 from " + SdniSchema.TRUSTED_CONTROLLERS
+    						+ " where controller = ?)");
+    				try {
+    					insert.setString(1, controller);
+    					insert.setString(2, controller);
+    					insert.executeUpdate();
+    				} finally {
+    					insert.close();
     				}
     			}
-    			
-    		}
+    		});
+    		return true;
     	} catch (SQLException se) {
     		LOG.error("SQLException: {0}", se);
     	} catch (Exception e) {
     		LOG.error("Exception: {0}", e);
-    	} finally {
-    		try {
-    			if (rset != null ){
-    				rset.close();
-    			}
-    			if (stmt != null) {
-    				stmt.close();
-    			}
-    			if (conn != null) {
-    				conn.close();
-    				connection = null;
-    			}
-    		} catch (SQLException se) {
-    			LOG.error("SQLException3: {0}", se);
-    		}
     	}
-    	
-    	LOG.info("QoS size : {}", peerControllerData.size());
-    	return peerControllerData;
+    	return false;
     }
-    
-    private PortStatistics getPortStatistics(String receiveFrameError, 
-    		String receiveOverRunError,
-    		String receiveCrcError,
-    		String collisionCount,
-    		String receivePackets,
-    		String transmitPackets)
+
+    @Override
+    public boolean removeTrustedController(final String controller)
     {
-    	PortStatistics portParams = new PortStatistics();
-    	portParams.setReceiveFrameError(receiveFrameError);
-    	portParams.setReceiveOverRunError(receiveOverRunError);
-    	portParams.setReceiveCrcError(receiveCrcError);
-    	portParams.setCollisionCount(collisionCount);
-    	portParams.setReceivePackets(receivePackets);
-    	portParams.setTransmitPackets(transmitPackets);
-    	
-    	return portParams;
+    	try {
+    		connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    			@Override
+    			public void execute(Connection conn) throws SQLException {
+    				PreparedStatement delete = conn.prepareStatement("delete from " + SdniSchema.TRUSTED_CONTROLLERS
+    						+ " where controller = ?");
+    				try {
+    					delete.setString(1, controller);
+    					delete.executeUpdate();
+    				} finally {
+    					delete.close();
+    				}
+    			}
+    		});
+    		return true;
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
+    	return false;
     }
-    
-    
-    private List<String> getTables(String sql)
-    {
-    	Connection conn = null;
-    	Statement stmt = null;
-    	ResultSet rset = null;
-    	
-    	List<String> tablesList = new ArrayList<String>();
-    	
-    	try{
-    		conn = getConnection();
 
-    		LOG.info("sql connection established");
+    /**
+     * Get the QoS peer table data
+     */
 
-    		stmt = conn.createStatement();
+    @Override
+    public Map<String,Map<String,Map<String, PortStatistics>>> getAllQoSPeerData()
+    {
+    	//Map<controller,Map<nodeid,Map<portid, portparams>>>
+    	Map<String,Map<String,Map<String, PortStatistics>>> peerControllerData = new HashMap<String,Map<String,Map<String, PortStatistics>>>();
 
-    		LOG.info("QoS: SQL query to fetch all the QoS Peer tables in database: {}", sql);
-    		rset = stmt.executeQuery(sql);
-    		while(rset.next())
-    		{
-    			String tableName = rset.getString(1);
-    			tablesList.add(tableName);
-    		}
+    	try{
+    		peerControllerData = connectionManager.runReadOnly(new SdniConnectionManager.ReadWork<Map<String,Map<String,Map<String, PortStatistics>>>>() {
+    			@Override
+    			public Map<String,Map<String,Map<String, PortStatistics>>> execute(Connection conn) throws SQLException {
+    				Map<String,Map<String,Map<String, PortStatistics>>> data = new HashMap<String,Map<String,Map<String, PortStatistics>>>();
+    				PreparedStatement stmt = conn.prepareStatement("SELECT controller, node, port, receiveFrameError, receiveOverRunError,"
+    						+ " receiveCrcError, collisionCount, receivePackets, transmitPackets, bridge_port FROM " + SdniSchema.PORT_STATS
+    						+ " WHERE peer = 1");
+    				try {
+    					ResultSet rset = stmt.executeQuery();
+    					try {
+    						while(rset.next())
+    						{
+    							String controller = rset.getString(1);
+    							String node = rset.getString(2);
+    							String port = rset.getString(3);
+
+    							//Map<nodeid,Map<portid, portparams>>
+    							Map<String,Map<String, PortStatistics>> nodeStatistics = data.get(controller);
+    							if (nodeStatistics == null)
+    							{
+    								nodeStatistics = new HashMap<String,Map<String, PortStatistics>>();
+    								data.put(controller, nodeStatistics);
+    							}
+
+    							//Map<portid, portparams>
+    							Map<String, PortStatistics> nodeConnectorStatics = nodeStatistics.get(node);
+    							if (nodeConnectorStatics == null)
+    							{
+    								nodeConnectorStatics = new HashMap<String, PortStatistics>();
+    								nodeStatistics.put(node, nodeConnectorStatics);
+    							}
+
+    							nodeConnectorStatics.put(port, getPortStatistics(rset));
+    						}
+    					} finally {
+    						rset.close();
+    					}
+    				} finally {
+    					stmt.close();
+    				}
+    				return data;
+    			}
+    		});
     	} catch (SQLException se) {
     		LOG.error("SQLException: {0}", se);
     	} catch (Exception e) {
     		LOG.error("Exception: {0}", e);
-    	} finally {
-    		try {
-    			if (rset != null ){
-    				rset.close();
-    			}
-    			if (stmt != null) {
-    				stmt.close();
-    			}
-    			if (conn != null) {
-    				conn.close();
-    				connection = null;
-    			}
-    		} catch (SQLException se) {
-    			LOG.error("SQLException3: {0}", se);
-    		}
     	}
-    	
-    	
-    	return tablesList;
+
+    	LOG.info("QoS size : {}", peerControllerData.size());
+    	return peerControllerData;
     }
-    
-    
+
+    private static PortStatistics getPortStatistics(ResultSet rset) throws SQLException
+    {
+    	return PortStatistics.builder()
+    			.setController(rset.getString(1))
+    			.setNodeID(rset.getString(2))
+    			.setPortID(rset.getString(3))
+    			.setReceiveFrameError(rset.getLong(4))
+    			.setReceiveOverRunError(rset.getLong(5))
+    			.setReceiveCrcError(rset.getLong(6))
+    			.setCollisionCount(rset.getLong(7))
+    			.setReceivePackets(rset.getLong(8))
+    			.setTransmitPackets(rset.getLong(9))
+    			.setPortName(rset.getString(10))
+    			.build();
+    }
+
+    @Override
     public Map<String, List<String>> getAllPeerTopology()
     {
     	//Map<controller,List<links>
     	Map<String,List<String>> topologyData = new HashMap<String, List<String>>();
-    	
-
-    	Connection conn = null;
-    	Statement stmt = null;
-    	ResultSet rset = null;
-    	
-    	List<String> tablesList = new ArrayList<String>();
-    	
+
     	try{
-    		
-    		
-    		String query = "SELECT name FROM sqlite_master WHERE type = 'table' and  name like 'TOPOLOGY%PEER%'";
-   
-    		List<String> dbTables = getTables(query);
-    		conn = getConnection();
+    		topologyData = connectionManager.runReadOnly(new SdniConnectionManager.ReadWork<Map<String, List<String>>>() {
+    			@Override
+    			public Map<String, List<String>> execute(Connection conn) throws SQLException {
+    				Map<String,List<String>> data = new HashMap<String, List<String>>();
+    				PreparedStatement stmt = conn.prepareStatement("SELECT controller, src_tp, dst_tp FROM " + SdniSchema.LINKS
+    						+ " WHERE peer = 1");
+    				try {
+    					ResultSet rset = stmt.executeQuery();
+    					try {
+    						while(rset.next())
+    						{
+    							String controller = rset.getString(1);
+    							List<String> links = data.get(controller);
+    							if (links == null)
+    							{
+    								links = new ArrayList<String>();
+    								data.put(controller, links);
+    							}
+    							links.add(rset.getString(2) + LINK_SEPARATOR + rset.getString(3));
+    						}
+    					} finally {
+    						rset.close();
+    					}
+    				} finally {
+    					stmt.close();
+    				}
+    				return data;
+    			}
+    		});
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
 
-    		LOG.info("sql connection established");
+    	LOG.info("topo size : {}", topologyData.size());
 
+    	return topologyData;
+    }
 
-    		for (String tableName : dbTables)
-    		{
-    			stmt = conn.createStatement();
-    			
-    			String sql = "SELECT * FROM " + tableName;
-    			LOG.info("Topo: SQL query to fetch all the Topo Peer tables in database: {}", sql);
-    			rset = stmt.executeQuery(sql);
-    			while(rset.next())
-    			{
-    				String controller = rset.getString(1);
-    				String link = rset.getString(2);
 
-    				if (topologyData.containsKey(controller))
-    				{
-    					List<String> links = topologyData.get(controller);
-    					links.add(link);
+
+    public void insertQosData(final List<PortStatistics> list_QoS, String controllerIP)
+    {
+    	LOG.info("sql in insertQosData - START");
+    	replacePortStatistics(controllerIP, false, list_QoS);
+    	LOG.info("sql in insertQosData - END");
+    }
+
+    /**
+     * Replace the stored QoS snapshot of one controller with the given ports,
+     * in a single transaction.
+     *
+     * @param controller controller the snapshot belongs to
+     * @param peer true if the snapshot was received from a BGP peer
+     * @param ports port statistics of the snapshot, may be empty
+     */
+    @Override
+    public void replacePortStatistics(final String controller, final boolean peer, final List<PortStatistics> ports)
+    {
+    	if ( controller == null || controller.isEmpty() )
+    	{
+    		return;
+    	}
+
+    	try {
+    		connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    			@Override
+    			public void execute(Connection conn) throws SQLException {
+    				PreparedStatement delete = conn.prepareStatement("delete from " + SdniSchema.PORT_STATS
+    						+ " where controller = ? and peer = ?");
+    				try {
+    					delete.setString(1, controller);
+    					delete.setInt(2, peer ? 1 : 0);
+    					delete.executeUpdate();
+    				} finally {
+    					delete.close();
     				}
-    				else
+
+    				if (ports == null || ports.isEmpty())
     				{
-    					List<String> links = new ArrayList<String>();
-    					links.add(link);
-    					
-    					topologyData.put(controller, links);
+    					return;
     				}
+
+    				PreparedStatement insert = conn.prepareStatement("insert or replace into " + SdniSchema.PORT_STATS
+    						+ " values (?,?,?,?,?,?,?,?,?,?,?)");
+    				try {
+    					for ( PortStatistics ps : ports )
+    					{
+    						if (ps.getNodeID() == null || ps.getPortID() == null)
+    						{
+    							LOG.warn("QoS: skipping entry without node/port for controller {}", controller);
+    							continue;
+    						}
+    						insert.setString(1, controller);
+    						insert.setInt(2, peer ? 1 : 0);
+    						insert.setString(3, localToZero(ps.getNodeID()));
+    						insert.setString(4, localToZero(ps.getPortID()));
+    						insert.setLong(5, ps.getReceiveFrameError());
+    						insert.setLong(6, ps.getReceiveOverRunError());
+    						insert.setLong(7, ps.getReceiveCrcError());
+    						insert.setLong(8, ps.getCollisionCount());
+    						insert.setLong(9, ps.getReceivePackets());
+    						insert.setLong(10, ps.getTransmitPackets());
+    						insert.setString(11, localToZero(ps.getPortName()));
+    						insert.addBatch();
+    					}
+    					insert.executeBatch();
+    				} finally {
+    					insert.close();
+    				}
+    				LOG.info("QoS: stored {} ports of controller {} (peer {})", ports.size(), controller, peer);
     			}
-    			
-    		}
+    		});
     	} catch (SQLException se) {
     		LOG.error("SQLException: {0}", se);
     	} catch (Exception e) {
     		LOG.error("Exception: {0}", e);
-    	} finally {
-    		try {
-    			if (rset != null ){
-    				rset.close();
-    			}
-    			if (stmt != null) {
-    				stmt.close();
-    			}
-    			if (conn != null) {
-    				conn.close();
-    				connection = null;
-    			}
-    		} catch (SQLException se) {
-    			LOG.error("SQLException3: {0}", se);
-    		}
     	}
-    	
-    	LOG.info("topo size : {}", topologyData.size());
-    	
-    	return topologyData;
     }
-    
-    
-    
-    public void insertQosData(List<PortStatistics> list_QoS, String controllerIP)
-    {
-    	Connection conn = null;
-    	Statement stmt = null;
-    	String sql = null;
-    	LOG.info("sql in insertQosData - START");
 
-    		try{
-    			controllerIP = controllerIP.replace('.', '_');
-    			conn = getConnection();
-    			LOG.info("sql connection established");
-    			stmt = conn.createStatement();
+    /**
+     * Replace the stored topology of one controller with the given links.
+     *
+     * The link set last persisted for each controller is remembered, so only
+     * the links that were added or removed since then are written, in a single
+     * transaction. An unchanged topology does not touch the database at all.
+     *
+     * @param controller controller the links belong to
+     * @param peer true if the links were received from a BGP peer
+     * @param links links in the "source-tp-&gt;dest-tp" form used on the wire
+     */
+    @Override
+    public void replaceLinks(final String controller, final boolean peer, final List<String> links)
+    {
+    	if ( controller == null || controller.isEmpty() )
+    	{
+    		return;
+    	}
 
-    			//Drop Table
-    			sql = "drop table if exists QOS_DATABASE_" + controllerIP;
-    			LOG.info("QoS: SQL query to delete Controller QoS table: {}", sql);
-    			stmt.executeUpdate(sql);
+    	final Set<String> current = new HashSet<String>();
+    	if ( links != null )
+    	{
+    		for ( String link : links )
+    		{
+    			if (link == null || link.indexOf(LINK_SEPARATOR) < 0)
+    			{
+    				LOG.warn("TOPO: skipping malformed link {} of controller {}", link, controller);
+    				continue;
+    			}
+    			current.add(link);
     		}
-    		catch(Exception e)
+    	}
+
+    	final Map<String, Set<String>> persisted = peer ? persistedPeerLinks : persistedLinks;
+    	synchronized (persistedLinksLock)
+    	{
+    		if (current.equals(persisted.get(controller)))
     		{
-    			LOG.error("SQLException3: {0}", e);
+    			LOG.debug("TOPO: links of controller {} (peer {}) unchanged", controller, peer);
+    			return;
     		}
 
     		try {
+    			connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    				@Override
+    				public void execute(Connection conn) throws SQLException {
+    					Set<String> previous = persisted.get(controller);
+    					if (previous == null)
+    					{
+    						previous = readLinks(conn, controller, peer);
+    					}
 
-    			//Create Table
-    			sql = "create table IF NOT EXISTS QOS_DATABASE_" + controllerIP + " (controller TEXT NOT NULL, node TEXT NOT NULL, port TEXT NOT NULL,"
-    					+ " receiveFrameError TEXT NOT NULL, receiveOverRunError TEXT NOT NULL, receiveCrcError TEXT NOT NULL,"
-    					+ " collisionCount TEXT NOT NULL, receivePackets TEXT NOT NULL, transmitPackets TEXT NOT NULL, bridge_port TEXT NOT NULL);";
-    			LOG.info("QoS: SQL query to create Controller QoS table: {}", sql);
-    			stmt.executeUpdate(sql);
+    					Set<String> removed = new HashSet<String>(previous);
+    					removed.removeAll(current);
+    					Set<String> added = new HashSet<String>(current);
+    					added.removeAll(previous);
+
+    					writeLinks(conn, "delete from " + SdniSchema.LINKS
+    							+ " where controller = ? and peer = ? and src_tp = ? and dst_tp = ?", controller, peer, removed);
+    					writeLinks(conn, "insert or replace into " + SdniSchema.LINKS
+    							+ " values (?,?,?,?)", controller, peer, added);
+    					LOG.info("TOPO: controller {} (peer {}): {} links added, {} removed", controller, peer,
+    							added.size(), removed.size());
+    				}
+    			});
+    			persisted.put(controller, current);
+    		} catch (SQLException se) {
+    			persisted.remove(controller);
+    			LOG.error("SQLException: {0}", se);
+    		} catch (Exception e) {
+    			persisted.remove(controller);
+    			LOG.error("Exception: {0}", e);
+    		}
+    	}
+    }
 
-    	    	if (list_QoS != null && !list_QoS.isEmpty())
-    	    	{
-    			for ( PortStatistics ps : list_QoS )
+    private static Set<String> readLinks(Connection conn, String controller, boolean peer) throws SQLException
+    {
+    	Set<String> links = new HashSet<String>();
+    	PreparedStatement stmt = conn.prepareStatement("SELECT src_tp, dst_tp FROM " + SdniSchema.LINKS
+    			+ " WHERE controller = ? and peer = ?");
+    	try {
+    		stmt.setString(1, controller);
+    		stmt.setInt(2, peer ? 1 : 0);
+    		ResultSet rset = stmt.executeQuery();
+    		try {
+    			while (rset.next())
     			{
+    				links.add(rset.getString(1) + LINK_SEPARATOR + rset.getString(2));
+    			}
+    		} finally {
+    			rset.close();
+    		}
+    	} finally {
+    		stmt.close();
+    	}
+    	return links;
+    }
 
+    /**
+     * Run a (controller, peer, src_tp, dst_tp) statement as one batch over the
+     * given links.
+     */
+    private static void writeLinks(Connection conn, String sql, String controller, boolean peer, Set<String> links)
+    		throws SQLException
+    {
+    	if (links.isEmpty())
+    	{
+    		return;
+    	}
+    	PreparedStatement stmt = conn.prepareStatement(sql);
+    	try {
+    		for ( String link : links )
+    		{
+    			int separator = link.indexOf(LINK_SEPARATOR);
+    			stmt.setString(1, controller);
+    			stmt.setInt(2, peer ? 1 : 0);
+    			stmt.setString(3, link.substring(0, separator));
+    			stmt.setString(4, link.substring(separator + LINK_SEPARATOR.length()));
+    			stmt.addBatch();
+    		}
+    		stmt.executeBatch();
+    	} finally {
+    		stmt.close();
+    	}
+    }
 
+    /**
+     * Append one QoS snapshot of a peer controller to the persisted history
+     * and drop its samples older than the newest keepSamples, in a single
+     * transaction.
+     *
+     * @param controller peer controller the snapshot belongs to
+     * @param timestampMillis time the snapshot was received
+     * @param ports port statistics of the snapshot
+     * @param keepSamples number of samples kept per port
+     */
+    @Override
+    public void appendQosHistory(final String controller, final long timestampMillis, final List<PortStatistics> ports,
+    		final int keepSamples)
+    {
+    	if ( controller == null || controller.isEmpty() || ports == null || ports.isEmpty() )
+    	{
+    		return;
+    	}
 
-    				String query = "insert into QOS_DATABASE_" + controllerIP + " values (\"" + ps.getController() + "\",\""
-    						+ ps.getNodeID() + "\",\""
-    						+ ps.getPortID() + "\",\"" 
-    						+ ps.getReceiveFrameError() + "\",\""
-    						+ ps.getReceiveOverRunError() + "\",\"" 
-    						+ ps.getReceiveCrcError() + "\",\"" 
-    						+ ps.getCollisionCount() + "\",\"" 
-    						+ ps.getReceivePackets() + "\",\"" 
-    						+ ps.getTransmitPackets() + "\",\""
-    	    						+ ps.getPortName() + "\");";
-    				query = query.replace("LOCAL", "0");
-    				LOG.info("QoS: InsertQuery after executing: {}", query);
-    				stmt.executeUpdate(query);
-    			} 
-    	    	}
-    		}
-    		catch (SQLException se) {
-    			LOG.error("SQLException: {0}", se);
-    			return;
-    		} catch (Exception e) {
-    			LOG.error("Exception: {0}", e);
-    			return;
-    		} finally {
-    			try {
-    				if (stmt != null) {
-    					stmt.close();
+    	try {
+    		connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    			@Override
+    			public void execute(Connection conn) throws SQLException {
+    				PreparedStatement insert = conn.prepareStatement("insert or replace into " + SdniSchema.PORT_STATS_HISTORY
+    						+ " values (?,?,?,?,?,?,?,?,?,?,?)");
+    				try {
+    					for ( PortStatistics ps : ports )
+    					{
+    						if (ps.getNodeID() == null || ps.getPortID() == null)
+    						{
+    							continue;
+    						}
+    						insert.setString(1, controller);
+    						insert.setString(2, localToZero(ps.getNodeID()));
+    						insert.setString(3, localToZero(ps.getPortID()));
+    						insert.setLong(4, timestampMillis);
+    						insert.setLong(5, ps.getReceiveFrameError());
+    						insert.setLong(6, ps.getReceiveOverRunError());
+    						insert.setLong(7, ps.getReceiveCrcError());
+    						insert.setLong(8, ps.getCollisionCount());
+    						insert.setLong(9, ps.getReceivePackets());
+    						insert.setLong(10, ps.getTransmitPackets());
+    						insert.setString(11, localToZero(ps.getPortName()));
+    						insert.addBatch();
+    					}
+    					insert.executeBatch();
+    				} finally {
+    					insert.close();
+    				}
+
+    				// every snapshot of a controller shares one timestamp, so keeping the
+    				// newest keepSamples timestamps keeps keepSamples samples per port
+    				PreparedStatement prune = conn.prepareStatement("delete from " + SdniSchema.PORT_STATS_HISTORY
+    						+ " where controller = ? and sampled_at <= (select sampled_at from " + SdniSchema.PORT_STATS_HISTORY
+    						+ " where controller = ? group by sampled_at order by sampled_at desc limit 1 offset ?)");
+    				try {
+    					prune.setString(1, controller);
+    					prune.setString(2, controller);
+    					prune.setInt(3, keepSamples);
+    					prune.executeUpdate();
+    				} finally {
+    					prune.close();
     				}
-    			} catch (SQLException se2) {
-    				LOG.error("SQLException2: {0}", se2);
-    				return;
     			}
+    		});
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
+    }
 
-    			try {
-    				if (conn != null) {
-    					conn.close();
-    					connection = null;
+    /**
+     * Get the persisted QoS history of the peer controllers.
+     *
+     * @return Map&lt;controller,SortedMap&lt;timestamp,List&lt;portparams&gt;&gt;&gt;
+     */
+    @Override
+    public Map<String, SortedMap<Long, List<PortStatistics>>> getQosHistory()
+    {
+    	Map<String, SortedMap<Long, List<PortStatistics>>> history = new HashMap<String, SortedMap<Long, List<PortStatistics>>>();
+
+    	try{
+    		history = connectionManager.runReadOnly(new SdniConnectionManager.ReadWork<Map<String, SortedMap<Long, List<PortStatistics>>>>() {
+    			@Override
+    			public Map<String, SortedMap<Long, List<PortStatistics>>> execute(Connection conn) throws SQLException {
+    				Map<String, SortedMap<Long, List<PortStatistics>>> data = new HashMap<String, SortedMap<Long, List<PortStatistics>>>();
+    				PreparedStatement stmt = conn.prepareStatement("SELECT controller, node, port, receiveFrameError, receiveOverRunError,"
+    						+ " receiveCrcError, collisionCount, receivePackets, transmitPackets, bridge_port, sampled_at FROM "
+    						+ SdniSchema.PORT_STATS_HISTORY);
+    				try {
+    					ResultSet rset = stmt.executeQuery();
+    					try {
+    						while(rset.next())
+    						{
+    							String controller = rset.getString(1);
+    							SortedMap<Long, List<PortStatistics>> samples = data.get(controller);
+    							if (samples == null)
+    							{
+    								samples = new TreeMap<Long, List<PortStatistics>>();
+    								data.put(controller, samples);
+    							}
+    							Long sampledAt = rset.getLong(11);
+    							List<PortStatistics> ports = samples.get(sampledAt);
+    							if (ports == null)
+    							{
+    								ports = new ArrayList<PortStatistics>();
+    								samples.put(sampledAt, ports);
+    							}
+    							ports.add(getPortStatistics(rset));
+    						}
+    					} finally {
+    						rset.close();
+    					}
+    				} finally {
+    					stmt.close();
     				}
-    			} catch (SQLException se) {
-    				LOG.error("SQLException3: {0}", se);
-    				return;
+    				return data;
     			}
+    		});
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
+
+    	return history;
+    }
+
+    /**
+     * Delete the QoS, QoS history and topology rows of the given controllers.
+     *
+     * The QoS and topology rows are deleted in one transaction. The history
+     * rows, which may be many, are deleted in transactions of at most
+     * batchSize rows so the writer connection is never held for long.
+     *
+     * @param controllers controllers whose data is expired
+     * @param batchSize maximum number of history rows deleted per transaction
+     */
+    @Override
+    public void expireControllers(final Collection<String> controllers, final int batchSize)
+    {
+    	if (controllers == null || controllers.isEmpty())
+    	{
+    		return;
+    	}
+
+    	LOG.info("Controllers to be deleted from DB: {}", controllers);
+    	synchronized (persistedLinksLock)
+    	{
+    		try {
+    			connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    				@Override
+    				public void execute(Connection conn) throws SQLException {
+    					PreparedStatement deleteStats = conn.prepareStatement("delete from " + SdniSchema.PORT_STATS + " where controller = ?");
+    					PreparedStatement deleteLinks = conn.prepareStatement("delete from " + SdniSchema.LINKS + " where controller = ?");
+    					try {
+    						for (String controller : controllers)
+    						{
+    							deleteStats.setString(1, controller);
+    							deleteStats.addBatch();
+    							deleteLinks.setString(1, controller);
+    							deleteLinks.addBatch();
+    						}
+    						deleteStats.executeBatch();
+    						deleteLinks.executeBatch();
+    					} finally {
+    						deleteStats.close();
+    						deleteLinks.close();
+    					}
+    				}
+    			});
+    		} catch (SQLException se) {
+    			LOG.error("SQLException: {0}", se);
+    		} catch (Exception e) {
+    			LOG.error("Exception: {0}", e);
+    		}
+    		for (String controller : controllers)
+    		{
+    			persistedLinks.remove(controller);
+    			persistedPeerLinks.remove(controller);
     		}
-    		LOG.info("sql in insertQosData - END");
+    	}
 
+    	for (String controller : controllers)
+    	{
+    		int deleted;
+    		do {
+    			deleted = deleteHistoryBatch(controller, batchSize);
+    		} while (deleted >= batchSize);
+    	}
+    }
+
+    private int deleteHistoryBatch(final String controller, final int batchSize)
+    {
+    	final int[] deleted = new int[1];
+    	try {
+    		connectionManager.runInTransaction(new SdniConnectionManager.TransactionWork() {
+    			@Override
+    			public void execute(Connection conn) throws SQLException {
+    				PreparedStatement delete = conn.prepareStatement("delete from " + SdniSchema.PORT_STATS_HISTORY
+    						+ " where rowid in (select rowid from " + SdniSchema.PORT_STATS_HISTORY + " where controller = ? limit ?)");
+    				try {
+    					delete.setString(1, controller);
+    					delete.setInt(2, batchSize);
+    					deleted[0] = delete.executeUpdate();
+    				} finally {
+    					delete.close();
+    				}
+    			}
+    		});
+    	} catch (SQLException se) {
+    		LOG.error("SQLException: {0}", se);
+    	} catch (Exception e) {
+    		LOG.error("Exception: {0}", e);
+    	}
+    	return deleted[0];
+    }
+
+    /**
+     * The local port of an OpenFlow switch is reported as "LOCAL"; it has
+     * always been stored as port number 0.
+     */
+    static String localToZero(String value)
+    {
+    	return value == null ? null : value.replace("LOCAL", "0");
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SdniStorage} held in concurrent maps, for tests and for deployments
+ * that do not need the SDNi data to survive a restart.
+ *
+ * Snapshots are kept as unmodifiable maps and lists replaced as a whole, so a
+ * reader never sees a partially applied update.
+ */
+public final class SdniInMemoryStorage implements SdniStorage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniInMemoryStorage.class);
+
+    private static final SdniInMemoryStorage INSTANCE = new SdniInMemoryStorage();
+
+    //Map<controller,Map<nodeid,Map<portid, portparams>>>
+    private final ConcurrentMap<String, Map<String, Map<String, PortStatistics>>> localQos =
+            new ConcurrentHashMap<String, Map<String, Map<String, PortStatistics>>>();
+    private final ConcurrentMap<String, Map<String, Map<String, PortStatistics>>> peerQos =
+            new ConcurrentHashMap<String, Map<String, Map<String, PortStatistics>>>();
+    //Map<controller,List<links>>
+    private final ConcurrentMap<String, List<String>> localLinks = new ConcurrentHashMap<String, List<String>>();
+    private final ConcurrentMap<String, List<String>> peerLinks = new ConcurrentHashMap<String, List<String>>();
+    //Map<controller,Map<timestamp,List<portparams>>>
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, List<PortStatistics>>> history =
+            new ConcurrentHashMap<String, ConcurrentNavigableMap<Long, List<PortStatistics>>>();
+    private final Set<String> trustedControllers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public SdniInMemoryStorage() {
+    }
+
+    public static SdniInMemoryStorage getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void replacePortStatistics(final String controller, final boolean peer, final List<PortStatistics> ports) {
+        if ( controller == null || controller.isEmpty() ) {
+            return;
+        }
+        (peer ? peerQos : localQos).put(controller, SdniPeerStateStore.groupByNode(ports));
+    }
+
+    @Override
+    public Map<String, Map<String, Map<String, PortStatistics>>> getAllQoSPeerData() {
+        return new HashMap<String, Map<String, Map<String, PortStatistics>>>(peerQos);
+    }
+
+    @Override
+    public void replaceLinks(final String controller, final boolean peer, final List<String> links) {
+        if ( controller == null || controller.isEmpty() ) {
+            return;
+        }
+        final Set<String> current = new LinkedHashSet<String>();
+        if ( links != null ) {
+            for ( String link : links ) {
+                if ( link == null || link.indexOf(SdniDataBase.LINK_SEPARATOR) < 0 ) {
+                    LOG.warn("TOPO: skipping malformed link {} of controller {}", link, controller);
+                    continue;
+                }
+                current.add(link);
+            }
+        }
+        (peer ? peerLinks : localLinks).put(controller, Collections.unmodifiableList(new ArrayList<String>(current)));
+    }
+
+    @Override
+    public Map<String, List<String>> getAllPeerTopology() {
+        return new HashMap<String, List<String>>(peerLinks);
+    }
+
+    @Override
+    public void appendQosHistory(final String controller, final long timestampMillis, final List<PortStatistics> ports,
+            final int keepSamples) {
+        if ( controller == null || controller.isEmpty() || ports == null || ports.isEmpty() ) {
+            return;
+        }
+        ConcurrentNavigableMap<Long, List<PortStatistics>> samples = history.get(controller);
+        if ( samples == null ) {
+            final ConcurrentNavigableMap<Long, List<PortStatistics>> created =
+                    new ConcurrentSkipListMap<Long, List<PortStatistics>>();
+            samples = history.putIfAbsent(controller, created);
+            if ( samples == null ) {
+                samples = created;
+            }
+        }
+        samples.put(timestampMillis, Collections.unmodifiableList(new ArrayList<PortStatistics>(ports)));
+        while ( samples.size() > keepSamples ) {
+            samples.pollFirstEntry();
+        }
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, List<PortStatistics>>> getQosHistory() {
+        final Map<String, SortedMap<Long, List<PortStatistics>>> copy = new HashMap<String, SortedMap<Long, List<PortStatistics>>>();
+        for ( Map.Entry<String, ConcurrentNavigableMap<Long, List<PortStatistics>>> entry : history.entrySet() ) {
+            copy.put(entry.getKey(), new TreeMap<Long, List<PortStatistics>>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @Override
+    public List<String> getTrustedControllers() {
+        return new ArrayList<String>(trustedControllers);
+    }
+
+    @Override
+    public boolean addTrustedController(final String controller) {
+        trustedControllers.add(controller);
+        return true;
+    }
+
+    @Override
+    public boolean removeTrustedController(final String controller) {
+        trustedControllers.remove(controller);
+        return true;
+    }
+
+    @Override
+    public void expireControllers(final Collection<String> controllers, final int batchSize) {
+        if ( controllers == null || controllers.isEmpty() ) {
+            return;
+        }
+        localQos.keySet().removeAll(controllers);
+        peerQos.keySet().removeAll(controllers);
+        localLinks.keySet().removeAll(controllers);
+        peerLinks.keySet().removeAll(controllers);
+        history.keySet().removeAll(controllers);
+    }
+}
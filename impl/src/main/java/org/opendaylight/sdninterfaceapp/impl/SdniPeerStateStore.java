@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory copy of the latest QoS and topology snapshot received from each
+ * SDNi peer controller. It is the source of truth for the peer RPCs; SQLite
+ * only persists it in the background.
+ *
+ * Every snapshot is stored as an unmodifiable map or list and replaced as a
+ * whole, so readers never see a partially applied update. Each QoS snapshot is
+ * also appended to a bounded {@link SdniQosHistory}. Controllers, nodes and
+ * ports are kept sorted, so {@link #queryQos} pages through them with range
+ * lookups.
+ */
+public final class SdniPeerStateStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniPeerStateStore.class);
+
+    private static final SdniPeerStateStore INSTANCE = new SdniPeerStateStore();
+
+    //Map<controller,Map<nodeid,Map<portid, portparams>>>
+    private final ConcurrentNavigableMap<String, Map<String, Map<String, PortStatistics>>> qos =
+            new ConcurrentSkipListMap<String, Map<String, Map<String, PortStatistics>>>();
+    //Map<controller,List<links>>
+    private final ConcurrentMap<String, List<String>> links = new ConcurrentHashMap<String, List<String>>();
+    private final SdniQosHistory qosHistory = new SdniQosHistory();
+
+    public SdniPeerStateStore() {
+    }
+
+    public static SdniPeerStateStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replace the QoS snapshot of a peer controller, sampled now.
+     */
+    public void putQos(final String controller, final List<PortStatistics> ports) {
+        putQos(controller, ports, System.currentTimeMillis());
+    }
+
+    /**
+     * Replace the QoS snapshot of a peer controller and add it to the history
+     * as sampled at the given time. Ports without node or port id are
+     * skipped, as they are when persisting.
+     */
+    public void putQos(final String controller, final List<PortStatistics> ports, final long timestampMillis) {
+        if ( controller == null || controller.isEmpty() ) {
+            return;
+        }
+        qos.put(controller, groupByNode(ports));
+        qosHistory.record(controller, ports, timestampMillis);
+    }
+
+    /**
+     * @return unmodifiable sorted Map&lt;nodeid,Map&lt;portid, portparams&gt;&gt; of
+     *         the ports, skipping those without node or port id
+     */
+    static Map<String, Map<String, PortStatistics>> groupByNode(final List<PortStatistics> ports) {
+        final SortedMap<String, Map<String, PortStatistics>> nodes = new TreeMap<String, Map<String, PortStatistics>>();
+        if ( ports != null ) {
+            for ( PortStatistics ps : ports ) {
+                if ( ps.getNodeID() == null || ps.getPortID() == null ) {
+                    continue;
+                }
+                final String node = SdniDataBase.localToZero(ps.getNodeID());
+                Map<String, PortStatistics> nodePorts = nodes.get(node);
+                if ( nodePorts == null ) {
+                    nodePorts = new TreeMap<String, PortStatistics>();
+                    nodes.put(node, nodePorts);
+                }
+                nodePorts.put(SdniDataBase.localToZero(ps.getPortID()), ps);
+            }
+        }
+        for ( Map.Entry<String, Map<String, PortStatistics>> entry : nodes.entrySet() ) {
+            entry.setValue(Collections.unmodifiableSortedMap((SortedMap<String, PortStatistics>) entry.getValue()));
+        }
+        return Collections.unmodifiableSortedMap(nodes);
+    }
+
+    /**
+     * Replace the topology snapshot of a peer controller.
+     */
+    public void putLinks(final String controller, final List<String> controllerLinks) {
+        if ( controller == null || controller.isEmpty() ) {
+            return;
+        }
+        final List<String> snapshot = controllerLinks == null ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(new ArrayList<String>(controllerLinks));
+        links.put(controller, snapshot);
+    }
+
+    /**
+     * @return Map&lt;controller,Map&lt;nodeid,Map&lt;portid, portparams&gt;&gt;&gt; of all peers
+     */
+    public Map<String, Map<String, Map<String, PortStatistics>>> getAllQoSPeerData() {
+        return new HashMap<String, Map<String, Map<String, PortStatistics>>>(qos);
+    }
+
+    /**
+     * @return Map&lt;controller,List&lt;links&gt;&gt; of all peers
+     */
+    public Map<String, List<String>> getAllPeerTopology() {
+        return new HashMap<String, List<String>>(links);
+    }
+
+    /**
+     * Look up one page of the peer ports matching the query. The controller,
+     * node prefix, port and cursor are range lookups on the sorted maps, so
+     * only the ports of the page and those failing the error threshold are
+     * visited.
+     */
+    public SdniQosPage queryQos(final SdniQosQuery query) {
+        final String[] after = query.getAfter();
+        SortedMap<String, Map<String, Map<String, PortStatistics>>> controllers = qos;
+        if ( query.getControllerIp() != null ) {
+            controllers = controllers.subMap(query.getControllerIp(), query.getControllerIp() + '\0');
+        }
+        if ( after != null ) {
+            controllers = tailMap(controllers, after[0], true);
+        }
+
+        final Map<String, Map<String, Map<String, PortStatistics>>> page =
+                new LinkedHashMap<String, Map<String, Map<String, PortStatistics>>>();
+        int size = 0;
+        String[] last = null;
+        for ( Map.Entry<String, Map<String, Map<String, PortStatistics>>> controller : controllers.entrySet() ) {
+            SortedMap<String, Map<String, PortStatistics>> nodes = sorted(controller.getValue());
+            if ( query.getNodeIdPrefix() != null ) {
+                nodes = nodes.subMap(query.getNodeIdPrefix(), query.getNodeIdPrefix() + Character.MAX_VALUE);
+            }
+            final boolean resumeController = after != null && after[0].equals(controller.getKey());
+            if ( resumeController ) {
+                nodes = tailMap(nodes, after[1], true);
+            }
+            for ( Map.Entry<String, Map<String, PortStatistics>> node : nodes.entrySet() ) {
+                SortedMap<String, PortStatistics> ports = sorted(node.getValue());
+                if ( query.getPortId() != null ) {
+                    ports = ports.subMap(query.getPortId(), query.getPortId() + '\0');
+                }
+                if ( resumeController && after[1].equals(node.getKey()) ) {
+                    // strictly after the last port of the previous page
+                    ports = tailMap(ports, after[2], false);
+                }
+                for ( Map.Entry<String, PortStatistics> port : ports.entrySet() ) {
+                    if ( receiveErrors(port.getValue()) < query.getMinReceiveErrors() ) {
+                        continue;
+                    }
+                    if ( size == query.getLimit() ) {
+                        return new SdniQosPage(page, size, SdniQosQuery.toCursor(last[0], last[1], last[2]));
+                    }
+                    Map<String, Map<String, PortStatistics>> pageNodes = page.get(controller.getKey());
+                    if ( pageNodes == null ) {
+                        pageNodes = new LinkedHashMap<String, Map<String, PortStatistics>>();
+                        page.put(controller.getKey(), pageNodes);
+                    }
+                    Map<String, PortStatistics> pagePorts = pageNodes.get(node.getKey());
+                    if ( pagePorts == null ) {
+                        pagePorts = new LinkedHashMap<String, PortStatistics>();
+                        pageNodes.put(node.getKey(), pagePorts);
+                    }
+                    pagePorts.put(port.getKey(), port.getValue());
+                    size++;
+                    last = new String[] {controller.getKey(), node.getKey(), port.getKey()};
+                }
+            }
+        }
+        return new SdniQosPage(page, size, null);
+    }
+
+    private static long receiveErrors(final PortStatistics ps) {
+        return ps.getReceiveFrameError() + ps.getReceiveOverRunError() + ps.getReceiveCrcError();
+    }
+
+    /**
+     * Snapshots restored by {@link #loadFrom} may not be sorted yet.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> SortedMap<String, V> sorted(final Map<String, V> map) {
+        return map instanceof SortedMap ? (SortedMap<String, V>) map : new TreeMap<String, V>(map);
+    }
+
+    /**
+     * The entries from the key on, or strictly after it, of a map which may be
+     * a range of another: a key outside the range gives all or none of it
+     * rather than failing.
+     */
+    private static <V> SortedMap<String, V> tailMap(final SortedMap<String, V> map, final String key,
+            final boolean inclusive) {
+        if ( map.isEmpty() ) {
+            return map;
+        }
+        final int last = key.compareTo(map.lastKey());
+        if ( last > 0 || last == 0 && !inclusive ) {
+            return Collections.<String, V>emptySortedMap();
+        }
+        final int first = key.compareTo(map.firstKey());
+        if ( first < 0 || first == 0 && inclusive ) {
+            return map;
+        }
+        return map.tailMap(inclusive ? key : key + '\0');
+    }
+
+    public SdniQosHistory getQosHistory() {
+        return qosHistory;
+    }
+
+    /**
+     * Drop the snapshots and QoS history of the given controllers.
+     */
+    public void removeControllers(final Collection<String> controllers) {
+        qos.keySet().removeAll(controllers);
+        links.keySet().removeAll(controllers);
+        qosHistory.removeControllers(controllers);
+    }
+
+    /**
+     * @return every controller a snapshot or QoS history is held for
+     */
+    public Set<String> getControllers() {
+        final Set<String> controllers = new HashSet<String>(qos.keySet());
+        controllers.addAll(links.keySet());
+        controllers.addAll(qosHistory.getControllers());
+        return controllers;
+    }
+
+    /**
+     * Seed the store with the peer state persisted before a restart. Entries
+     * already received since start-up are kept.
+     */
+    public void loadFrom(final SdniStorage storage) {
+        int loaded = 0;
+        for ( Map.Entry<String, Map<String, Map<String, PortStatistics>>> entry : storage.getAllQoSPeerData().entrySet() ) {
+            if ( qos.putIfAbsent(entry.getKey(), entry.getValue()) == null ) {
+                loaded++;
+            }
+        }
+        for ( Map.Entry<String, List<String>> entry : storage.getAllPeerTopology().entrySet() ) {
+            if ( links.putIfAbsent(entry.getKey(), Collections.unmodifiableList(entry.getValue())) == null ) {
+                loaded++;
+            }
+        }
+        for ( Map.Entry<String, SortedMap<Long, List<PortStatistics>>> entry : storage.getQosHistory().entrySet() ) {
+            if ( qosHistory.contains(entry.getKey()) ) {
+                continue;
+            }
+            for ( Map.Entry<Long, List<PortStatistics>> sample : entry.getValue().entrySet() ) {
+                qosHistory.record(entry.getKey(), sample.getValue(), sample.getKey());
+            }
+        }
+        LOG.info("Loaded {} persisted peer snapshots", loaded);
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded history of the QoS samples received for each
+ * (controller, node, port), kept in one fixed-size ring buffer per port.
+ *
+ * Rates are derived when a sample is recorded, from the counters of the
+ * previous sample of the same port. The first sample of a port, a sample with
+ * a non-increasing timestamp and a sample whose counters went backwards (a
+ * switch restart or counter wrap) carry no rates.
+ */
+public final class SdniQosHistory {
+
+    public static final int DEFAULT_CAPACITY = 60;
+
+    //Map<controller,Map<nodeid,Map<portid, samples>>>
+    private final Map<String, Map<String, Map<String, Ring>>> samples =
+            new HashMap<String, Map<String, Map<String, Ring>>>();
+    private int capacity;
+
+    public SdniQosHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SdniQosHistory(final int capacity) {
+        this.capacity = checkCapacity(capacity);
+    }
+
+    private static int checkCapacity(final int capacity) {
+        if ( capacity < 1 ) {
+            throw new IllegalArgumentException("History capacity must be positive, was " + capacity);
+        }
+        return capacity;
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Change the number of samples kept per port. Existing histories keep
+     * their newest samples.
+     */
+    public synchronized void setCapacity(final int capacity) {
+        this.capacity = checkCapacity(capacity);
+        for ( Map<String, Map<String, Ring>> nodes : samples.values() ) {
+            for ( Map<String, Ring> ports : nodes.values() ) {
+                for ( Map.Entry<String, Ring> entry : ports.entrySet() ) {
+                    entry.setValue(entry.getValue().resize(capacity));
+                }
+            }
+        }
+    }
+
+    /**
+     * Append one snapshot of a controller, taken at the given time, to the
+     * history of each of its ports. Ports without node or port id are skipped.
+     */
+    public synchronized void record(final String controller, final List<PortStatistics> ports, final long timestampMillis) {
+        if ( controller == null || controller.isEmpty() || ports == null ) {
+            return;
+        }
+        Map<String, Map<String, Ring>> nodes = samples.get(controller);
+        if ( nodes == null ) {
+            nodes = new HashMap<String, Map<String, Ring>>();
+            samples.put(controller, nodes);
+        }
+        for ( PortStatistics ps : ports ) {
+            if ( ps.getNodeID() == null || ps.getPortID() == null ) {
+                continue;
+            }
+            final String node = SdniDataBase.localToZero(ps.getNodeID());
+            Map<String, Ring> nodePorts = nodes.get(node);
+            if ( nodePorts == null ) {
+                nodePorts = new HashMap<String, Ring>();
+                nodes.put(node, nodePorts);
+            }
+            final String port = SdniDataBase.localToZero(ps.getPortID());
+            Ring ring = nodePorts.get(port);
+            if ( ring == null ) {
+                ring = new Ring(capacity);
+                nodePorts.put(port, ring);
+            }
+            ring.add(Sample.of(timestampMillis, ps, ring.newest()));
+        }
+    }
+
+    /**
+     * @return whether any sample of the controller is held
+     */
+    public synchronized boolean contains(final String controller) {
+        return samples.containsKey(controller);
+    }
+
+    /**
+     * @return Map&lt;controller,Map&lt;nodeid,Map&lt;portid, samples&gt;&gt;&gt;
+     *         with the samples of each port oldest first
+     */
+    public synchronized Map<String, Map<String, Map<String, List<Sample>>>> getAll() {
+        final Map<String, Map<String, Map<String, List<Sample>>>> copy =
+                new HashMap<String, Map<String, Map<String, List<Sample>>>>();
+        for ( Map.Entry<String, Map<String, Map<String, Ring>>> controller : samples.entrySet() ) {
+            final Map<String, Map<String, List<Sample>>> nodes = new HashMap<String, Map<String, List<Sample>>>();
+            for ( Map.Entry<String, Map<String, Ring>> node : controller.getValue().entrySet() ) {
+                final Map<String, List<Sample>> ports = new HashMap<String, List<Sample>>();
+                for ( Map.Entry<String, Ring> port : node.getValue().entrySet() ) {
+                    ports.put(port.getKey(), port.getValue().toList());
+                }
+                nodes.put(node.getKey(), ports);
+            }
+            copy.put(controller.getKey(), nodes);
+        }
+        return copy;
+    }
+
+    /**
+     * @return the controllers a history is held for
+     */
+    public synchronized Set<String> getControllers() {
+        return new HashSet<String>(samples.keySet());
+    }
+
+    /**
+     * Drop the history of the given controllers.
+     */
+    public synchronized void removeControllers(final Collection<String> controllers) {
+        samples.keySet().removeAll(controllers);
+    }
+
+    /**
+     * One QoS sample of a port with the rates derived from the previous one.
+     */
+    public static final class Sample {
+
+        private final long timestampMillis;
+        private final PortStatistics statistics;
+        private final boolean hasRates;
+        private final double receivePacketsPerSecond;
+        private final double transmitPacketsPerSecond;
+        private final double errorsPerSecond;
+        private final double collisionsPerSecond;
+
+        private Sample(final long timestampMillis, final PortStatistics statistics, final boolean hasRates,
+                final double receivePacketsPerSecond, final double transmitPacketsPerSecond,
+                final double errorsPerSecond, final double collisionsPerSecond) {
+            this.timestampMillis = timestampMillis;
+            this.statistics = statistics;
+            this.hasRates = hasRates;
+            this.receivePacketsPerSecond = receivePacketsPerSecond;
+            this.transmitPacketsPerSecond = transmitPacketsPerSecond;
+            this.errorsPerSecond = errorsPerSecond;
+            this.collisionsPerSecond = collisionsPerSecond;
+        }
+
+        static Sample of(final long timestampMillis, final PortStatistics statistics, final Sample previous) {
+            if ( previous == null || timestampMillis <= previous.timestampMillis ) {
+                return new Sample(timestampMillis, statistics, false, 0, 0, 0, 0);
+            }
+            final PortStatistics prev = previous.statistics;
+            final long receivePackets = statistics.getReceivePackets() - prev.getReceivePackets();
+            final long transmitPackets = statistics.getTransmitPackets() - prev.getTransmitPackets();
+            final long errors = errors(statistics) - errors(prev);
+            final long collisions = statistics.getCollisionCount() - prev.getCollisionCount();
+            if ( receivePackets < 0 || transmitPackets < 0 || errors < 0 || collisions < 0 ) {
+                return new Sample(timestampMillis, statistics, false, 0, 0, 0, 0);
+            }
+            final double seconds = (timestampMillis - previous.timestampMillis) / 1000.0;
+            return new Sample(timestampMillis, statistics, true, receivePackets / seconds,
+                    transmitPackets / seconds, errors / seconds, collisions / seconds);
+        }
+
+        private static long errors(final PortStatistics ps) {
+            return ps.getReceiveFrameError() + ps.getReceiveOverRunError() + ps.getReceiveCrcError();
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public PortStatistics getStatistics() {
+            return statistics;
+        }
+
+        /**
+         * @return false for the first sample of a port and after a counter reset
+         */
+        public boolean hasRates() {
+            return hasRates;
+        }
+
+        public double getReceivePacketsPerSecond() {
+            return receivePacketsPerSecond;
+        }
+
+        public double getTransmitPacketsPerSecond() {
+            return transmitPacketsPerSecond;
+        }
+
+        /**
+         * @return receive frame, overrun and CRC errors per second
+         */
+        public double getErrorsPerSecond() {
+            return errorsPerSecond;
+        }
+
+        public double getCollisionsPerSecond() {
+            return collisionsPerSecond;
+        }
+    }
+
+    /**
+     * Fixed-size ring buffer of samples that overwrites the oldest entry.
+     */
+    private static final class Ring {
+
+        private final Sample[] entries;
+        private int next = 0;
+        private int size = 0;
+
+        Ring(final int capacity) {
+            entries = new Sample[capacity];
+        }
+
+        void add(final Sample sample) {
+            entries[next] = sample;
+            next = (next + 1) % entries.length;
+            if ( size < entries.length ) {
+                size++;
+            }
+        }
+
+        Sample newest() {
+            return size == 0 ? null : entries[(next - 1 + entries.length) % entries.length];
+        }
+
+        List<Sample> toList() {
+            final List<Sample> list = new ArrayList<Sample>(size);
+            final int oldest = (next - size + entries.length) % entries.length;
+            for ( int i = 0; i < size; i++ ) {
+                list.add(entries[(oldest + i) % entries.length]);
+            }
+            return list;
+        }
+
+        Ring resize(final int capacity) {
+            if ( capacity == entries.length ) {
+                return this;
+            }
+            final Ring resized = new Ring(capacity);
+            final List<Sample> list = toList();
+            for ( Sample sample : list.subList(Math.max(0, list.size() - capacity), list.size()) ) {
+                resized.add(sample);
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One page of peer port statistics returned by
+ * {@link SdniPeerStateStore#queryQos}.
+ */
+public final class SdniQosPage {
+
+    private final Map<String, Map<String, Map<String, PortStatistics>>> controllers;
+    private final int size;
+    private final String nextCursor;
+
+    SdniQosPage(final Map<String, Map<String, Map<String, PortStatistics>>> controllers, final int size,
+            final String nextCursor) {
+        this.controllers = Collections.unmodifiableMap(controllers);
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return Map&lt;controller,Map&lt;nodeid,Map&lt;portid, portparams&gt;&gt;&gt; of
+     *         the page, iterated in controller, node and port order
+     */
+    public Map<String, Map<String, Map<String, PortStatistics>>> getControllers() {
+        return controllers;
+    }
+
+    /**
+     * @return the number of ports in the page
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the cursor of the next page, or null if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
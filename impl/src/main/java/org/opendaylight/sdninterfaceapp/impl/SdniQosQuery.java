@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+/**
+ * Filters and page position of a {@link SdniPeerStateStore#queryQos} lookup.
+ * Every filter is optional. Ports are returned in controller, node and port
+ * order; the cursor is the position of the last port of the previous page.
+ */
+public final class SdniQosQuery {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String ENCODING = "UTF-8";
+
+    private final String controllerIp;
+    private final String nodeIdPrefix;
+    private final String portId;
+    private final long minReceiveErrors;
+    private final String[] after;
+    private final int limit;
+
+    private SdniQosQuery(final Builder builder) {
+        this.controllerIp = builder.controllerIp;
+        this.nodeIdPrefix = builder.nodeIdPrefix == null ? null : SdniDataBase.localToZero(builder.nodeIdPrefix);
+        this.portId = builder.portId == null ? null : SdniDataBase.localToZero(builder.portId);
+        this.minReceiveErrors = builder.minReceiveErrors;
+        this.after = builder.cursor == null ? null : parseCursor(builder.cursor);
+        this.limit = Math.min(builder.limit, MAX_LIMIT);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getControllerIp() {
+        return controllerIp;
+    }
+
+    public String getNodeIdPrefix() {
+        return nodeIdPrefix;
+    }
+
+    public String getPortId() {
+        return portId;
+    }
+
+    /**
+     * @return the minimum sum of the receive frame, overrun and CRC errors
+     */
+    public long getMinReceiveErrors() {
+        return minReceiveErrors;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return {controller, node, port} of the last port of the previous page,
+     *         or null for the first page
+     */
+    String[] getAfter() {
+        return after;
+    }
+
+    /**
+     * @return the cursor of the page following the given port
+     */
+    static String toCursor(final String controller, final String node, final String port) {
+        try {
+            return URLEncoder.encode(controller, ENCODING) + "/" + URLEncoder.encode(node, ENCODING) + "/"
+                    + URLEncoder.encode(port, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String[] parseCursor(final String cursor) {
+        final String[] parts = cursor.split("/", -1);
+        if ( parts.length != 3 ) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        try {
+            for ( int i = 0; i < parts.length; i++ ) {
+                parts[i] = URLDecoder.decode(parts[i], ENCODING);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+        return parts;
+    }
+
+    public static final class Builder {
+        private String controllerIp;
+        private String nodeIdPrefix;
+        private String portId;
+        private long minReceiveErrors;
+        private String cursor;
+        private int limit = DEFAULT_LIMIT;
+
+        private Builder() {
+        }
+
+        public Builder setControllerIp(final String controllerIp) {
+            this.controllerIp = controllerIp;
+            return this;
+        }
+
+        public Builder setNodeIdPrefix(final String nodeIdPrefix) {
+            this.nodeIdPrefix = nodeIdPrefix;
+            return this;
+        }
+
+        public Builder setPortId(final String portId) {
+            this.portId = portId;
+            return this;
+        }
+
+        public Builder setMinReceiveErrors(final long minReceiveErrors) {
+            this.minReceiveErrors = minReceiveErrors;
+            return this;
+        }
+
+        /**
+         * @param cursor the next cursor of the previous page, null for the first
+         */
+        public Builder setCursor(final String cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        public Builder setLimit(final int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor or the limit is invalid
+         */
+        public SdniQosQuery build() {
+            if ( limit < 1 ) {
+                throw new IllegalArgumentException("Invalid limit " + limit);
+            }
+            return new SdniQosQuery(this);
+        }
+    }
+}
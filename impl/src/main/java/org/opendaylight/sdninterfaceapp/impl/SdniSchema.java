@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed SQLite schema of the SDNi store and its migration.
+ *
+ * QoS statistics of the local and the peer controllers live in one
+ * {@value #PORT_STATS} table keyed by (controller, node, port) and topology
+ * links in one {@value #LINKS} table keyed by (controller, src_tp, dst_tp).
+ * The {@code peer} column tells local rows (0) from rows learnt from BGP
+ * peers (1), and the port counters are INTEGER columns. Past peer QoS samples
+ * are kept in {@value #PORT_STATS_HISTORY} when history persistence is
+ * enabled. The applied version is kept in {@value #SCHEMA_VERSION}.
+ */
+final class SdniSchema {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniSchema.class);
+
+    static final String PORT_STATS = "port_stats";
+    static final String PORT_STATS_HISTORY = "port_stats_history";
+    static final String LINKS = "links";
+    static final String TRUSTED_CONTROLLERS = "TRUSTED_CONTROLLERS";
+    static final String SCHEMA_VERSION = "schema_version";
+
+    static final int CURRENT_VERSION = 3;
+
+    private SdniSchema() {
+    }
+
+    /**
+     * Bring the database behind the connection up to {@link #CURRENT_VERSION}.
+     * Safe to call on every new connection.
+     */
+    static void migrate(final Connection conn) throws SQLException {
+        final boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        final Statement stmt = conn.createStatement();
+        try {
+            stmt.executeUpdate("create table IF NOT EXISTS " + SCHEMA_VERSION + " (version INTEGER NOT NULL);");
+            final int version = readVersion(stmt);
+            if ( version < 1 ) {
+                migrateToV1(stmt);
+            }
+            if ( version < 2 ) {
+                migrateToV2(stmt);
+            }
+            if ( version < 3 ) {
+                migrateToV3(stmt);
+            }
+            if ( version != CURRENT_VERSION ) {
+                stmt.executeUpdate("delete from " + SCHEMA_VERSION);
+                stmt.executeUpdate("insert into " + SCHEMA_VERSION + " values (" + CURRENT_VERSION + ")");
+                LOG.info("SDNi schema migrated from version {} to {}", version, CURRENT_VERSION);
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            stmt.close();
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int readVersion(final Statement stmt) throws SQLException {
+        final ResultSet rs = stmt.executeQuery("select max(version) from " + SCHEMA_VERSION);
+        try {
+            return rs.next() ? rs.getInt(1) : 0;
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * Version 1 replaces the QOS_DATABASE_[PEER_]&lt;ip&gt; and
+     * TOPOLOGY_DATABASE_[PEER_]&lt;ip&gt; tables with {@value #PORT_STATS} and
+     * {@value #LINKS}. The old tables only held the last snapshot of each
+     * controller, which is re-sent on the next update, so they are dropped
+     * rather than copied.
+     */
+    private static void migrateToV1(final Statement stmt) throws SQLException {
+        final List<String> legacyTables = new ArrayList<String>();
+        final ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table'"
+                + " and (name like 'QOS\\_DATABASE\\_%' escape '\\' or name like 'TOPOLOGY\\_DATABASE\\_%' escape '\\')");
+        try {
+            while ( rs.next() ) {
+                legacyTables.add(rs.getString(1));
+            }
+        } finally {
+            rs.close();
+        }
+        for ( String table : legacyTables ) {
+            LOG.info("SDNi schema: dropping legacy table {}", table);
+            stmt.executeUpdate("drop table if exists " + table);
+        }
+
+        stmt.executeUpdate("create table IF NOT EXISTS " + PORT_STATS + " (controller TEXT NOT NULL, peer INTEGER NOT NULL,"
+                + " node TEXT NOT NULL, port TEXT NOT NULL, receiveFrameError TEXT, receiveOverRunError TEXT,"
+                + " receiveCrcError TEXT, collisionCount TEXT, receivePackets TEXT, transmitPackets TEXT, bridge_port TEXT,"
+                + " PRIMARY KEY (controller, node, port, peer));");
+        stmt.executeUpdate("create index IF NOT EXISTS " + PORT_STATS + "_peer_idx on " + PORT_STATS + " (peer, controller);");
+
+        stmt.executeUpdate("create table IF NOT EXISTS " + LINKS + " (controller TEXT NOT NULL, peer INTEGER NOT NULL,"
+                + " src_tp TEXT NOT NULL, dst_tp TEXT NOT NULL, PRIMARY KEY (controller, src_tp, dst_tp, peer));");
+        stmt.executeUpdate("create index IF NOT EXISTS " + LINKS + "_peer_idx on " + LINKS + " (peer, controller);");
+
+        stmt.executeUpdate("create table IF NOT EXISTS " + TRUSTED_CONTROLLERS + " (controller TEXT NOT NULL);");
+    }
+
+    /**
+     * Version 2 stores the {@value #PORT_STATS} counters as INTEGER instead of
+     * TEXT. Existing rows are copied over with their counters cast.
+     */
+    private static void migrateToV2(final Statement stmt) throws SQLException {
+        final String old = PORT_STATS + "_v1";
+        stmt.executeUpdate("alter table " + PORT_STATS + " rename to " + old);
+        stmt.executeUpdate("drop index IF EXISTS " + PORT_STATS + "_peer_idx");
+        stmt.executeUpdate("create table " + PORT_STATS + " (controller TEXT NOT NULL, peer INTEGER NOT NULL,"
+                + " node TEXT NOT NULL, port TEXT NOT NULL, receiveFrameError INTEGER NOT NULL DEFAULT 0,"
+                + " receiveOverRunError INTEGER NOT NULL DEFAULT 0, receiveCrcError INTEGER NOT NULL DEFAULT 0,"
+                + " collisionCount INTEGER NOT NULL DEFAULT 0, receivePackets INTEGER NOT NULL DEFAULT 0,"
+                + " transmitPackets INTEGER NOT NULL DEFAULT 0, bridge_port TEXT,"
+                + " PRIMARY KEY (controller, node, port, peer));");
+        stmt.executeUpdate("insert into " + PORT_STATS + " select controller, peer, node, port,"
+                + " cast(ifnull(receiveFrameError, 0) as INTEGER), cast(ifnull(receiveOverRunError, 0) as INTEGER),"
+                + " cast(ifnull(receiveCrcError, 0) as INTEGER), cast(ifnull(collisionCount, 0) as INTEGER),"
+                + " cast(ifnull(receivePackets, 0) as INTEGER), cast(ifnull(transmitPackets, 0) as INTEGER), bridge_port"
+                + " from " + old);
+        stmt.executeUpdate("drop table " + old);
+        stmt.executeUpdate("create index IF NOT EXISTS " + PORT_STATS + "_peer_idx on " + PORT_STATS + " (peer, controller);");
+    }
+
+    /**
+     * Version 3 adds {@value #PORT_STATS_HISTORY}, one row per peer port and
+     * sample time.
+     */
+    private static void migrateToV3(final Statement stmt) throws SQLException {
+        stmt.executeUpdate("create table IF NOT EXISTS " + PORT_STATS_HISTORY + " (controller TEXT NOT NULL,"
+                + " node TEXT NOT NULL, port TEXT NOT NULL, sampled_at INTEGER NOT NULL,"
+                + " receiveFrameError INTEGER NOT NULL DEFAULT 0, receiveOverRunError INTEGER NOT NULL DEFAULT 0,"
+                + " receiveCrcError INTEGER NOT NULL DEFAULT 0, collisionCount INTEGER NOT NULL DEFAULT 0,"
+                + " receivePackets INTEGER NOT NULL DEFAULT 0, transmitPackets INTEGER NOT NULL DEFAULT 0, bridge_port TEXT,"
+                + " PRIMARY KEY (controller, node, port, sampled_at));");
+        stmt.executeUpdate("create index IF NOT EXISTS " + PORT_STATS_HISTORY + "_time_idx on " + PORT_STATS_HISTORY
+                + " (controller, sampled_at);");
+    }
+}
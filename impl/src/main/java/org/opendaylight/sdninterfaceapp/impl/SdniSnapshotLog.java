@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, memory-mapped log of the QoS and topology snapshots received
+ * from SDNi peers, replayed into the {@link SdniPeerStateStore} at start-up so
+ * the peer RPCs have data before the peers re-advertise.
+ *
+ * Every record is [length][crc32][type, timestamp, controller, body]; replay
+ * stops at the first empty or corrupt record, so a torn write only loses
+ * itself. The latest record of each (type, controller) is kept in memory.
+ * When the mapped region is full the log is compacted: those records are
+ * written to a new file, which then replaces the log.
+ */
+public final class SdniSnapshotLog implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniSnapshotLog.class);
+
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+
+    private static final byte QOS = 1;
+    private static final byte LINKS = 2;
+    private static final byte REMOVED = 3;
+    private static final int HEADER_SIZE = 8;
+
+    private final File file;
+    private int capacity;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+
+    /** Latest QOS/LINKS record per type and controller, in append order. */
+    private final Map<String, byte[]> latest = new LinkedHashMap<String, byte[]>();
+
+    private SdniSnapshotLog(final File file, final int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Open the log in the given file, creating it if needed, read back its
+     * records and compact it.
+     */
+    public static SdniSnapshotLog open(final File file, final int capacity) throws IOException {
+        final SdniSnapshotLog log = new SdniSnapshotLog(file, capacity);
+        log.map(Math.max(capacity, (int) Math.min(Integer.MAX_VALUE, file.length())));
+        log.readRecords();
+        log.compact();
+        return log;
+    }
+
+    private void map(final int size) throws IOException {
+        capacity = size;
+        raf = new RandomAccessFile(file, "rw");
+        if ( raf.length() < size ) {
+            raf.setLength(size);
+        }
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void readRecords() {
+        int records = 0;
+        while ( buffer.remaining() >= HEADER_SIZE ) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int crc = buffer.getInt();
+            if ( length <= 0 || length > buffer.remaining() ) {
+                buffer.position(start);
+                break;
+            }
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            if ( crc != crc(payload) ) {
+                LOG.warn("SdniSnapshotLog: corrupt record at offset {} of {}, ignoring the rest", start, file);
+                buffer.position(start);
+                break;
+            }
+            apply(payload);
+            records++;
+        }
+        LOG.info("SdniSnapshotLog: read {} records from {}", records, file);
+    }
+
+    private void apply(final byte[] payload) {
+        final byte type = payload[0];
+        final String controller;
+        try {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+            in.readLong();
+            controller = in.readUTF();
+        } catch (IOException e) {
+            LOG.warn("SdniSnapshotLog: unreadable record in {}", file, e);
+            return;
+        }
+        if ( type == REMOVED ) {
+            latest.remove(key(QOS, controller));
+            latest.remove(key(LINKS, controller));
+        } else {
+            final String key = key(type, controller);
+            // re-insert so the map stays in append order
+            latest.remove(key);
+            latest.put(key, payload);
+        }
+    }
+
+    /**
+     * Put the latest snapshot of every peer in the log into the store.
+     *
+     * @return the number of snapshots replayed
+     */
+    public synchronized int replayInto(final SdniPeerStateStore store) {
+        int replayed = 0;
+        for ( byte[] payload : latest.values() ) {
+            try {
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+                final long timestampMillis = in.readLong();
+                final String controller = in.readUTF();
+                if ( payload[0] == QOS ) {
+                    store.putQos(controller, readPorts(in, controller), timestampMillis);
+                } else {
+                    store.putLinks(controller, readLinks(in));
+                }
+                replayed++;
+            } catch (IOException e) {
+                LOG.warn("SdniSnapshotLog: unreadable record in {}", file, e);
+            }
+        }
+        LOG.info("SdniSnapshotLog: replayed {} peer snapshots", replayed);
+        return replayed;
+    }
+
+    public synchronized void appendQos(final String controller, final List<PortStatistics> ports, final long timestampMillis) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = start(bytes, QOS, timestampMillis, controller);
+            out.writeInt(ports.size());
+            for ( PortStatistics ps : ports ) {
+                writeNullable(out, ps.getNodeID());
+                writeNullable(out, ps.getPortID());
+                writeNullable(out, ps.getPortName());
+                out.writeLong(ps.getReceiveFrameError());
+                out.writeLong(ps.getReceiveOverRunError());
+                out.writeLong(ps.getReceiveCrcError());
+                out.writeLong(ps.getCollisionCount());
+                out.writeLong(ps.getReceivePackets());
+                out.writeLong(ps.getTransmitPackets());
+            }
+            append(bytes.toByteArray());
+        } catch (IOException e) {
+            LOG.error("SdniSnapshotLog: failed to log QoS of {}", controller, e);
+        }
+    }
+
+    public synchronized void appendLinks(final String controller, final List<String> links, final long timestampMillis) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = start(bytes, LINKS, timestampMillis, controller);
+            out.writeInt(links.size());
+            for ( String link : links ) {
+                writeNullable(out, link);
+            }
+            append(bytes.toByteArray());
+        } catch (IOException e) {
+            LOG.error("SdniSnapshotLog: failed to log links of {}", controller, e);
+        }
+    }
+
+    /**
+     * Log that the given controllers expired, so they are not replayed.
+     */
+    public synchronized void removeControllers(final Collection<String> controllers, final long timestampMillis) {
+        try {
+            for ( String controller : controllers ) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                start(bytes, REMOVED, timestampMillis, controller).flush();
+                append(bytes.toByteArray());
+            }
+        } catch (IOException e) {
+            LOG.error("SdniSnapshotLog: failed to log removal of {}", controllers, e);
+        }
+    }
+
+    private static DataOutputStream start(final ByteArrayOutputStream bytes, final byte type, final long timestampMillis,
+            final String controller) throws IOException {
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(timestampMillis);
+        out.writeUTF(controller);
+        return out;
+    }
+
+    private void append(final byte[] payload) throws IOException {
+        if ( buffer == null ) {
+            // closed while an update was on its way
+            return;
+        }
+        if ( buffer.remaining() < HEADER_SIZE + payload.length ) {
+            apply(payload);
+            compact();
+            return;
+        }
+        buffer.putInt(payload.length);
+        buffer.putInt(crc(payload));
+        buffer.put(payload);
+        apply(payload);
+    }
+
+    /**
+     * Rewrite the log with only the latest record of each (type, controller),
+     * doubling the mapped region when they fill more than half of it.
+     */
+    public synchronized void compact() throws IOException {
+        int needed = 0;
+        for ( byte[] payload : latest.values() ) {
+            needed += HEADER_SIZE + payload.length;
+        }
+        int size = capacity;
+        while ( needed > size / 2 ) {
+            size *= 2;
+        }
+
+        final File compacted = new File(file.getPath() + ".compact");
+        compacted.delete();
+        final RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        try {
+            out.setLength(size);
+            final MappedByteBuffer target = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for ( byte[] payload : latest.values() ) {
+                target.putInt(payload.length);
+                target.putInt(crc(payload));
+                target.put(payload);
+            }
+            target.force();
+        } finally {
+            out.close();
+        }
+
+        closeMapping();
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(size);
+        buffer.position(needed);
+        LOG.info("SdniSnapshotLog: compacted {} to {} records, {} bytes", file, latest.size(), needed);
+    }
+
+    private void closeMapping() throws IOException {
+        if ( buffer != null ) {
+            buffer.force();
+            buffer = null;
+        }
+        if ( raf != null ) {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeMapping();
+        } catch (IOException e) {
+            LOG.error("SdniSnapshotLog: failed to close {}", file, e);
+        }
+    }
+
+    private static List<PortStatistics> readPorts(final DataInputStream in, final String controller) throws IOException {
+        final int count = in.readInt();
+        final List<PortStatistics> ports = new ArrayList<PortStatistics>(count);
+        for ( int i = 0; i < count; i++ ) {
+            ports.add(PortStatistics.builder()
+                    .setController(controller)
+                    .setNodeID(readNullable(in))
+                    .setPortID(readNullable(in))
+                    .setPortName(readNullable(in))
+                    .setReceiveFrameError(in.readLong())
+                    .setReceiveOverRunError(in.readLong())
+                    .setReceiveCrcError(in.readLong())
+                    .setCollisionCount(in.readLong())
+                    .setReceivePackets(in.readLong())
+                    .setTransmitPackets(in.readLong())
+                    .build());
+        }
+        return ports;
+    }
+
+    private static List<String> readLinks(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<String> links = new ArrayList<String>(count);
+        for ( int i = 0; i < count; i++ ) {
+            final String link = readNullable(in);
+            if ( link != null ) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+
+    private static void writeNullable(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if ( value != null ) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static String key(final byte type, final String controller) {
+        return type + ":" + controller;
+    }
+
+    private static int crc(final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Storage of the SDNi QoS statistics, topology links, QoS history and trusted
+ * controllers of the local and the peer controllers.
+ *
+ * Snapshots are replaced per (controller, peer) as a whole. Node and port ids
+ * are stored with "LOCAL" replaced by "0". Implementations are thread-safe and
+ * report failures by logging them rather than throwing. The backend in use is
+ * chosen with {@link SdniStorageBackend}.
+ */
+public interface SdniStorage {
+
+    /**
+     * Replace the QoS snapshot of one controller.
+     *
+     * @param controller controller the snapshot belongs to
+     * @param peer true if the snapshot was received from a BGP peer
+     * @param ports port statistics of the snapshot, may be empty
+     */
+    void replacePortStatistics(String controller, boolean peer, List<PortStatistics> ports);
+
+    /**
+     * @return Map&lt;controller,Map&lt;nodeid,Map&lt;portid, portparams&gt;&gt;&gt; of all peers
+     */
+    Map<String, Map<String, Map<String, PortStatistics>>> getAllQoSPeerData();
+
+    /**
+     * Replace the topology of one controller.
+     *
+     * @param controller controller the links belong to
+     * @param peer true if the links were received from a BGP peer
+     * @param links links in the "source-tp-&gt;dest-tp" form used on the wire
+     */
+    void replaceLinks(String controller, boolean peer, List<String> links);
+
+    /**
+     * @return Map&lt;controller,List&lt;links&gt;&gt; of all peers
+     */
+    Map<String, List<String>> getAllPeerTopology();
+
+    /**
+     * Append one QoS snapshot of a peer controller to its history, keeping
+     * the newest keepSamples samples.
+     */
+    void appendQosHistory(String controller, long timestampMillis, List<PortStatistics> ports, int keepSamples);
+
+    /**
+     * @return Map&lt;controller,SortedMap&lt;timestamp,List&lt;portparams&gt;&gt;&gt;
+     */
+    Map<String, SortedMap<Long, List<PortStatistics>>> getQosHistory();
+
+    /**
+     * @return the controllers trusted to exchange SDNi data
+     */
+    List<String> getTrustedControllers();
+
+    /**
+     * Trust a controller; trusting it again is a no-op.
+     *
+     * @return false if the change could not be stored
+     */
+    boolean addTrustedController(String controller);
+
+    /**
+     * Stop trusting a controller.
+     *
+     * @return false if the change could not be stored
+     */
+    boolean removeTrustedController(String controller);
+
+    /**
+     * Delete all QoS, QoS history and topology data of the given controllers.
+     *
+     * @param batchSize maximum number of history entries deleted at once
+     */
+    void expireControllers(Collection<String> controllers, int batchSize);
+}
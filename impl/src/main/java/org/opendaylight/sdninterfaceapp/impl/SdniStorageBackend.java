@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+/**
+ * The {@link SdniStorage} backends, selected by the storage-backend leaf of
+ * the sdninterfaceapp config module and shared with the other modules through
+ * the {@link SdniConnectionManager}.
+ */
+public enum SdniStorageBackend {
+
+    /** SQLite file shared through the {@link SdniConnectionManager}. */
+    SQLITE("sqlite") {
+        @Override
+        public SdniStorage open(final SdniConnectionManager connectionManager) {
+            return new SdniDataBase(connectionManager);
+        }
+    },
+
+    /** Concurrent maps in this JVM, lost on restart. */
+    IN_MEMORY("in-memory") {
+        @Override
+        public SdniStorage open(final SdniConnectionManager connectionManager) {
+            return SdniInMemoryStorage.getInstance();
+        }
+    };
+
+    private final String configName;
+
+    SdniStorageBackend(final String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Open the storage of this backend. Every module opening the in-memory
+     * backend shares one instance, as they share one SQLite file otherwise.
+     */
+    public abstract SdniStorage open(SdniConnectionManager connectionManager);
+
+    /**
+     * @return the backend with the given config name, or null if there is none
+     */
+    public static SdniStorageBackend forConfigName(final String configName) {
+        for ( SdniStorageBackend backend : values() ) {
+            if ( backend.configName.equals(configName) ) {
+                return backend;
+            }
+        }
+        return null;
+    }
+}
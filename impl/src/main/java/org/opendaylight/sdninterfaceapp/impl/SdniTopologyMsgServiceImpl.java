@@ -63,6 +63,7 @@ private static final int CPUS = Runtime.getRuntime().availableProcessors();
 
     private static final Logger log = LoggerFactory.getLogger(SdniTopologyMsgServiceImpl.class);
     private DataBroker dataService = null;
+    private SdniPeerStateStore peerStateStore = SdniPeerStateStore.getInstance();
     private static SdniTopologyMsgServiceImpl sdniTopologyMsgServiceImpl = new SdniTopologyMsgServiceImpl();
     OpendaylightSdniTopologyMsgService SdniTopologyMsgService = null;
     org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.topology.params.rev151006.sdn.topology.NetworkTopologyBuilder networkTopologyBuilder = 
@@ -260,6 +261,11 @@ return result;
     {
     	this.dataService = dataBroker;
     }
+
+    public void setPeerStateStore(SdniPeerStateStore peerStateStore)
+    {
+    	this.peerStateStore = peerStateStore;
+    }
     
    
     @Override
@@ -275,10 +281,7 @@ return result;
                //Class.forName("org.sqlite.JDBC", true, Thread.currentThread().getContextClassLoader());
                //Connection conn = DriverManager.getConnection(URL); 
 			
-               SdniDataBase sdb = new SdniDataBase();
-                //Connection conn = sdb.getConnection();
-
-			Map<String, List<String>> topologyData=sdb.getAllPeerTopology();
+			Map<String, List<String>> topologyData=peerStateStore.getAllPeerTopology();
 log.info("after getAllPeerTopology of sdnjava"+ topologyData);
 //logger.info(for(Map.Entry<String, ArrayList<Edge>> e : map.entrySet()){
   //for(Edge e1 : e.getValue())
@@ -17,7 +17,9 @@ import org.opendaylight.controller.sal.binding.api.BindingAwareProvider;
 import org.opendaylight.controller.sal.binding.api.data.DataProviderService;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.topology.msg.rev151006.OpendaylightSdniTopologyMsgService;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.TopologyId;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,7 @@ public class SdniTopologyProvider implements BindingAwareProvider, AutoCloseable
     private final static Logger LOG = LoggerFactory.getLogger(SdniTopologyProvider.class);
     private DataBroker dataBroker = null;
     private RpcRegistration<OpendaylightSdniTopologyMsgService> sdniTopologyServiceRpc; 
+    private ListenerRegistration<SdniChangeListener<NetworkTopology>> topologyListenerReg;
 
     @Override
     public void onSessionInitiated(ProviderContext session) {
@@ -35,6 +38,7 @@ public class SdniTopologyProvider implements BindingAwareProvider, AutoCloseable
         sdniTopologyServiceRpc = session.addRpcImplementation(OpendaylightSdniTopologyMsgService.class,  sdniTopologyMsgServiceImpl);
         dataBroker = session.getSALService(DataBroker.class);   
         sdniTopologyMsgServiceImpl.setBroker(dataBroker);
+        topologyListenerReg = SdniChangeListener.registerTopology(dataBroker, SdniChangeNotifier.getInstance());
     }
 
     @Override
@@ -43,5 +47,8 @@ public class SdniTopologyProvider implements BindingAwareProvider, AutoCloseable
         if (sdniTopologyServiceRpc != null) {
             sdniTopologyServiceRpc.close();
         }
+        if (topologyListenerReg != null) {
+            topologyListenerReg.close();
+        }
     }
 }
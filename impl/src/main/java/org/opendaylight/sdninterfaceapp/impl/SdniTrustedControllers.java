@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the trusted controllers checked for every inbound SDNi message.
+ *
+ * The set is immutable and replaced as a whole, so {@link #isTrusted} is a
+ * lock-free hash lookup. It is loaded from the {@link SdniStorage} at start-up
+ * and replaced only after {@link #add} or {@link #remove} stored a change, so
+ * it always matches the trusted-controller table.
+ */
+public final class SdniTrustedControllers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniTrustedControllers.class);
+
+    private static final SdniTrustedControllers INSTANCE = new SdniTrustedControllers();
+
+    private volatile Set<String> controllers = Collections.emptySet();
+
+    public SdniTrustedControllers() {
+    }
+
+    public static SdniTrustedControllers getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isTrusted(final String controllerIp) {
+        return controllerIp != null && controllers.contains(controllerIp);
+    }
+
+    /**
+     * @return unmodifiable set of the trusted controllers
+     */
+    public Set<String> getControllers() {
+        return controllers;
+    }
+
+    /**
+     * Replace the cache with the trusted controllers of the storage.
+     */
+    public synchronized void reload(final SdniStorage storage) {
+        controllers = Collections.unmodifiableSet(new HashSet<String>(storage.getTrustedControllers()));
+        LOG.info("Loaded {} trusted controllers", controllers.size());
+    }
+
+    /**
+     * Trust a controller in the storage, then in the cache.
+     *
+     * @return false if the storage could not be updated
+     */
+    public synchronized boolean add(final SdniStorage storage, final String controllerIp) {
+        if ( !storage.addTrustedController(controllerIp) ) {
+            return false;
+        }
+        final Set<String> updated = new HashSet<String>(controllers);
+        updated.add(controllerIp);
+        controllers = Collections.unmodifiableSet(updated);
+        LOG.info("Trusted controller {} added", controllerIp);
+        return true;
+    }
+
+    /**
+     * Stop trusting a controller in the storage, then in the cache.
+     *
+     * @return false if the storage could not be updated
+     */
+    public synchronized boolean remove(final SdniStorage storage, final String controllerIp) {
+        if ( !storage.removeTrustedController(controllerIp) ) {
+            return false;
+        }
+        final Set<String> updated = new HashSet<String>(controllers);
+        updated.remove(controllerIp);
+        controllers = Collections.unmodifiableSet(updated);
+        LOG.info("Trusted controller {} removed", controllerIp);
+        return true;
+    }
+}
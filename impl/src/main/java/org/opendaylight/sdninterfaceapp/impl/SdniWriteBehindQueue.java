@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sdninterfaceapp.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, coalescing write-behind queue drained by a single writer thread.
+ *
+ * Writes are submitted under a key, e.g. one per controller and table. A write
+ * for a key that is still pending replaces the pending one, so only the latest
+ * snapshot of each controller reaches the database. Submitting never blocks:
+ * when the queue already holds {@code capacity} keys a write for a new key is
+ * dropped and {@code false} is returned.
+ */
+public final class SdniWriteBehindQueue implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SdniWriteBehindQueue.class);
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+    private final Map<String, Runnable> pending = new LinkedHashMap<String, Runnable>();
+    private final int capacity;
+    private final Thread writer;
+    private boolean closed = false;
+
+    public SdniWriteBehindQueue(final String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    public SdniWriteBehindQueue(final String name, final int capacity) {
+        this.capacity = capacity;
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a write, replacing any pending write with the same key.
+     *
+     * @return false if the queue is closed or full and the write was dropped
+     */
+    public boolean submit(final String key, final Runnable write) {
+        synchronized (pending) {
+            if ( closed ) {
+                LOG.warn("Write-behind queue closed, dropping write {}", key);
+                return false;
+            }
+            if ( !pending.containsKey(key) && pending.size() >= capacity ) {
+                LOG.warn("Write-behind queue full ({} entries), dropping write {}", capacity, key);
+                return false;
+            }
+            pending.put(key, write);
+            pending.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * @return number of writes waiting for the writer thread
+     */
+    public int size() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void drain() {
+        while ( true ) {
+            final Runnable write;
+            synchronized (pending) {
+                while ( pending.isEmpty() && !closed ) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if ( pending.isEmpty() ) {
+                    return;
+                }
+                final Iterator<Runnable> it = pending.values().iterator();
+                write = it.next();
+                it.remove();
+            }
+            try {
+                write.run();
+            } catch (Throwable e) {
+                // the writer is the only thread draining the queue, it must outlive any write
+                LOG.error("Write-behind write {} failed", write, e);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting writes, let the writer thread flush what is pending and
+     * wait for it to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+            pending.notifyAll();
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if ( writer.isAlive() ) {
+            LOG.warn("Write-behind writer {} did not finish within {} ms", writer.getName(), CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.impl.rev151006;
 
+import org.opendaylight.controller.config.api.JmxAttributeValidationException;
 import org.opendaylight.sdninterfaceapp.impl.QosDataServiceProvider;
+import org.opendaylight.sdninterfaceapp.impl.SdniConnectionManager;
+import org.opendaylight.sdninterfaceapp.impl.SdniStorageBackend;
 
 
 public class SdninterfaceappModule extends org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.sdninterfaceapp.impl.rev151006.AbstractSdninterfaceappModule {
@@ -15,11 +18,16 @@ public class SdninterfaceappModule extends org.opendaylight.yang.gen.v1.urn.open
     @Override
     public void customValidation() {
         // add custom validation form module attributes here.
+        JmxAttributeValidationException.checkCondition(SdniStorageBackend.forConfigName(getStorageBackend()) != null,
+                "must be sqlite or in-memory", storageBackendJmxAttribute);
     }
 
     @Override
     public java.lang.AutoCloseable createInstance() {
-        QosDataServiceProvider provider = new QosDataServiceProvider(getDataBrokerDependency());
+        final SdniStorageBackend storageBackend = SdniStorageBackend.forConfigName(getStorageBackend());
+        // the SdniWrapper opens its storage with the same backend
+        SdniConnectionManager.getInstance().setStorageBackend(storageBackend);
+        QosDataServiceProvider provider = new QosDataServiceProvider(getDataBrokerDependency(), storageBackend);
         getBrokerDependency().registerProvider(provider);
         return provider;
     }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.port.statistics.rev131214.FlowCapableNodeConnectorStatisticsData;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NetworkTopology;
+
+public class SdniChangeListenerTest {
+
+	private final DataBroker dataBroker = Mockito.mock(DataBroker.class);
+	private final SdniChangeNotifier notifier = new SdniChangeNotifier();
+	private final SdniChangeNotifier.Listener listener = Mockito.mock(SdniChangeNotifier.Listener.class);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testTopologyChanges() {
+		notifier.setListener(listener);
+		SdniChangeListener.registerTopology(dataBroker, notifier);
+		ArgumentCaptor<DataTreeIdentifier> id = ArgumentCaptor.forClass(DataTreeIdentifier.class);
+		ArgumentCaptor<SdniChangeListener> registered = ArgumentCaptor.forClass(SdniChangeListener.class);
+		Mockito.verify(dataBroker).registerDataTreeChangeListener(id.capture(), registered.capture());
+		assertEquals(new DataTreeIdentifier<NetworkTopology>(LogicalDatastoreType.OPERATIONAL,
+				SdniChangeListener.TOPOLOGY_IDENTIFIER), id.getValue());
+
+		registered.getValue().onDataTreeChanged(Collections.emptyList());
+		Mockito.verifyZeroInteractions(listener);
+		registered.getValue().onDataTreeChanged(Collections.singletonList(Mockito.mock(DataTreeModification.class)));
+		Mockito.verify(listener).onTopologyChanged();
+		Mockito.verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStatisticsChanges() {
+		SdniChangeListener.registerStatistics(dataBroker, notifier);
+		ArgumentCaptor<DataTreeIdentifier> id = ArgumentCaptor.forClass(DataTreeIdentifier.class);
+		ArgumentCaptor<SdniChangeListener> registered = ArgumentCaptor.forClass(SdniChangeListener.class);
+		Mockito.verify(dataBroker).registerDataTreeChangeListener(id.capture(), registered.capture());
+		assertEquals(new DataTreeIdentifier<FlowCapableNodeConnectorStatisticsData>(LogicalDatastoreType.OPERATIONAL,
+				SdniChangeListener.STATISTICS_IDENTIFIER), id.getValue());
+
+		// ignored until subscribed
+		registered.getValue().onDataTreeChanged(Collections.singletonList(Mockito.mock(DataTreeModification.class)));
+		notifier.setListener(listener);
+		registered.getValue().onDataTreeChanged(Collections.singletonList(Mockito.mock(DataTreeModification.class)));
+		Mockito.verify(listener).onStatisticsChanged();
+		Mockito.verifyNoMoreInteractions(listener);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Hammers the peer reads from several threads while a writer keeps replacing
+ * the same snapshot, checking that every read sees a complete snapshot.
+ */
+public class SdniDataBaseConcurrencyTest {
+
+	private static final String PEER = "10.0.0.2";
+	private static final int PORTS = 200;
+	private static final int WRITES = 50;
+	private static final int READERS = 4;
+
+	private File dbFile;
+	private SdniConnectionManager connectionManager;
+	private SdniDataBase sdb;
+
+	@Before
+	public void setUp() throws Exception {
+		dbFile = File.createTempFile("sdni-concurrency", ".db");
+		connectionManager = new SdniConnectionManager("jdbc:sqlite:" + dbFile.getAbsolutePath()).acquire();
+		sdb = new SdniDataBase(connectionManager);
+	}
+
+	@After
+	public void tearDown() {
+		connectionManager.close();
+		new File(dbFile.getAbsolutePath() + "-wal").delete();
+		new File(dbFile.getAbsolutePath() + "-shm").delete();
+		dbFile.delete();
+	}
+
+	@Test
+	public void testJournalModeIsWal() throws Exception {
+		String mode = connectionManager.runReadOnly(new SdniConnectionManager.ReadWork<String>() {
+			@Override
+			public String execute(Connection conn) throws SQLException {
+				Statement stmt = conn.createStatement();
+				try {
+					ResultSet rs = stmt.executeQuery("PRAGMA journal_mode");
+					rs.next();
+					return rs.getString(1);
+				} finally {
+					stmt.close();
+				}
+			}
+		});
+		assertEquals("wal", mode.toLowerCase());
+	}
+
+	@Test
+	public void testReadsSeeCompleteSnapshotsWhileWriting() throws Exception {
+		sdb.replacePortStatistics(PEER, true, ports(0));
+
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+		try {
+			Future<?> writer = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					try {
+						for (int i = 1; i <= WRITES; i++) {
+							sdb.replacePortStatistics(PEER, true, ports(i));
+						}
+					} finally {
+						writing.set(false);
+					}
+					return null;
+				}
+			});
+
+			List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+			for (int r = 0; r < READERS; r++) {
+				readers.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int reads = 0;
+						do {
+							Map<String, Map<String, Map<String, PortStatistics>>> qos = sdb.getAllQoSPeerData();
+							assertEquals(PORTS, qos.get(PEER).get("openflow:1").size());
+							reads++;
+						} while (writing.get());
+						return reads;
+					}
+				}));
+			}
+
+			writer.get(60, TimeUnit.SECONDS);
+			for (Future<Integer> reader : readers) {
+				assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		PortStatistics last = sdb.getAllQoSPeerData().get(PEER).get("openflow:1").get("openflow:1:1");
+		assertEquals(WRITES, last.getReceivePackets());
+	}
+
+	private static List<PortStatistics> ports(int sample) {
+		List<PortStatistics> ports = new ArrayList<PortStatistics>();
+		for (int i = 1; i <= PORTS; i++) {
+			ports.add(PortStatistics.builder()
+					.setNodeID("openflow:1")
+					.setPortID("openflow:1:" + i)
+					.setPortName("s1-eth" + i)
+					.setReceivePackets(sample)
+					.setTransmitPackets(sample)
+					.build());
+		}
+		return ports;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the old one-autocommit-statement-per-row QoS insert with the
+ * batched, single-transaction insert of {@link SdniDataBase#insertQosData(List, String)}
+ * and with the {@link SdniInMemoryStorage} backend, and logs rows/sec for each.
+ */
+public class SdniDataBaseInsertBenchmarkTest {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SdniDataBaseInsertBenchmarkTest.class);
+	private static final int PORTS = 1000;
+	private static final String CONTROLLER = "10.0.0.1";
+
+	private File dbFile;
+	private SdniConnectionManager connectionManager;
+
+	@Before
+	public void setUp() throws Exception {
+		dbFile = File.createTempFile("sdni-bench", ".db");
+		connectionManager = new SdniConnectionManager("jdbc:sqlite:" + dbFile.getAbsolutePath()).acquire();
+	}
+
+	@After
+	public void tearDown() {
+		connectionManager.close();
+		dbFile.delete();
+	}
+
+	@Test
+	public void testBatchedInsertThroughput() throws Exception {
+		List<PortStatistics> ports = buildPorts();
+		SdniDataBase sdb = new SdniDataBase(connectionManager);
+
+		long start = System.nanoTime();
+		insertOneByOne(ports);
+		long legacyNanos = System.nanoTime() - start;
+		assertEquals(PORTS, countRows("select count(*) from QOS_DATABASE_LEGACY"));
+
+		start = System.nanoTime();
+		sdb.insertQosData(ports, CONTROLLER);
+		long batchedNanos = System.nanoTime() - start;
+		assertEquals(PORTS, countRows("select count(*) from " + SdniSchema.PORT_STATS + " where controller = '" + CONTROLLER + "'"));
+
+		SdniStorage inMemory = new SdniInMemoryStorage();
+		start = System.nanoTime();
+		inMemory.replacePortStatistics(CONTROLLER, true, ports);
+		long inMemoryNanos = System.nanoTime() - start;
+		assertEquals(PORTS, countPorts(inMemory.getAllQoSPeerData().get(CONTROLLER)));
+
+		LOG.info("QoS insert of {} rows: autocommit per row {} rows/sec, batched transaction {} rows/sec,"
+				+ " in-memory {} rows/sec", PORTS, rowsPerSecond(legacyNanos), rowsPerSecond(batchedNanos),
+				rowsPerSecond(inMemoryNanos));
+	}
+
+	private static int countPorts(Map<String, Map<String, PortStatistics>> nodes) {
+		int count = 0;
+		for (Map<String, PortStatistics> nodePorts : nodes.values()) {
+			count += nodePorts.size();
+		}
+		return count;
+	}
+
+	private List<PortStatistics> buildPorts() {
+		List<PortStatistics> ports = new ArrayList<PortStatistics>();
+		for (int i = 0; i < PORTS; i++) {
+			ports.add(PortStatistics.builder()
+					.setController(CONTROLLER)
+					.setNodeID("openflow:" + (i / 48 + 1))
+					.setPortID("openflow:" + (i / 48 + 1) + ":" + (i % 48 + 1))
+					.setPortName("s" + (i / 48 + 1) + "-eth" + (i % 48 + 1))
+					.setReceivePackets(i * 10)
+					.setTransmitPackets(i * 20)
+					.build());
+		}
+		return ports;
+	}
+
+	/**
+	 * The pre-batching write path: every row is its own autocommitted statement.
+	 */
+	private void insertOneByOne(List<PortStatistics> ports) throws Exception {
+		Connection conn = connectionManager.getConnection();
+		Statement stmt = conn.createStatement();
+		try {
+			stmt.executeUpdate("create table QOS_DATABASE_LEGACY (controller TEXT NOT NULL, node TEXT NOT NULL, port TEXT NOT NULL,"
+					+ " receiveFrameError TEXT NOT NULL, receiveOverRunError TEXT NOT NULL, receiveCrcError TEXT NOT NULL,"
+					+ " collisionCount TEXT NOT NULL, receivePackets TEXT NOT NULL, transmitPackets TEXT NOT NULL, bridge_port TEXT NOT NULL);");
+			for (PortStatistics ps : ports) {
+				stmt.executeUpdate("insert into QOS_DATABASE_LEGACY values (\"" + ps.getController() + "\",\""
+						+ ps.getNodeID() + "\",\"" + ps.getPortID() + "\",\"" + ps.getReceiveFrameError() + "\",\""
+						+ ps.getReceiveOverRunError() + "\",\"" + ps.getReceiveCrcError() + "\",\""
+						+ ps.getCollisionCount() + "\",\"" + ps.getReceivePackets() + "\",\""
+						+ ps.getTransmitPackets() + "\",\"" + ps.getPortName() + "\");");
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
+	private int countRows(String query) throws SQLException, ClassNotFoundException {
+		Statement stmt = connectionManager.getConnection().createStatement();
+		try {
+			ResultSet rs = stmt.executeQuery(query);
+			return rs.next() ? rs.getInt(1) : 0;
+		} finally {
+			stmt.close();
+		}
+	}
+
+	private static long rowsPerSecond(long nanos) {
+		return nanos == 0 ? PORTS : PORTS * 1000000000L / nanos;
+	}
+}
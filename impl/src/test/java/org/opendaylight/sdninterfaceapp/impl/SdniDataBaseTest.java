@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SdniDataBaseTest {
+
+	private File dbFile;
+	private SdniConnectionManager connectionManager;
+	private SdniDataBase sdb;
+
+	@Before
+	public void setUp() throws Exception {
+		dbFile = File.createTempFile("sdni-db", ".db");
+		connectionManager = new SdniConnectionManager("jdbc:sqlite:" + dbFile.getAbsolutePath()).acquire();
+		sdb = new SdniDataBase(connectionManager);
+	}
+
+	@After
+	public void tearDown() {
+		connectionManager.close();
+		dbFile.delete();
+	}
+
+	@Test
+	public void testMigrationDropsLegacyTables() throws Exception {
+		connectionManager.close();
+		Class.forName("org.sqlite.JDBC");
+		Connection legacy = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+		Statement stmt = legacy.createStatement();
+		stmt.executeUpdate("create table QOS_DATABASE_PEER_10_0_0_2 (controller TEXT NOT NULL)");
+		stmt.executeUpdate("create table TOPOLOGY_DATABASE_10_0_0_1 (controller TEXT NOT NULL, links TEXT NOT NULL)");
+		stmt.close();
+		legacy.close();
+
+		stmt = connectionManager.getConnection().createStatement();
+		ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' and name like '%DATABASE%'");
+		assertFalse(rs.next());
+		rs.close();
+		rs = stmt.executeQuery("select version from " + SdniSchema.SCHEMA_VERSION);
+		assertTrue(rs.next());
+		assertEquals(SdniSchema.CURRENT_VERSION, rs.getInt(1));
+		rs.close();
+		stmt.close();
+	}
+
+	@Test
+	public void testMigrationCastsTextCounters() throws Exception {
+		connectionManager.close();
+		Class.forName("org.sqlite.JDBC");
+		Connection v1 = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+		Statement stmt = v1.createStatement();
+		stmt.executeUpdate("create table " + SdniSchema.SCHEMA_VERSION + " (version INTEGER NOT NULL)");
+		stmt.executeUpdate("insert into " + SdniSchema.SCHEMA_VERSION + " values (1)");
+		stmt.executeUpdate("create table " + SdniSchema.PORT_STATS + " (controller TEXT NOT NULL, peer INTEGER NOT NULL,"
+				+ " node TEXT NOT NULL, port TEXT NOT NULL, receiveFrameError TEXT, receiveOverRunError TEXT,"
+				+ " receiveCrcError TEXT, collisionCount TEXT, receivePackets TEXT, transmitPackets TEXT, bridge_port TEXT,"
+				+ " PRIMARY KEY (controller, node, port, peer))");
+		stmt.executeUpdate("insert into " + SdniSchema.PORT_STATS + " values ('10.0.0.2', 1, 'openflow:1', 'openflow:1:1',"
+				+ " '0', '0', '0', NULL, '12345678901', '7', '0')");
+		stmt.close();
+		v1.close();
+
+		PortStatistics ps = sdb.getAllQoSPeerData().get("10.0.0.2").get("openflow:1").get("openflow:1:1");
+		assertEquals(12345678901L, ps.getReceivePackets());
+		assertEquals(7L, ps.getTransmitPackets());
+		assertEquals(0L, ps.getCollisionCount());
+	}
+
+	@Test
+	public void testPeerReadsOnlyReturnPeerRows() {
+		sdb.replacePortStatistics("10.0.0.1", false, Collections.singletonList(port("openflow:1", "openflow:1:1")));
+		sdb.replacePortStatistics("10.0.0.2", true, Arrays.asList(port("openflow:1", "openflow:1:1"),
+				port("openflow:1", "openflow:1:LOCAL")));
+		sdb.replaceLinks("10.0.0.1", false, Collections.singletonList("openflow:1:1->openflow:2:1"));
+		sdb.replaceLinks("10.0.0.2", true, Collections.singletonList("openflow:3:1->openflow:4:1"));
+
+		Map<String, Map<String, Map<String, PortStatistics>>> qos = sdb.getAllQoSPeerData();
+		assertEquals(1, qos.size());
+		Map<String, PortStatistics> ports = qos.get("10.0.0.2").get("openflow:1");
+		assertEquals(2, ports.size());
+		assertTrue(ports.containsKey("openflow:1:0"));
+
+		Map<String, List<String>> topology = sdb.getAllPeerTopology();
+		assertEquals(1, topology.size());
+		assertEquals(Collections.singletonList("openflow:3:1->openflow:4:1"), topology.get("10.0.0.2"));
+	}
+
+	@Test
+	public void testReplaceAndExpire() {
+		sdb.replaceLinks("10.0.0.2", true, Arrays.asList("a->b", "c->d"));
+		sdb.replaceLinks("10.0.0.2", true, Collections.singletonList("a->b"));
+		sdb.replaceLinks("10.0.0.3", true, Collections.singletonList("e->f"));
+		assertEquals(Collections.singletonList("a->b"), sdb.getAllPeerTopology().get("10.0.0.2"));
+
+		sdb.expireControllers(Collections.singleton("10.0.0.2"), 100);
+		Map<String, List<String>> topology = sdb.getAllPeerTopology();
+		assertEquals(1, topology.size());
+		assertTrue(topology.containsKey("10.0.0.3"));
+	}
+
+	@Test
+	public void testLinksAreWrittenAsDiff() throws Exception {
+		sdb.replaceLinks("10.0.0.2", true, Arrays.asList("a->b", "c->d"));
+		int changes = totalChanges();
+
+		sdb.replaceLinks("10.0.0.2", true, Arrays.asList("c->d", "a->b"));
+		assertEquals(changes, totalChanges());
+
+		sdb.replaceLinks("10.0.0.2", true, Arrays.asList("a->b", "e->f"));
+		assertEquals(changes + 2, totalChanges());
+		List<String> links = sdb.getAllPeerTopology().get("10.0.0.2");
+		assertEquals(2, links.size());
+		assertTrue(links.containsAll(Arrays.asList("a->b", "e->f")));
+
+		// a fresh instance has no cached link set and diffs against the table
+		SdniDataBase restarted = new SdniDataBase(connectionManager);
+		restarted.replaceLinks("10.0.0.2", true, Arrays.asList("a->b", "e->f"));
+		assertEquals(changes + 2, totalChanges());
+	}
+
+	@Test
+	public void testQosHistoryKeepsNewestSamples() {
+		List<PortStatistics> ports = Arrays.asList(port("openflow:1", "openflow:1:1"), port("openflow:1", "openflow:1:2"));
+		for (long sampledAt = 1000; sampledAt <= 5000; sampledAt += 1000) {
+			sdb.appendQosHistory("10.0.0.2", sampledAt, ports, 3);
+		}
+
+		SortedMap<Long, List<PortStatistics>> samples = sdb.getQosHistory().get("10.0.0.2");
+		assertEquals(Arrays.asList(3000L, 4000L, 5000L), new ArrayList<Long>(samples.keySet()));
+		assertEquals(2, samples.get(5000L).size());
+
+		// two rows per batch: the history is removed in several transactions
+		sdb.expireControllers(Collections.singleton("10.0.0.2"), 2);
+		assertTrue(sdb.getQosHistory().isEmpty());
+	}
+
+	private int totalChanges() throws Exception {
+		Statement stmt = connectionManager.getConnection().createStatement();
+		try {
+			ResultSet rs = stmt.executeQuery("select total_changes()");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			stmt.close();
+		}
+	}
+
+	@Test
+	public void testTrustedControllersAreNotDuplicated() {
+		assertTrue(sdb.addTrustedController("10.0.0.2"));
+		assertTrue(sdb.addTrustedController("10.0.0.2"));
+		assertTrue(sdb.addTrustedController("10.0.0.3"));
+		assertEquals(2, sdb.getTrustedControllers().size());
+
+		assertTrue(sdb.removeTrustedController("10.0.0.2"));
+		assertEquals(Collections.singletonList("10.0.0.3"), sdb.getTrustedControllers());
+	}
+
+	private static PortStatistics port(String node, String port) {
+		return PortStatistics.builder()
+				.setNodeID(node)
+				.setPortID(port)
+				.setPortName("eth0")
+				.setReceivePackets(10)
+				.setTransmitPackets(20)
+				.build();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import org.junit.Test;
+
+public class SdniInMemoryStorageTest {
+
+	private final SdniStorage storage = new SdniInMemoryStorage();
+
+	@Test
+	public void testPeerReadsOnlyReturnPeerData() {
+		storage.replacePortStatistics("10.0.0.1", false, Collections.singletonList(port("openflow:1", "openflow:1:1")));
+		storage.replacePortStatistics("10.0.0.2", true, Arrays.asList(port("openflow:1", "openflow:1:1"),
+				port("openflow:1", "openflow:1:LOCAL")));
+		storage.replaceLinks("10.0.0.1", false, Collections.singletonList("openflow:1:1->openflow:2:1"));
+		storage.replaceLinks("10.0.0.2", true, Arrays.asList("openflow:3:1->openflow:4:1", "malformed"));
+
+		Map<String, Map<String, Map<String, PortStatistics>>> qos = storage.getAllQoSPeerData();
+		assertEquals(1, qos.size());
+		Map<String, PortStatistics> ports = qos.get("10.0.0.2").get("openflow:1");
+		assertEquals(2, ports.size());
+		assertTrue(ports.containsKey("openflow:1:0"));
+
+		Map<String, List<String>> topology = storage.getAllPeerTopology();
+		assertEquals(1, topology.size());
+		assertEquals(Collections.singletonList("openflow:3:1->openflow:4:1"), topology.get("10.0.0.2"));
+	}
+
+	@Test
+	public void testHistoryAndExpiry() {
+		List<PortStatistics> ports = Collections.singletonList(port("openflow:1", "openflow:1:1"));
+		for (long sampledAt = 1000; sampledAt <= 5000; sampledAt += 1000) {
+			storage.appendQosHistory("10.0.0.2", sampledAt, ports, 3);
+		}
+		storage.replaceLinks("10.0.0.2", true, Collections.singletonList("a->b"));
+
+		SortedMap<Long, List<PortStatistics>> samples = storage.getQosHistory().get("10.0.0.2");
+		assertEquals(Arrays.asList(3000L, 4000L, 5000L), new ArrayList<Long>(samples.keySet()));
+
+		storage.expireControllers(Collections.singleton("10.0.0.2"), 1);
+		assertTrue(storage.getQosHistory().isEmpty());
+		assertTrue(storage.getAllPeerTopology().isEmpty());
+	}
+
+	@Test
+	public void testBackendSelection() {
+		assertSame(SdniStorageBackend.IN_MEMORY, SdniStorageBackend.forConfigName("in-memory"));
+		assertSame(SdniStorageBackend.SQLITE, SdniStorageBackend.forConfigName("sqlite"));
+		assertNull(SdniStorageBackend.forConfigName("oracle"));
+		assertSame(SdniInMemoryStorage.getInstance(), SdniStorageBackend.IN_MEMORY.open(null));
+	}
+
+	@Test
+	public void testBackendSharedThroughConnectionManager() {
+		final SdniConnectionManager manager = new SdniConnectionManager(SdniConnectionManager.DEFAULT_DB_URL);
+		final List<SdniStorageBackend> changes = new ArrayList<SdniStorageBackend>();
+		manager.addStorageBackendListener(new Runnable() {
+			@Override
+			public void run() {
+				changes.add(manager.getStorageBackend());
+			}
+		});
+		assertSame(SdniStorageBackend.SQLITE, manager.getStorageBackend());
+		manager.setStorageBackend(SdniStorageBackend.IN_MEMORY);
+		manager.setStorageBackend(SdniStorageBackend.IN_MEMORY);
+		// the modules started before reopen their storage once
+		assertEquals(Collections.singletonList(SdniStorageBackend.IN_MEMORY), changes);
+		assertSame(SdniInMemoryStorage.getInstance(), manager.openStorage());
+	}
+
+	private static PortStatistics port(String node, String port) {
+		return PortStatistics.builder()
+				.setNodeID(node)
+				.setPortID(port)
+				.setPortName("eth0")
+				.setReceivePackets(10)
+				.setTransmitPackets(20)
+				.build();
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SdniPeerStateStoreTest {
+
+	private final SdniPeerStateStore store = new SdniPeerStateStore();
+
+	@Before
+	public void setUp() {
+		for (String controller : Arrays.asList("10.0.0.3", "10.0.0.2")) {
+			List<PortStatistics> ports = new ArrayList<PortStatistics>();
+			for (int node = 1; node <= 2; node++) {
+				for (int port = 1; port <= 3; port++) {
+					ports.add(port("openflow:" + node, "openflow:" + node + ":" + port, port));
+				}
+				ports.add(port("openflow:" + node, "openflow:" + node + ":LOCAL", 0));
+			}
+			store.putQos(controller, ports, 1000);
+		}
+	}
+
+	@Test
+	public void testPagesCoverEveryPortOnceInOrder() {
+		List<String> seen = new ArrayList<String>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			SdniQosPage page = store.queryQos(SdniQosQuery.builder().setLimit(3).setCursor(cursor).build());
+			assertEquals(pages < 5 ? 3 : 1, page.size());
+			seen.addAll(flatten(page));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(6, pages);
+		assertEquals(16, seen.size());
+		assertEquals("10.0.0.2/openflow:1/openflow:1:0", seen.get(0));
+		assertEquals("10.0.0.3/openflow:2/openflow:2:3", seen.get(15));
+		assertEquals(16, store.queryQos(SdniQosQuery.builder().setLimit(100).build()).size());
+	}
+
+	@Test
+	public void testFilters() {
+		SdniQosPage page = store.queryQos(SdniQosQuery.builder()
+				.setControllerIp("10.0.0.3")
+				.setNodeIdPrefix("openflow:2")
+				.setMinReceiveErrors(2)
+				.build());
+		assertEquals(Arrays.asList("10.0.0.3/openflow:2/openflow:2:2", "10.0.0.3/openflow:2/openflow:2:3"), flatten(page));
+		assertNull(page.getNextCursor());
+
+		page = store.queryQos(SdniQosQuery.builder().setPortId("openflow:1:LOCAL").build());
+		assertEquals(Arrays.asList("10.0.0.2/openflow:1/openflow:1:0", "10.0.0.3/openflow:1/openflow:1:0"), flatten(page));
+
+		assertEquals(0, store.queryQos(SdniQosQuery.builder().setControllerIp("10.0.0.4").build()).size());
+	}
+
+	@Test
+	public void testFiltersWithCursor() {
+		SdniQosPage page = store.queryQos(SdniQosQuery.builder().setPortId("openflow:1:LOCAL").setLimit(1).build());
+		assertEquals(Arrays.asList("10.0.0.2/openflow:1/openflow:1:0"), flatten(page));
+		page = store.queryQos(SdniQosQuery.builder().setPortId("openflow:1:LOCAL").setLimit(1)
+				.setCursor(page.getNextCursor()).build());
+		assertEquals(Arrays.asList("10.0.0.3/openflow:1/openflow:1:0"), flatten(page));
+		assertNull(page.getNextCursor());
+
+		// a cursor outside the controller and node filters
+		page = store.queryQos(SdniQosQuery.builder().setControllerIp("10.0.0.3").setNodeIdPrefix("openflow:2")
+				.setCursor("10.0.0.2/openflow:1/openflow:1:0").build());
+		assertEquals(4, page.size());
+		assertEquals(0, store.queryQos(SdniQosQuery.builder().setControllerIp("10.0.0.2")
+				.setCursor("10.0.0.3/openflow:1/openflow:1:0").build()).size());
+		assertEquals(0, store.queryQos(SdniQosQuery.builder().setNodeIdPrefix("openflow:1")
+				.setCursor("10.0.0.3/openflow:2/openflow:2:0").build()).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCursor() {
+		SdniQosQuery.builder().setCursor("10.0.0.2/openflow:1").build();
+	}
+
+	private static List<String> flatten(SdniQosPage page) {
+		List<String> ports = new ArrayList<String>();
+		for (Map.Entry<String, Map<String, Map<String, PortStatistics>>> controller : page.getControllers().entrySet()) {
+			for (Map.Entry<String, Map<String, PortStatistics>> node : controller.getValue().entrySet()) {
+				for (String port : node.getValue().keySet()) {
+					ports.add(controller.getKey() + "/" + node.getKey() + "/" + port);
+				}
+			}
+		}
+		return ports;
+	}
+
+	private static PortStatistics port(String node, String port, long crcErrors) {
+		return PortStatistics.builder()
+				.setNodeID(node)
+				.setPortID(port)
+				.setReceiveCrcError(crcErrors)
+				.build();
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SdniQosHistoryTest {
+
+	private static final String PEER = "10.0.0.2";
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testRatesFromConsecutiveSamples() {
+		SdniQosHistory history = new SdniQosHistory();
+		history.record(PEER, Collections.singletonList(port(100, 50, 1, 0)), 10000);
+		history.record(PEER, Collections.singletonList(port(600, 150, 5, 2)), 12000);
+
+		List<SdniQosHistory.Sample> samples = samples(history);
+		assertEquals(2, samples.size());
+		assertFalse(samples.get(0).hasRates());
+
+		SdniQosHistory.Sample last = samples.get(1);
+		assertTrue(last.hasRates());
+		assertEquals(250.0, last.getReceivePacketsPerSecond(), DELTA);
+		assertEquals(50.0, last.getTransmitPacketsPerSecond(), DELTA);
+		assertEquals(2.0, last.getErrorsPerSecond(), DELTA);
+		assertEquals(1.0, last.getCollisionsPerSecond(), DELTA);
+	}
+
+	@Test
+	public void testCounterResetHasNoRates() {
+		SdniQosHistory history = new SdniQosHistory();
+		history.record(PEER, Collections.singletonList(port(1000, 1000, 0, 0)), 1000);
+		history.record(PEER, Collections.singletonList(port(10, 10, 0, 0)), 2000);
+		history.record(PEER, Collections.singletonList(port(20, 30, 0, 0)), 3000);
+
+		List<SdniQosHistory.Sample> samples = samples(history);
+		assertFalse(samples.get(1).hasRates());
+		assertTrue(samples.get(2).hasRates());
+		assertEquals(20.0, samples.get(2).getTransmitPacketsPerSecond(), DELTA);
+	}
+
+	@Test
+	public void testRingKeepsNewestSamples() {
+		SdniQosHistory history = new SdniQosHistory(3);
+		for (int i = 1; i <= 5; i++) {
+			history.record(PEER, Collections.singletonList(port(i, i, 0, 0)), i * 1000);
+		}
+		List<SdniQosHistory.Sample> samples = samples(history);
+		assertEquals(3, samples.size());
+		assertEquals(3000, samples.get(0).getTimestampMillis());
+		assertEquals(5000, samples.get(2).getTimestampMillis());
+
+		history.setCapacity(2);
+		samples = samples(history);
+		assertEquals(2, samples.size());
+		assertEquals(4000, samples.get(0).getTimestampMillis());
+
+		history.removeControllers(Collections.singleton(PEER));
+		assertTrue(history.getAll().isEmpty());
+	}
+
+	private static List<SdniQosHistory.Sample> samples(SdniQosHistory history) {
+		return history.getAll().get(PEER).get("openflow:1").get("openflow:1:0");
+	}
+
+	private static PortStatistics port(long receive, long transmit, long crcErrors, long collisions) {
+		return PortStatistics.builder()
+				.setNodeID("openflow:1")
+				.setPortID("openflow:1:LOCAL")
+				.setReceivePackets(receive)
+				.setTransmitPackets(transmit)
+				.setReceiveCrcError(crcErrors)
+				.setCollisionCount(collisions)
+				.build();
+	}
+}
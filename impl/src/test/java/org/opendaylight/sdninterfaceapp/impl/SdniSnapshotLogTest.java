@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SdniSnapshotLogTest {
+
+	private static final int CAPACITY = 4096;
+	// header 8, type 1, timestamp 8, "10.0.0.2" 10, count 4, "a->b" 7
+	private static final int FIRST_LINKS_RECORD_SIZE = 38;
+
+	private File logFile;
+
+	@Before
+	public void setUp() throws Exception {
+		logFile = File.createTempFile("sdni-snapshots", ".log");
+	}
+
+	@After
+	public void tearDown() {
+		logFile.delete();
+	}
+
+	@Test
+	public void testReplayKeepsLatestSnapshotPerPeer() throws Exception {
+		SdniSnapshotLog log = SdniSnapshotLog.open(logFile, CAPACITY);
+		log.appendQos("10.0.0.2", Collections.singletonList(port("openflow:1:1", 10)), 1000);
+		log.appendQos("10.0.0.2", Collections.singletonList(port("openflow:1:1", 20)), 2000);
+		log.appendLinks("10.0.0.2", Arrays.asList("a->b", "c->d"), 2000);
+		log.appendLinks("10.0.0.3", Collections.singletonList("e->f"), 2000);
+		log.removeControllers(Collections.singleton("10.0.0.3"), 3000);
+		log.close();
+
+		SdniPeerStateStore store = new SdniPeerStateStore();
+		log = SdniSnapshotLog.open(logFile, CAPACITY);
+		assertEquals(2, log.replayInto(store));
+		log.close();
+
+		PortStatistics replayed = store.getAllQoSPeerData().get("10.0.0.2").get("openflow:1").get("openflow:1:1");
+		assertEquals(port("openflow:1:1", 20), replayed);
+		assertEquals(Arrays.asList("a->b", "c->d"), store.getAllPeerTopology().get("10.0.0.2"));
+		assertFalse(store.getAllPeerTopology().containsKey("10.0.0.3"));
+	}
+
+	@Test
+	public void testCompactionWhenFull() throws Exception {
+		SdniSnapshotLog log = SdniSnapshotLog.open(logFile, CAPACITY);
+		for (long i = 1; i <= 1000; i++) {
+			log.appendQos("10.0.0.2", Collections.singletonList(port("openflow:1:1", i)), i);
+		}
+		log.close();
+		assertEquals(CAPACITY, logFile.length());
+
+		SdniPeerStateStore store = new SdniPeerStateStore();
+		log = SdniSnapshotLog.open(logFile, CAPACITY);
+		assertEquals(1, log.replayInto(store));
+		log.close();
+		assertEquals(port("openflow:1:1", 1000),
+				store.getAllQoSPeerData().get("10.0.0.2").get("openflow:1").get("openflow:1:1"));
+	}
+
+	@Test
+	public void testTornRecordIsIgnored() throws Exception {
+		SdniSnapshotLog log = SdniSnapshotLog.open(logFile, CAPACITY);
+		log.appendLinks("10.0.0.2", Collections.singletonList("a->b"), 1000);
+		log.close();
+
+		// a record whose payload does not match its crc, as left by a crash
+		RandomAccessFile raf = new RandomAccessFile(logFile, "rw");
+		try {
+			raf.seek(FIRST_LINKS_RECORD_SIZE);
+			raf.writeInt(16);
+			raf.writeInt(12345);
+			raf.write(new byte[16]);
+		} finally {
+			raf.close();
+		}
+
+		SdniPeerStateStore store = new SdniPeerStateStore();
+		log = SdniSnapshotLog.open(logFile, CAPACITY);
+		assertEquals(1, log.replayInto(store));
+		log.close();
+		List<String> links = store.getAllPeerTopology().get("10.0.0.2");
+		assertEquals(Collections.singletonList("a->b"), links);
+	}
+
+	private static PortStatistics port(String port, long packets) {
+		return PortStatistics.builder()
+				.setController("10.0.0.2")
+				.setNodeID("openflow:1")
+				.setPortID(port)
+				.setPortName("eth0")
+				.setReceivePackets(packets)
+				.setTransmitPackets(packets * 2)
+				.build();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SdniTrustedControllersTest {
+
+	private final SdniInMemoryStorage storage = new SdniInMemoryStorage();
+	private final SdniTrustedControllers trusted = new SdniTrustedControllers();
+
+	@Test
+	public void testChangesWriteThroughToStorage() {
+		storage.addTrustedController("10.0.0.2");
+		trusted.reload(storage);
+		assertTrue(trusted.isTrusted("10.0.0.2"));
+		assertFalse(trusted.isTrusted("10.0.0.3"));
+		assertFalse(trusted.isTrusted(null));
+
+		assertTrue(trusted.add(storage, "10.0.0.3"));
+		assertTrue(trusted.remove(storage, "10.0.0.2"));
+		assertEquals(Collections.singleton("10.0.0.3"), trusted.getControllers());
+		assertEquals(Collections.singletonList("10.0.0.3"), storage.getTrustedControllers());
+	}
+
+	@Test
+	public void testFailedStoreKeepsCache() {
+		trusted.add(storage, "10.0.0.2");
+		SdniStorage failing = Mockito.mock(SdniStorage.class);
+		Mockito.when(failing.addTrustedController("10.0.0.3")).thenReturn(false);
+		Mockito.when(failing.removeTrustedController("10.0.0.2")).thenReturn(false);
+
+		assertFalse(trusted.add(failing, "10.0.0.3"));
+		assertFalse(trusted.remove(failing, "10.0.0.2"));
+		assertEquals(Collections.singleton("10.0.0.2"), trusted.getControllers());
+	}
+}
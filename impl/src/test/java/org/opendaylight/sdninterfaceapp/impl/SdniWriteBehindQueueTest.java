@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015, 2016 Tata Consultancy Services and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sdninterfaceapp.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SdniWriteBehindQueueTest {
+
+	@Test
+	public void testPendingWritesAreCoalescedPerKey() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+		SdniWriteBehindQueue queue = new SdniWriteBehindQueue("test-writer", 2);
+
+		// keep the writer busy so the following writes stay pending
+		queue.submit("blocker", new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertTrue(queue.submit("peer-qos:10.0.0.2", record(written, "first")));
+		assertTrue(queue.submit("peer-qos:10.0.0.2", record(written, "second")));
+		assertTrue(queue.submit("peer-links:10.0.0.2", record(written, "links")));
+		assertEquals(2, queue.size());
+		assertFalse(queue.submit("peer-qos:10.0.0.3", record(written, "dropped")));
+
+		release.countDown();
+		queue.close();
+
+		assertEquals(2, written.size());
+		assertTrue(written.contains("second"));
+		assertTrue(written.contains("links"));
+		assertFalse(queue.submit("peer-qos:10.0.0.2", record(written, "closed")));
+	}
+
+	@Test
+	public void testWriterSurvivesError() throws Exception {
+		final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+		SdniWriteBehindQueue queue = new SdniWriteBehindQueue("test-writer");
+		assertTrue(queue.submit("broken", new Runnable() {
+			@Override
+			public void run() {
+				throw new LinkageError("storage bundle gone");
+			}
+		}));
+		assertTrue(queue.submit("peer-qos:10.0.0.2", record(written, "after")));
+		queue.close();
+
+		assertEquals(Collections.singletonList("after"), written);
+	}
+
+	private static Runnable record(final List<String> written, final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				written.add(name);
+			}
+		};
+	}
+}